@@ -0,0 +1,24 @@
+package com.library.benchmark;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Raises the service loggers, and the root logger the libraries log through, to WARNING so benchmarks
+ * measure the services rather than the console. Without the application's logging configuration the
+ * libraries would otherwise run with their debug and trace output enabled. Log statements are still
+ * evaluated up to the level check, as they are in production.
+ */
+final class BenchmarkLogging {
+    
+    // JUL only keeps weak references to configured loggers
+    private static final Logger LIBRARY_LOGGER = Logger.getLogger("com.library");
+    private static final Logger ROOT_LOGGER = Logger.getLogger("");
+    
+    private BenchmarkLogging() {}
+    
+    static void quiet() {
+        ROOT_LOGGER.setLevel(Level.WARNING);
+        LIBRARY_LOGGER.setLevel(Level.WARNING);
+    }
+}
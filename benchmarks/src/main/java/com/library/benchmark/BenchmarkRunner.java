@@ -0,0 +1,39 @@
+package com.library.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JSON result file per run.
+ * Thread counts come from {@code -Dbenchmark.threads} (default {@code 1,4}) and results go to
+ * {@code -Dbenchmark.results} (default {@code target/jmh}). Any other arguments are regular
+ * JMH options, e.g. a benchmark name pattern or {@code -p dataSize=1000}.
+ */
+public final class BenchmarkRunner {
+    
+    private BenchmarkRunner() {}
+    
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        File resultDirectory = new File(System.getProperty("benchmark.results", "target/jmh"));
+        if (!resultDirectory.isDirectory() && !resultDirectory.mkdirs()) {
+            throw new IllegalStateException("Cannot create result directory " + resultDirectory);
+        }
+        
+        for (String threads : System.getProperty("benchmark.threads", "1,4").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, "results-" + threadCount + "-threads.json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.benchmark;
+
+import com.library.dto.BookRequestDTO;
+import com.library.dto.BookResponseDTO;
+import com.library.service.LibraryFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Book catalog hot paths against a catalog of {@code catalogSize} books, shared by all benchmark threads.
+ * The catalog is rebuilt before every iteration so that creates do not grow it without bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class BookServiceBenchmark {
+    
+    // Enough copies that lending never runs a book dry during an iteration
+    private static final int COPIES = 1_000_000_000;
+    
+    @Param({"1000", "10000", "100000"})
+    int catalogSize;
+    
+    private LibraryFixture fixture;
+    private String[] bookIds;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        fixture = new LibraryFixture();
+        bookIds = fixture.seedBooks(catalogSize, COPIES);
+    }
+    
+    @Benchmark
+    public BookResponseDTO createBook() {
+        long n = sequence.incrementAndGet();
+        return fixture.bookService.createBook(new BookRequestDTO("Benchmark Title " + n, "Benchmark Author"));
+    }
+    
+    @Benchmark
+    public BookResponseDTO getBookById() {
+        return fixture.bookService.getBookById(randomBook());
+    }
+    
+    @Benchmark
+    public BookResponseDTO decreaseBookQuantity() {
+        return fixture.bookService.decreaseBookQuantity(randomBook());
+    }
+    
+    private String randomBook() {
+        return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+    }
+}
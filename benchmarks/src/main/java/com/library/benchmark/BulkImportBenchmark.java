@@ -0,0 +1,87 @@
+package com.library.benchmark;
+
+import com.library.dto.BulkImportResultDTO;
+import com.library.service.BulkImportService;
+import com.library.service.LibraryFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import throughput in rows per second: {@value #ROWS} rows of books (with quantities) or members,
+ * as NDJSON or CSV, parsed, validated and applied in chunks by {@link BulkImportService} into empty
+ * stores. Each invocation imports one whole body into a fresh fixture; HTTP is not included. Run
+ * single-threaded, as one import runs on one thread. Books, the slower of the two, should stay above
+ * 100 000 rows per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BulkImportBenchmark.ROWS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class BulkImportBenchmark {
+    
+    static final int ROWS = 100_000;
+    
+    @Param({"NDJSON", "CSV"})
+    BulkImportService.Format format;
+    
+    private byte[] books;
+    private byte[] members;
+    private LibraryFixture fixture;
+    
+    @Setup(Level.Trial)
+    public void createBodies() {
+        BenchmarkLogging.quiet();
+        StringBuilder bookRows = new StringBuilder(ROWS * 64);
+        StringBuilder memberRows = new StringBuilder(ROWS * 64);
+        for (int i = 0; i < ROWS; i++) {
+            String title = "Imported Title " + i;
+            String author = "Imported Author " + (i % 5000);
+            String name = "Imported Member " + i;
+            String email = "import" + i + "@library.test";
+            if (format == BulkImportService.Format.CSV) {
+                bookRows.append(title).append(',').append(author).append(",3\n");
+                memberRows.append(name).append(',').append(email).append('\n');
+            } else {
+                bookRows.append("{\"title\":\"").append(title).append("\",\"author\":\"").append(author)
+                        .append("\",\"quantity\":3}\n");
+                memberRows.append("{\"name\":\"").append(name).append("\",\"email\":\"").append(email).append("\"}\n");
+            }
+        }
+        books = bookRows.toString().getBytes(StandardCharsets.UTF_8);
+        members = memberRows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Every invocation imports into empty stores, so later rows never turn into restocks or duplicates
+    @Setup(Level.Invocation)
+    public void createFixture() {
+        fixture = new LibraryFixture();
+    }
+    
+    @Benchmark
+    public BulkImportResultDTO importBooks() {
+        return fixture.bulkImportService.importBooks(new ByteArrayInputStream(books), format);
+    }
+    
+    @Benchmark
+    public BulkImportResultDTO importMembers() {
+        return fixture.bulkImportService.importMembers(new ByteArrayInputStream(members), format);
+    }
+}
@@ -0,0 +1,63 @@
+package com.library.benchmark;
+
+import com.library.dto.BookRequestDTO;
+import com.library.service.LibraryFixture;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Locale;
+
+/**
+ * Measures the live heap the catalog needs per book, which JMH does not report. Run
+ * {@code java -Xmx4g -cp target/benchmarks.jar com.library.benchmark.CatalogFootprint}.
+ * <p>
+ * The catalog is loaded twice through {@code createBook}, each time with a fresh author string per
+ * request as a JSON parser would produce: once with a different author for every book, so nothing
+ * can be shared, and once with {@code footprint.authors} authors (default 5000) spread over the books.
+ * The difference is what sharing author strings saves. Both runs then delete every other book and
+ * print how many titles and authors the catalog dictionary still holds. {@code footprint.books} sets
+ * the catalog size (default 1000000).
+ */
+public final class CatalogFootprint {
+    
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    
+    private CatalogFootprint() {}
+    
+    public static void main(String[] args) throws InterruptedException {
+        int books = Integer.getInteger("footprint.books", 1_000_000);
+        int authors = Integer.getInteger("footprint.authors", 5_000);
+        
+        System.out.printf(Locale.ROOT, "%-18s %10s %12s %14s %14s%n",
+                "authors", "books", "bytes/book", "names held", "after deletes");
+        measure("one per book", books, books);
+        measure(String.valueOf(authors), books, authors);
+    }
+    
+    private static void measure(String name, int books, int authors) throws InterruptedException {
+        long before = liveHeap();
+        LibraryFixture fixture = new LibraryFixture();
+        String[] ids = new String[books];
+        for (int i = 0; i < books; i++) {
+            String author = new String(String.format(Locale.ROOT, "Author %07d", i % authors));
+            ids[i] = fixture.bookService.createBook(new BookRequestDTO("Collected Works Volume " + i, author)).getId();
+        }
+        long perBook = (liveHeap() - before) / books;
+        int held = fixture.catalogDictionarySize();
+        
+        for (int i = 0; i < books; i += 2) {
+            fixture.bookService.deleteBook(ids[i]);
+        }
+        System.out.printf(Locale.ROOT, "%-18s %10d %12d %14d %14d%n",
+                name, books, perBook, held, fixture.catalogDictionarySize());
+    }
+    
+    // Helper method to read the heap in use once garbage has been collected
+    private static long liveHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
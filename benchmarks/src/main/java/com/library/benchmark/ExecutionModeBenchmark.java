@@ -0,0 +1,106 @@
+package com.library.benchmark;
+
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.persistence.FsyncMode;
+import com.library.persistence.JournalFixture;
+import com.library.service.LibraryFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lend-and-return throughput at high concurrency with a durable journal ({@code fsync-mode=always}),
+ * where every mutating call waits for its group commit. Each invocation submits {@value #CONCURRENCY}
+ * requests at once to either a fixed pool of {@value #PLATFORM_THREADS} platform threads (the size of the
+ * default Quarkus worker pool) or one virtual thread per request, mirroring {@code library.execution.mode}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class ExecutionModeBenchmark {
+
+    private static final int CONCURRENCY = 2_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int DATA_SIZE = 10_000;
+    private static final int COPIES = 1_000_000_000;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    private LibraryFixture fixture;
+    private JournalFixture journal;
+    private Path directory;
+    private ExecutorService executor;
+    private String[] bookIds;
+    private String[] memberIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        BenchmarkLogging.quiet();
+        fixture = new LibraryFixture();
+        bookIds = fixture.seedBooks(DATA_SIZE, COPIES);
+        memberIds = fixture.seedMembers(DATA_SIZE);
+        directory = Files.createTempDirectory("library-journal");
+        journal = JournalFixture.attach(fixture.journal, directory, FsyncMode.ALWAYS, fixture.journalSources());
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        executor.close();
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public void lendAndReturnBook() throws Exception {
+        Future<?>[] requests = new Future<?>[CONCURRENCY];
+        for (int i = 0; i < CONCURRENCY; i++) {
+            requests[i] = executor.submit(() -> {
+                LendingResponseDTO lending = fixture.lendingService.lendBook(randomRequest());
+                return fixture.lendingService.returnBook(lending.getLendingId());
+            });
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+    }
+
+    private LendingRequestDTO randomRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new LendingRequestDTO(bookIds[random.nextInt(bookIds.length)], memberIds[random.nextInt(memberIds.length)]);
+    }
+}
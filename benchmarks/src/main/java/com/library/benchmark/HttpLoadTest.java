@@ -0,0 +1,198 @@
+package com.library.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test comparing the blocking lookups under {@code /api} with their non-blocking
+ * variants under {@code /api/rx}. Start the application first, then run
+ * {@code java -cp target/benchmarks.jar com.library.benchmark.HttpLoadTest}.
+ * <p>
+ * Settings are system properties: {@code load.url} (default {@code http://localhost:8080}),
+ * {@code load.connections} (concurrent clients, default 64), {@code load.warmup} and {@code load.duration}
+ * (seconds per scenario, default 5 and 15) and {@code load.members} (members and lendings created for the
+ * test, default 200). For each lookup it prints throughput and latency percentiles of both variants.
+ */
+public final class HttpLoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"(?:id|lendingId)\":\"([^\"]+)\"");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final int connections;
+
+    private HttpLoadTest(String baseUrl, int connections) {
+        this.baseUrl = baseUrl;
+        this.connections = connections;
+    }
+
+    private record Result(long requests, long errors, double seconds, long[] latencies) {
+
+        String format(String name) {
+            return String.format(Locale.ROOT, "%-24s %10.0f req/s %9.3f %9.3f %9.3f %9.3f %7d",
+                    name, requests / seconds, millis(0.50), millis(0.99), millis(0.999), millis(1.0), errors);
+        }
+
+        private double millis(double quantile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(quantile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        HttpLoadTest test = new HttpLoadTest(
+                System.getProperty("load.url", "http://localhost:8080"),
+                Integer.getInteger("load.connections", 64));
+        int warmup = Integer.getInteger("load.warmup", 5);
+        int duration = Integer.getInteger("load.duration", 15);
+
+        List<String> bookIds = test.ids("/api/books");
+        List<String> memberIds = test.createMembers(Integer.getInteger("load.members", 200));
+        List<String> lendingIds = test.lend(bookIds, memberIds);
+
+        String[][] scenarios = {
+            {"book by id", "/api/books/", "/api/rx/books/"},
+            {"member by id", "/api/members/", "/api/rx/members/"},
+            {"lending by id", "/api/lending/", "/api/rx/lending/"},
+        };
+        List<List<String>> keys = List.of(bookIds, memberIds, lendingIds);
+
+        System.out.printf(Locale.ROOT, "%d connections, %ds warmup, %ds measured per run%n", test.connections, warmup, duration);
+        System.out.printf(Locale.ROOT, "%-24s %16s %9s %9s %9s %9s %7s%n", "", "throughput", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (int i = 0; i < scenarios.length; i++) {
+            for (int variant = 1; variant <= 2; variant++) {
+                String prefix = scenarios[i][variant];
+                test.run(prefix, keys.get(i), warmup);
+                Result result = test.run(prefix, keys.get(i), duration);
+                System.out.println(result.format(scenarios[i][0] + (variant == 1 ? " (blocking)" : " (rx)")));
+            }
+        }
+    }
+
+    // Every client loops over random keys as fast as responses come back, for the given number of seconds
+    private Result run(String prefix, List<String> keys, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<long[]>> clients = new ArrayList<>(connections);
+        long[] errors = new long[connections];
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int client = c;
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        URI uri = URI.create(baseUrl + prefix + keys.get(random.nextInt(keys.size())));
+                        long begin = System.nanoTime();
+                        int status = get(uri);
+                        long latency = System.nanoTime() - begin;
+                        if (status != 200) {
+                            errors[client]++;
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = latency;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] all = new long[0];
+        for (Future<long[]> client : clients) {
+            long[] latencies = client.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        return new Result(all.length, Arrays.stream(errors).sum(), elapsed, all);
+    }
+
+    private int get(URI uri) {
+        try {
+            return client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private List<String> ids(String path) throws Exception {
+        String body = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = ID.matcher(body);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No records returned by " + path);
+        }
+        return ids;
+    }
+
+    private List<String> createMembers(int count) throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(post("/api/members", "{\"name\":\"Load " + i + "\",\"email\":\"load-" + run + "-" + i + "@example.com\"}"));
+        }
+        return ids;
+    }
+
+    // Lends each book once (as far as copies allow), so there are lending records to look up
+    private List<String> lend(List<String> bookIds, List<String> memberIds) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < bookIds.size(); i++) {
+            String id = post("/api/lending", "{\"bookId\":\"" + bookIds.get(i) + "\",\"memberId\":\""
+                    + memberIds.get(i % memberIds.size()) + "\"}");
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No copies available to create lendings");
+        }
+        return ids;
+    }
+
+    // Returns the ID of the created record, or null if the request was rejected
+    private String post(String path, String json) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            return null;
+        }
+        Matcher matcher = ID.matcher(response.body());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.library.benchmark;
+
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.service.LibraryFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lending hot paths over {@code dataSize} books and {@code dataSize} members, shared by all benchmark
+ * threads. A return needs an active lending, so it is measured as a lend followed by its return;
+ * the cost of {@code returnBook} alone is the difference to {@code lendBook}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class LendingServiceBenchmark {
+    
+    // Enough copies that lending never runs a book dry during an iteration
+    private static final int COPIES = 1_000_000_000;
+    
+    @Param({"1000", "10000", "100000"})
+    int dataSize;
+    
+    private LibraryFixture fixture;
+    private String[] bookIds;
+    private String[] memberIds;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        fixture = new LibraryFixture();
+        bookIds = fixture.seedBooks(dataSize, COPIES);
+        memberIds = fixture.seedMembers(dataSize);
+    }
+    
+    @Benchmark
+    public LendingResponseDTO lendBook() {
+        return fixture.lendingService.lendBook(randomRequest());
+    }
+    
+    @Benchmark
+    public LendingResponseDTO lendAndReturnBook() {
+        LendingResponseDTO lending = fixture.lendingService.lendBook(randomRequest());
+        return fixture.lendingService.returnBook(lending.getLendingId());
+    }
+    
+    private LendingRequestDTO randomRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new LendingRequestDTO(bookIds[random.nextInt(bookIds.length)], memberIds[random.nextInt(memberIds.length)]);
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.benchmark;
+
+import com.library.dto.MemberRequestDTO;
+import com.library.dto.MemberResponseDTO;
+import com.library.service.LibraryFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member registration against {@code memberCount} existing members, shared by all benchmark threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class MemberServiceBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    int memberCount;
+    
+    private LibraryFixture fixture;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        fixture = new LibraryFixture();
+        fixture.seedMembers(memberCount);
+    }
+    
+    @Benchmark
+    public MemberResponseDTO createMember() {
+        long n = sequence.incrementAndGet();
+        return fixture.memberService.createMember(new MemberRequestDTO("Benchmark Member", "bench" + n + "@library.test"));
+    }
+}
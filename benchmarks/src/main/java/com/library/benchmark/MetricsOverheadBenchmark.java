@@ -0,0 +1,95 @@
+package com.library.benchmark;
+
+import com.library.dto.BookResponseDTO;
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.metrics.LibraryMetrics;
+import com.library.service.LibraryFixture;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-request instrumentation: the same service calls with and without the work the
+ * HTTP binder does for each request (look up the endpoint timer, record into its histogram) on a
+ * Prometheus registry with the application's latency histograms. Compare the two {@code instrumented} values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.jboss.logging.provider=jdk"})
+public class MetricsOverheadBenchmark {
+    
+    private static final int COPIES = 1_000_000_000;
+    private static final int DATA_SIZE = 10_000;
+    
+    @Param({"false", "true"})
+    boolean instrumented;
+    
+    private PrometheusMeterRegistry registry;
+    private LibraryFixture fixture;
+    private String[] bookIds;
+    private String[] memberIds;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(LibraryMetrics.latencyHistograms());
+        fixture = new LibraryFixture(registry);
+        bookIds = fixture.seedBooks(DATA_SIZE, COPIES);
+        memberIds = fixture.seedMembers(DATA_SIZE);
+    }
+    
+    @Benchmark
+    public BookResponseDTO getBookById() {
+        String id = bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+        if (!instrumented) {
+            return fixture.bookService.getBookById(id);
+        }
+        long start = System.nanoTime();
+        BookResponseDTO book = fixture.bookService.getBookById(id);
+        record("GET", "/api/books/{id}", start);
+        return book;
+    }
+    
+    @Benchmark
+    public LendingResponseDTO lendBook() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LendingRequestDTO request = new LendingRequestDTO(bookIds[random.nextInt(bookIds.length)],
+                memberIds[random.nextInt(memberIds.length)]);
+        if (!instrumented) {
+            return fixture.lendingService.lendBook(request);
+        }
+        long start = System.nanoTime();
+        LendingResponseDTO lending = fixture.lendingService.lendBook(request);
+        record("POST", "/api/lending", start);
+        return lending;
+    }
+    
+    // Mirrors the HTTP binder: a tagged timer lookup and a histogram record per request
+    private void record(String method, String uri, long start) {
+        Timer.builder("http.server.requests")
+                .tags(Tags.of("method", method, "uri", uri, "status", "200", "outcome", "SUCCESS"))
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
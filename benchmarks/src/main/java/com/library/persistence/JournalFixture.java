@@ -0,0 +1,94 @@
+package com.library.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Attaches a real write-ahead log to a hand-wired {@link Journal}, the way {@link PersistenceManager}
+ * does on startup, so benchmarks can measure mutating calls that wait for disk. Lives in the
+ * persistence package to reach the log and the journal's configuration.
+ */
+public final class JournalFixture implements AutoCloseable {
+    
+    private final Journal journal;
+    private final WriteAheadLog log;
+    
+    private JournalFixture(Journal journal, WriteAheadLog log) {
+        this.journal = journal;
+        this.log = log;
+    }
+    
+    /**
+     * Starts a log in {@code directory} and attaches it to {@code journal}. Commits then go through
+     * group commit with the given fsync mode; entries are read back from {@code sources}.
+     */
+    public static JournalFixture attach(Journal journal, Path directory, FsyncMode fsyncMode,
+                                        JournalSource... sources) throws IOException {
+        Map<EntityType, JournalSource> sourcesByType = new EnumMap<>(EntityType.class);
+        for (JournalSource source : sources) {
+            sourcesByType.put(source.type(), source);
+        }
+        PersistenceConfig config = new FixtureConfig(directory, fsyncMode);
+        journal.config = config;
+        WriteAheadLog log = new WriteAheadLog(directory, 1, fsyncMode, config.fsyncInterval(),
+                config.maxBatchSize(), config.queueCapacity(), key -> {
+                    JournalEntry entry = sourcesByType.get(key.type()).read(key.id());
+                    return entry != null ? entry : new JournalEntry.Removed(key.type(), key.id());
+                });
+        journal.attach(log);
+        return new JournalFixture(journal, log);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        journal.detach();
+        log.close();
+    }
+    
+    // The application's defaults, with persistence enabled
+    private record FixtureConfig(Path path, FsyncMode mode) implements PersistenceConfig {
+        
+        @Override
+        public boolean enabled() {
+            return true;
+        }
+        
+        @Override
+        public String directory() {
+            return path.toString();
+        }
+        
+        @Override
+        public FsyncMode fsyncMode() {
+            return mode;
+        }
+        
+        @Override
+        public Duration fsyncInterval() {
+            return Duration.ofMillis(50);
+        }
+        
+        @Override
+        public int maxBatchSize() {
+            return 4096;
+        }
+        
+        @Override
+        public int queueCapacity() {
+            return 65536;
+        }
+        
+        @Override
+        public Duration snapshotInterval() {
+            return Duration.ZERO;
+        }
+        
+        @Override
+        public boolean snapshotOnShutdown() {
+            return false;
+        }
+    }
+}
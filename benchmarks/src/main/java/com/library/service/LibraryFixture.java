@@ -0,0 +1,109 @@
+package com.library.service;
+
+import com.library.dto.BookImportDTO;
+import com.library.dto.MemberRequestDTO;
+import com.library.id.IdGenerator;
+import com.library.metrics.LibraryMetrics;
+import com.library.persistence.Journal;
+import com.library.persistence.JournalSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wires the services by hand, the way CDI would, so benchmarks measure them without a running
+ * application. Lives in the services' package to set their injected fields. Unless a write-ahead log
+ * is attached to {@link #journal}, every commit is a no-op.
+ */
+public final class LibraryFixture {
+    
+    private static final int IMPORT_CHUNK = 10_000;
+    
+    // Thread-safe and costly to build, so shared by every fixture like the application's single instances
+    private static final Jsonb JSONB = JsonbBuilder.create();
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+    
+    public final BookService bookService = new BookService();
+    public final MemberService memberService = new MemberService();
+    public final LendingService lendingService = new LendingService();
+    public final BulkImportService bulkImportService = new BulkImportService();
+    public final Journal journal = new Journal();
+    
+    public LibraryFixture() {
+        this(new SimpleMeterRegistry());
+    }
+    
+    public LibraryFixture(MeterRegistry registry) {
+        LibraryMetrics metrics = new LibraryMetrics(registry);
+        IdGenerator idGenerator = new IdGenerator(0);
+        bookService.journal = journal;
+        bookService.metrics = metrics;
+        bookService.idGenerator = idGenerator;
+        memberService.journal = journal;
+        memberService.metrics = metrics;
+        memberService.idGenerator = idGenerator;
+        lendingService.journal = journal;
+        lendingService.idGenerator = idGenerator;
+        lendingService.lendingConfig = () -> Duration.ofDays(14);
+        lendingService.archive = new LendingArchive(Path.of(System.getProperty("java.io.tmpdir")));
+        lendingService.bookService = bookService;
+        lendingService.memberService = memberService;
+        bulkImportService.bookService = bookService;
+        bulkImportService.memberService = memberService;
+        bulkImportService.jsonb = JSONB;
+        bulkImportService.validator = VALIDATOR;
+    }
+    
+    public JournalSource[] journalSources() {
+        return new JournalSource[] {
+            bookService.journalSource(), memberService.journalSource(), lendingService.journalSource()
+        };
+    }
+    
+    /**
+     * Returns the number of distinct titles and authors the catalog dictionary holds.
+     */
+    public int catalogDictionarySize() {
+        return bookService.dictionarySize();
+    }
+    
+    /**
+     * Loads {@code count} distinct books with {@code copies} copies each and returns their IDs.
+     */
+    public String[] seedBooks(int count, int copies) {
+        List<BookImportDTO> chunk = new ArrayList<>(IMPORT_CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(new BookImportDTO("Seed Title " + i, "Seed Author " + (i % 1000), copies));
+            if (chunk.size() == IMPORT_CHUNK) {
+                bookService.importBooks(chunk);
+                chunk.clear();
+            }
+        }
+        bookService.importBooks(chunk);
+        return bookService.streamBooks().map(book -> book.getId()).toArray(String[]::new);
+    }
+    
+    /**
+     * Registers {@code count} members and returns their IDs.
+     */
+    public String[] seedMembers(int count) {
+        List<MemberRequestDTO> chunk = new ArrayList<>(IMPORT_CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(new MemberRequestDTO("Seed Member " + i, "seed" + i + "@library.test"));
+            if (chunk.size() == IMPORT_CHUNK) {
+                memberService.importMembers(chunk);
+                chunk.clear();
+            }
+        }
+        memberService.importMembers(chunk);
+        return memberService.streamMembers().map(member -> member.getId()).toArray(String[]::new);
+    }
+}
@@ -498,13 +498,26 @@ function populateMemberDropdown() {
         ).join('');
 }
 
-function filterBooks(searchTerm) {
-    const filteredBooks = books.filter(book => 
-        book.title.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        book.author.toLowerCase().includes(searchTerm.toLowerCase())
-    );
+let bookSearchSeq = 0;
+
+async function filterBooks(searchTerm) {
+    const query = searchTerm.trim();
+    const seq = ++bookSearchSeq;
+    
+    if (!query) {
+        renderFilteredBooks(books);
+        return;
+    }
     
-    renderFilteredBooks(filteredBooks);
+    try {
+        const results = await apiCall(`/books/search?q=${encodeURIComponent(query)}&limit=100`);
+        // Ignore responses that arrive after a newer keystroke
+        if (seq === bookSearchSeq) {
+            renderFilteredBooks(results);
+        }
+    } catch (error) {
+        // apiCall already reported the error
+    }
 }
 
 function filterMembers(searchTerm) {
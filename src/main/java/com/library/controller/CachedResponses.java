@@ -0,0 +1,71 @@
+package com.library.controller;
+
+import com.library.service.BookResponseCache;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Builds responses from cached catalog bodies, shared by the blocking and non-blocking controllers.
+ */
+final class CachedResponses {
+    
+    private CachedResponses() {}
+    
+    // Answers a conditional GET from the cached validators (304, nothing serialized), or writes the cached bytes.
+    // no-cache lets clients keep the body but makes them revalidate, since copy counts change all the time.
+    static Response of(BookResponseCache.CachedResponse cached, HttpHeaders headers) {
+        EntityTag etag = new EntityTag(cached.etag());
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        if (notModified(cached, headers)) {
+            return Response.notModified(etag).lastModified(cached.lastModified()).cacheControl(cacheControl).build();
+        }
+        return Response.ok(cached.body(), MediaType.APPLICATION_JSON)
+                .tag(etag)
+                .lastModified(cached.lastModified())
+                .cacheControl(cacheControl)
+                .build();
+    }
+    
+    // The ETag decides whenever the client sent one, and If-Modified-Since is then ignored. Dates have
+    // one-second resolution, so a body can change within the second its Last-Modified names: a date
+    // alone only answers 304 if it is later than that second, never when the two are equal.
+    private static boolean notModified(BookResponseCache.CachedResponse cached, HttpHeaders headers) {
+        String ifNoneMatch = headers.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, cached.etag());
+        }
+        String ifModifiedSince = headers.getHeaderString(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return cached.lastModified().getTime() / 1000 < since;
+        } catch (DateTimeParseException e) {
+            // An unparseable date is ignored, as if it had not been sent
+            return false;
+        }
+    }
+    
+    // Weak comparison, as If-None-Match uses: W/ prefixes are ignored
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals('"' + etag + '"')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
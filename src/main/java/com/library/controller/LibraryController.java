@@ -1,26 +1,47 @@
 package com.library.controller;
 
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BatchLendingRequestDTO;
+import com.library.dto.BatchResultDTO;
+import com.library.dto.BatchReturnRequestDTO;
 import com.library.dto.BookRequestDTO;
 import com.library.dto.BookResponseDTO;
 import com.library.dto.MemberRequestDTO;
 import com.library.dto.MemberResponseDTO;
 import com.library.dto.LendingRequestDTO;
 import com.library.dto.LendingResponseDTO;
+import com.library.exception.ErrorCode;
+import com.library.execution.MutationExecutor;
+import com.library.service.BookResponseCache;
 import com.library.service.BookService;
+import com.library.service.BulkImportService;
 import com.library.service.MemberService;
 import com.library.service.LendingService;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.jboss.logging.Logger;
 
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Path("/api")
 @Produces(MediaType.APPLICATION_JSON)
@@ -30,6 +51,10 @@ public class LibraryController {
     
     private static final Logger LOG = Logger.getLogger(LibraryController.class);
     
+    // Newline-delimited JSON: one record per line, written out incrementally
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String TEXT_CSV = "text/csv";
+    
     @Inject
     BookService bookService;
     
@@ -39,19 +64,53 @@ public class LibraryController {
     @Inject
     LendingService lendingService;
     
+    @Inject
+    BulkImportService bulkImportService;
+    
+    @Inject
+    BookResponseCache bookResponseCache;
+    
+    @Inject
+    MutationExecutor mutations;
+    
+    @Inject
+    Jsonb jsonb;
+    
     // ==========================================
     // BOOK MANAGEMENT ENDPOINTS
     // ==========================================
     
     @GET
     @Path("/books")
-    @Operation(summary = "Get all books", description = "Retrieve a list of all books in the library")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Operation(summary = "Get all books", description = "Retrieve a list of all books in the library. Pass limit and/or cursor for a cursor-based page, or Accept: application/x-ndjson to stream records")
     @APIResponses(value = {
-        @APIResponse(responseCode = "200", description = "Successfully retrieved all books")
+        @APIResponse(responseCode = "200", description = "Successfully retrieved all books"),
+        @APIResponse(responseCode = "304", description = "Catalog unchanged since the ETag or date the client sent"),
+        @APIResponse(responseCode = "400", description = "Invalid limit or cursor")
     })
-    public Response getAllBooks() {
-        LOG.info("Retrieving all books");
-        List<BookResponseDTO> books = bookService.getAllBooks();
+    public Response getAllBooks(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                       @Context HttpHeaders headers) {
+        LOG.debug("Retrieving all books");
+        if (acceptsNdjson(headers)) {
+            return ndjson(bookService.streamBooks());
+        }
+        if (limit != null || cursor != null) {
+            return CachedResponses.of(bookResponseCache.booksPage(cursor, limit), headers);
+        }
+        return CachedResponses.of(bookResponseCache.allBooks(), headers);
+    }
+    
+    @GET
+    @Path("/books/search")
+    @Operation(summary = "Search books", description = "Full-text search over book titles and authors. Every word must match a whole word or the start of one; results are ranked with title matches first")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Matching books, best match first"),
+        @APIResponse(responseCode = "400", description = "Missing query or invalid limit")
+    })
+    public Response searchBooks(@QueryParam("q") String query, @QueryParam("limit") Integer limit) {
+        LOG.debugf("Searching books: %s", query);
+        List<BookResponseDTO> books = bookService.searchBooks(query, limit);
         return Response.ok(books).build();
     }
     
@@ -60,12 +119,12 @@ public class LibraryController {
     @Operation(summary = "Get book by ID", description = "Retrieve a specific book by its ID")
     @APIResponses(value = {
         @APIResponse(responseCode = "200", description = "Book found successfully"),
+        @APIResponse(responseCode = "304", description = "Book unchanged since the ETag or date the client sent"),
         @APIResponse(responseCode = "404", description = "Book not found")
     })
-    public Response getBookById(@PathParam("id") String id) {
-        LOG.info("Retrieving book with ID: " + id);
-        BookResponseDTO book = bookService.getBookById(id);
-        return Response.ok(book).build();
+    public Response getBookById(@PathParam("id") String id, @Context HttpHeaders headers) {
+        LOG.debugf("Retrieving book with ID: %s", id);
+        return CachedResponses.of(bookResponseCache.book(id), headers);
     }
     
     @POST
@@ -75,10 +134,26 @@ public class LibraryController {
         @APIResponse(responseCode = "201", description = "Book created successfully"),
         @APIResponse(responseCode = "400", description = "Invalid book data")
     })
-    public Response createBook(@Valid BookRequestDTO bookRequestDTO) {
-        LOG.info("Creating new book: " + bookRequestDTO);
-        BookResponseDTO book = bookService.createBook(bookRequestDTO);
-        return Response.status(Response.Status.CREATED).entity(book).build();
+    public Uni<Response> createBook(@Valid BookRequestDTO bookRequestDTO) {
+        LOG.debugf("Creating new book: %s", bookRequestDTO);
+        return mutations.run(() -> {
+            BookResponseDTO book = bookService.createBook(bookRequestDTO);
+            return Response.status(Response.Status.CREATED).entity(book).build();
+        });
+    }
+    
+    @POST
+    @Path("/books/bulk")
+    @Consumes({APPLICATION_NDJSON, TEXT_CSV})
+    @Operation(summary = "Bulk import books", description = "Stream books as NDJSON ({\"title\", \"author\", \"quantity\"} per line) or CSV (title,author[,quantity]). Rows are validated and applied in chunks; rejected rows are reported with their line numbers")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Import finished, see the result for per-row errors")
+    })
+    @Blocking // Keeps the body a stream instead of buffering all of it before the call
+    public Uni<Response> importBooks(InputStream body, @Context HttpHeaders headers) {
+        LOG.debug("Bulk importing books");
+        BulkImportService.Format format = BulkImportService.Format.of(headers.getMediaType());
+        return mutations.run(() -> Response.ok(bulkImportService.importBooks(body, format)).build());
     }
     
     @PUT
@@ -88,23 +163,46 @@ public class LibraryController {
         @APIResponse(responseCode = "200", description = "Book updated successfully"),
         @APIResponse(responseCode = "404", description = "Book not found")
     })
-    public Response updateBook(@PathParam("id") String id, @Valid BookRequestDTO bookRequestDTO) {
-        LOG.info("Updating book with ID: " + id);
-        BookResponseDTO book = bookService.updateBook(id, bookRequestDTO);
-        return Response.ok(book).build();
+    public Uni<Response> updateBook(@PathParam("id") String id, @Valid BookRequestDTO bookRequestDTO) {
+        LOG.debugf("Updating book with ID: %s", id);
+        return mutations.run(() -> {
+            BookResponseDTO book = bookService.updateBook(id, bookRequestDTO);
+            return Response.ok(book).build();
+        });
     }
     
     @DELETE
     @Path("/books/{id}")
-    @Operation(summary = "Delete book", description = "Delete a book from the library")
+    @Operation(summary = "Delete book", description = "Delete a book from the library. A book that is lent out is only deleted with cascade=true, which ends its active lendings")
     @APIResponses(value = {
         @APIResponse(responseCode = "204", description = "Book deleted successfully"),
+        @APIResponse(responseCode = "404", description = "Book not found"),
+        @APIResponse(responseCode = "409", description = "Book has active lendings and cascade was not requested")
+    })
+    public Uni<Response> deleteBook(@PathParam("id") String id, @QueryParam("cascade") boolean cascade) {
+        LOG.debugf("Deleting book with ID: %s, cascade: %s", id, cascade);
+        return mutations.run(() -> {
+            if (cascade) {
+                lendingService.deleteBookCascade(id);
+            } else {
+                bookService.deleteBook(id);
+            }
+            return Response.noContent().build();
+        });
+    }
+    
+    @GET
+    @Path("/books/{id}/lendings")
+    @Operation(summary = "Get lendings for a book", description = "Retrieve the lendings of a specific book, optionally filtered by status (active, returned or all)")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Successfully retrieved lendings for the book"),
+        @APIResponse(responseCode = "400", description = "Invalid status filter"),
         @APIResponse(responseCode = "404", description = "Book not found")
     })
-    public Response deleteBook(@PathParam("id") String id) {
-        LOG.info("Deleting book with ID: " + id);
-        bookService.deleteBook(id);
-        return Response.noContent().build();
+    public Response getBookLendings(@PathParam("id") String id, @QueryParam("status") String status) {
+        LOG.debugf("Retrieving lendings for book ID: %s", id);
+        List<LendingResponseDTO> lendings = lendingService.getLendingsByBook(id, status);
+        return Response.ok(lendings).build();
     }
     
     // ==========================================
@@ -113,14 +211,23 @@ public class LibraryController {
     
     @GET
     @Path("/members")
-    @Operation(summary = "Get all members", description = "Retrieve a list of all library members")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Operation(summary = "Get all members", description = "Retrieve a list of all library members. Pass limit and/or cursor for a cursor-based page, or Accept: application/x-ndjson to stream records")
     @APIResponses(value = {
-        @APIResponse(responseCode = "200", description = "Successfully retrieved all members")
+        @APIResponse(responseCode = "200", description = "Successfully retrieved all members"),
+        @APIResponse(responseCode = "400", description = "Invalid limit or cursor")
     })
-    public Response getAllMembers() {
-        LOG.info("Retrieving all members");
+    public Response getAllMembers(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                       @Context HttpHeaders headers) {
+        LOG.debug("Retrieving all members");
+        if (acceptsNdjson(headers)) {
+            return ndjson(memberService.streamMembers());
+        }
+        if (limit != null || cursor != null) {
+            return Response.ok(memberService.getMembersPage(cursor, limit), MediaType.APPLICATION_JSON).build();
+        }
         List<MemberResponseDTO> members = memberService.getAllMembers();
-        return Response.ok(members).build();
+        return Response.ok(members, MediaType.APPLICATION_JSON).build();
     }
     
     @GET
@@ -131,7 +238,7 @@ public class LibraryController {
         @APIResponse(responseCode = "404", description = "Member not found")
     })
     public Response getMemberById(@PathParam("id") String id) {
-        LOG.info("Retrieving member with ID: " + id);
+        LOG.debugf("Retrieving member with ID: %s", id);
         MemberResponseDTO member = memberService.getMemberById(id);
         return Response.ok(member).build();
     }
@@ -144,10 +251,26 @@ public class LibraryController {
         @APIResponse(responseCode = "400", description = "Invalid member data"),
         @APIResponse(responseCode = "409", description = "Member already exists")
     })
-    public Response createMember(@Valid MemberRequestDTO memberRequestDTO) {
-        LOG.info("Creating new member: " + memberRequestDTO);
-        MemberResponseDTO member = memberService.createMember(memberRequestDTO);
-        return Response.status(Response.Status.CREATED).entity(member).build();
+    public Uni<Response> createMember(@Valid MemberRequestDTO memberRequestDTO) {
+        LOG.debugf("Creating new member: %s", memberRequestDTO);
+        return mutations.run(() -> {
+            MemberResponseDTO member = memberService.createMember(memberRequestDTO);
+            return Response.status(Response.Status.CREATED).entity(member).build();
+        });
+    }
+    
+    @POST
+    @Path("/members/bulk")
+    @Consumes({APPLICATION_NDJSON, TEXT_CSV})
+    @Operation(summary = "Bulk import members", description = "Stream members as NDJSON ({\"name\", \"email\"} per line) or CSV (name,email). Rows are validated and applied in chunks; rejected rows are reported with their line numbers")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Import finished, see the result for per-row errors")
+    })
+    @Blocking // Keeps the body a stream instead of buffering all of it before the call
+    public Uni<Response> importMembers(InputStream body, @Context HttpHeaders headers) {
+        LOG.debug("Bulk importing members");
+        BulkImportService.Format format = BulkImportService.Format.of(headers.getMediaType());
+        return mutations.run(() -> Response.ok(bulkImportService.importMembers(body, format)).build());
     }
     
     @PUT
@@ -158,23 +281,46 @@ public class LibraryController {
         @APIResponse(responseCode = "404", description = "Member not found"),
         @APIResponse(responseCode = "409", description = "Email already exists")
     })
-    public Response updateMember(@PathParam("id") String id, @Valid MemberRequestDTO memberRequestDTO) {
-        LOG.info("Updating member with ID: " + id);
-        MemberResponseDTO member = memberService.updateMember(id, memberRequestDTO);
-        return Response.ok(member).build();
+    public Uni<Response> updateMember(@PathParam("id") String id, @Valid MemberRequestDTO memberRequestDTO) {
+        LOG.debugf("Updating member with ID: %s", id);
+        return mutations.run(() -> {
+            MemberResponseDTO member = memberService.updateMember(id, memberRequestDTO);
+            return Response.ok(member).build();
+        });
     }
     
     @DELETE
     @Path("/members/{id}")
-    @Operation(summary = "Delete member", description = "Remove a member from the library")
+    @Operation(summary = "Delete member", description = "Remove a member from the library. A member with books out is only removed with cascade=true, which returns their books")
     @APIResponses(value = {
         @APIResponse(responseCode = "204", description = "Member deleted successfully"),
+        @APIResponse(responseCode = "404", description = "Member not found"),
+        @APIResponse(responseCode = "409", description = "Member has active lendings and cascade was not requested")
+    })
+    public Uni<Response> deleteMember(@PathParam("id") String id, @QueryParam("cascade") boolean cascade) {
+        LOG.debugf("Deleting member with ID: %s, cascade: %s", id, cascade);
+        return mutations.run(() -> {
+            if (cascade) {
+                lendingService.deleteMemberCascade(id);
+            } else {
+                memberService.deleteMember(id);
+            }
+            return Response.noContent().build();
+        });
+    }
+    
+    @GET
+    @Path("/members/{id}/lendings")
+    @Operation(summary = "Get lendings for a member", description = "Retrieve the lendings of a specific member, optionally filtered by status (active, returned or all)")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Successfully retrieved lendings for the member"),
+        @APIResponse(responseCode = "400", description = "Invalid status filter"),
         @APIResponse(responseCode = "404", description = "Member not found")
     })
-    public Response deleteMember(@PathParam("id") String id) {
-        LOG.info("Deleting member with ID: " + id);
-        memberService.deleteMember(id);
-        return Response.noContent().build();
+    public Response getMemberLendings(@PathParam("id") String id, @QueryParam("status") String status) {
+        LOG.debugf("Retrieving lendings for member ID: %s", id);
+        List<LendingResponseDTO> lendings = lendingService.getLendingsByMember(id, status);
+        return Response.ok(lendings).build();
     }
     
     // ==========================================
@@ -183,14 +329,35 @@ public class LibraryController {
     
     @GET
     @Path("/lending")
-    @Operation(summary = "Get all lendings", description = "Retrieve a list of all book lendings")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Operation(summary = "Get all lendings", description = "Retrieve a list of all book lendings. Pass limit and/or cursor for a cursor-based page, or Accept: application/x-ndjson to stream records")
     @APIResponses(value = {
-        @APIResponse(responseCode = "200", description = "Successfully retrieved all lendings")
+        @APIResponse(responseCode = "200", description = "Successfully retrieved all lendings"),
+        @APIResponse(responseCode = "400", description = "Invalid limit or cursor")
     })
-    public Response getAllLendings() {
-        LOG.info("Retrieving all lendings");
+    public Response getAllLendings(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                       @Context HttpHeaders headers) {
+        LOG.debug("Retrieving all lendings");
+        if (acceptsNdjson(headers)) {
+            return ndjson(lendingService.streamLendings());
+        }
+        if (limit != null || cursor != null) {
+            return Response.ok(lendingService.getLendingsPage(cursor, limit), MediaType.APPLICATION_JSON).build();
+        }
         List<LendingResponseDTO> lendings = lendingService.getAllLendings();
-        return Response.ok(lendings).build();
+        return Response.ok(lendings, MediaType.APPLICATION_JSON).build();
+    }
+    
+    @GET
+    @Path("/lending/overdue")
+    @Operation(summary = "Get overdue lendings", description = "Retrieve the unreturned lendings whose due date has passed, oldest first")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Successfully retrieved overdue lendings")
+    })
+    public Response getOverdueLendings() {
+        LOG.debug("Retrieving overdue lendings");
+        List<LendingResponseDTO> overdue = lendingService.getOverdueLendings();
+        return Response.ok(overdue).build();
     }
     
     @GET
@@ -201,7 +368,7 @@ public class LibraryController {
         @APIResponse(responseCode = "404", description = "Lending not found")
     })
     public Response getLendingById(@PathParam("id") String id) {
-        LOG.info("Retrieving lending with ID: " + id);
+        LOG.debugf("Retrieving lending with ID: %s", id);
         LendingResponseDTO lending = lendingService.getLendingById(id);
         return Response.ok(lending).build();
     }
@@ -214,11 +381,44 @@ public class LibraryController {
         @APIResponse(responseCode = "400", description = "Invalid lending data or book not available"),
         @APIResponse(responseCode = "404", description = "Book or member not found")
     })
-    public Response lendBook(@Valid LendingRequestDTO lendingRequestDTO) {
-        LOG.info("Lending book. Book ID: " + lendingRequestDTO.getBookId() + 
-                ", Member ID: " + lendingRequestDTO.getMemberId());
-        LendingResponseDTO lending = lendingService.lendBook(lendingRequestDTO);
-        return Response.status(Response.Status.CREATED).entity(lending).build();
+    public Uni<Response> lendBook(@Valid LendingRequestDTO lendingRequestDTO) {
+        LOG.debugf("Lending book. Book ID: %s, Member ID: %s", lendingRequestDTO.getBookId(), lendingRequestDTO.getMemberId());
+        return mutations.run(() -> {
+            LendingResponseDTO lending = lendingService.lendBook(lendingRequestDTO);
+            return Response.status(Response.Status.CREATED).entity(lending).build();
+        });
+    }
+    
+    @POST
+    @Path("/lending/batch")
+    @Operation(summary = "Lend several books", description = "Lend a stack of books to one member, all or nothing. List a book twice to lend two copies. If any book is missing or unavailable, nothing is lent and the per-item results say why")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "201", description = "All books lent, see the per-item results"),
+        @APIResponse(responseCode = "400", description = "Invalid request or a book not available; nothing was lent"),
+        @APIResponse(responseCode = "404", description = "Member or a book not found; nothing was lent")
+    })
+    public Uni<Response> lendBooks(@Valid BatchLendingRequestDTO batchLendingRequestDTO) {
+        LOG.debugf("Lending %d books to member ID: %s", batchLendingRequestDTO.getBookIds().size(), batchLendingRequestDTO.getMemberId());
+        return mutations.run(() -> {
+            BatchResultDTO result = lendingService.lendBooks(batchLendingRequestDTO.getMemberId(), batchLendingRequestDTO.getBookIds());
+            return batchResponse(result, Response.Status.CREATED);
+        });
+    }
+    
+    @POST
+    @Path("/lending/returns/batch")
+    @Operation(summary = "Return several books", description = "Return a stack of lendings, all or nothing. Lendings already returned are reported as such; if any lending ID is unknown, nothing is returned")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "All lendings returned, see the per-item results"),
+        @APIResponse(responseCode = "400", description = "Invalid request"),
+        @APIResponse(responseCode = "404", description = "A lending not found; nothing was returned")
+    })
+    public Uni<Response> returnBooks(@Valid BatchReturnRequestDTO batchReturnRequestDTO) {
+        LOG.debugf("Returning %d lendings", batchReturnRequestDTO.getLendingIds().size());
+        return mutations.run(() -> {
+            BatchResultDTO result = lendingService.returnBooks(batchReturnRequestDTO.getLendingIds());
+            return batchResponse(result, Response.Status.OK);
+        });
     }
     
     @POST
@@ -228,21 +428,97 @@ public class LibraryController {
         @APIResponse(responseCode = "200", description = "Book returned successfully"),
         @APIResponse(responseCode = "404", description = "Lending not found")
     })
-    public Response returnBook(@PathParam("id") String id) {
-        LOG.info("Returning book for lending ID: " + id);
-        lendingService.returnBook(id);
-        return Response.ok().entity("{\"message\": \"Book returned successfully\"}").build();
+    public Uni<Response> returnBook(@PathParam("id") String id) {
+        LOG.debugf("Returning book for lending ID: %s", id);
+        return mutations.run(() -> {
+            lendingService.returnBook(id);
+            return Response.ok().entity("{\"message\": \"Book returned successfully\"}").build();
+        });
     }
     
     @GET
     @Path("/lending/history")
-    @Operation(summary = "Get lending history", description = "Retrieve the complete lending history")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Operation(summary = "Get lending history", description = "Retrieve the complete lending history. Pass from and/or to (yyyy-MM-dd or yyyy-MM-dd HH:mm:ss; from inclusive, to exclusive) for the lendings made in that range, oldest first. Pass limit and/or cursor for a cursor-based page, or Accept: application/x-ndjson to stream records")
     @APIResponses(value = {
-        @APIResponse(responseCode = "200", description = "Successfully retrieved lending history")
+        @APIResponse(responseCode = "200", description = "Successfully retrieved lending history"),
+        @APIResponse(responseCode = "400", description = "Invalid limit, cursor or date range")
     })
-    public Response getLendingHistory() {
-        LOG.info("Retrieving lending history");
+    public Response getLendingHistory(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                       @QueryParam("from") String from, @QueryParam("to") String to,
+                       @Context HttpHeaders headers) {
+        LOG.debug("Retrieving lending history");
+        if (from != null || to != null) {
+            if (acceptsNdjson(headers)) {
+                return ndjson(lendingService.streamLendingHistory(from, to));
+            }
+            if (limit != null || cursor != null) {
+                return Response.ok(lendingService.getLendingHistoryPage(from, to, cursor, limit), MediaType.APPLICATION_JSON).build();
+            }
+            return Response.ok(lendingService.getLendingHistory(from, to), MediaType.APPLICATION_JSON).build();
+        }
+        if (acceptsNdjson(headers)) {
+            return ndjson(lendingService.streamLendings());
+        }
+        if (limit != null || cursor != null) {
+            return Response.ok(lendingService.getLendingsPage(cursor, limit), MediaType.APPLICATION_JSON).build();
+        }
         List<LendingResponseDTO> history = lendingService.getLendingHistory();
-        return Response.ok(history).build();
+        return Response.ok(history, MediaType.APPLICATION_JSON).build();
+    }
+    
+    // ==========================================
+    // BATCH HELPERS
+    // ==========================================
+    
+    // A rolled-back batch is answered with the status of its first failed item, and the per-item results as body
+    private static Response batchResponse(BatchResultDTO result, Response.Status success) {
+        if (result.isApplied()) {
+            return Response.status(success).entity(result).build();
+        }
+        Response.Status status = Response.Status.BAD_REQUEST;
+        for (BatchItemResultDTO item : result.getItems()) {
+            if (BatchItemResultDTO.FAILED.equals(item.getStatus())) {
+                status = ErrorCode.valueOf(item.getCode()).status();
+                break;
+            }
+        }
+        return Response.status(status).entity(result).build();
+    }
+    
+    // ==========================================
+    // STREAMING HELPERS
+    // ==========================================
+    
+    // NDJSON is only used when the client asks for it explicitly; wildcards keep the JSON array response
+    private static boolean acceptsNdjson(HttpHeaders headers) {
+        for (MediaType mediaType : headers.getAcceptableMediaTypes()) {
+            if (mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+                return false;
+            }
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+            if (mediaType.isCompatible(MediaType.valueOf(APPLICATION_NDJSON))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Writes one JSON document per line as the stream is consumed, so memory stays bounded
+    private Response ndjson(Stream<?> records) {
+        StreamingOutput output = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try (records) {
+                Iterator<?> iterator = records.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(jsonb.toJson(iterator.next()));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        };
+        return Response.ok(output, APPLICATION_NDJSON).build();
     }
 }
@@ -0,0 +1,112 @@
+package com.library.controller;
+
+import com.library.dto.BookResponseDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.dto.MemberResponseDTO;
+import com.library.service.BookResponseCache;
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+/**
+ * Non-blocking variants of the read endpoints. Returning {@link Uni} or {@link Multi} makes Quarkus REST
+ * run these methods on the I/O thread that received the request, skipping the hand-off to a worker
+ * thread. That is only safe because the lookups below never block: they read the in-memory stores
+ * and never touch the journal. Anything that writes stays on the blocking {@link LibraryController}.
+ */
+@Path("/api/rx")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Library Management System (non-blocking)", description = "Event-loop variants of the read-only lookups")
+public class ReactiveLibraryController {
+    
+    private static final Logger LOG = Logger.getLogger(ReactiveLibraryController.class);
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Inject
+    BookResponseCache bookResponseCache;
+    
+    @GET
+    @Path("/books")
+    @Operation(summary = "Stream all books", description = "Write every book as a JSON array, element by element, from the I/O thread")
+    @APIResponse(responseCode = "200", description = "Successfully retrieved all books")
+    public Multi<BookResponseDTO> getAllBooks() {
+        LOG.debug("Streaming all books");
+        return Multi.createFrom().items(bookService::streamBooks);
+    }
+    
+    @GET
+    @Path("/books/{id}")
+    @Operation(summary = "Get book by ID", description = "Retrieve a specific book by its ID; supports If-None-Match and If-Modified-Since")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Book found successfully"),
+        @APIResponse(responseCode = "304", description = "Book unchanged since the ETag or date the client sent"),
+        @APIResponse(responseCode = "404", description = "Book not found")
+    })
+    public Uni<Response> getBookById(@PathParam("id") String id, @Context HttpHeaders headers) {
+        LOG.debugf("Retrieving book with ID: %s", id);
+        return Uni.createFrom().item(() -> CachedResponses.of(bookResponseCache.book(id), headers));
+    }
+    
+    @GET
+    @Path("/members")
+    @Operation(summary = "Stream all members", description = "Write every member as a JSON array, element by element, from the I/O thread")
+    @APIResponse(responseCode = "200", description = "Successfully retrieved all members")
+    public Multi<MemberResponseDTO> getAllMembers() {
+        LOG.debug("Streaming all members");
+        return Multi.createFrom().items(memberService::streamMembers);
+    }
+    
+    @GET
+    @Path("/members/{id}")
+    @Operation(summary = "Get member by ID", description = "Retrieve a specific member by their ID")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Member found successfully"),
+        @APIResponse(responseCode = "404", description = "Member not found")
+    })
+    public Uni<MemberResponseDTO> getMemberById(@PathParam("id") String id) {
+        LOG.debugf("Retrieving member with ID: %s", id);
+        return Uni.createFrom().item(() -> memberService.getMemberById(id));
+    }
+    
+    @GET
+    @Path("/lending")
+    @Operation(summary = "Stream all lendings", description = "Write every lending as a JSON array, element by element, from the I/O thread")
+    @APIResponse(responseCode = "200", description = "Successfully retrieved all lendings")
+    public Multi<LendingResponseDTO> getAllLendings() {
+        LOG.debug("Streaming all lendings");
+        return Multi.createFrom().items(lendingService::streamLendings);
+    }
+    
+    @GET
+    @Path("/lending/{id}")
+    @Operation(summary = "Get lending by ID", description = "Retrieve a specific lending by its ID")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Lending found successfully"),
+        @APIResponse(responseCode = "404", description = "Lending not found")
+    })
+    public Uni<LendingResponseDTO> getLendingById(@PathParam("id") String id) {
+        LOG.debugf("Retrieving lending with ID: %s", id);
+        return Uni.createFrom().item(() -> lendingService.getLendingById(id));
+    }
+}
@@ -1,5 +1,9 @@
 package com.library.controller;
 
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -13,11 +17,20 @@ import java.util.Map;
 public class WelcomeController {
     
     private static final Logger LOG = Logger.getLogger(WelcomeController.class);
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
 
     @GET
     @Produces(MediaType.TEXT_HTML)
     public String welcome() {
-        LOG.info("Welcome page accessed");
+        LOG.debug("Welcome page accessed");
         return """
             <!DOCTYPE html>
             <html lang="en">
@@ -135,20 +148,21 @@ public class WelcomeController {
     @Path("/api")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, Object> apiInfo() {
-        LOG.info("API info endpoint accessed");
+        LOG.debug("API info endpoint accessed");
         Map<String, Object> info = new HashMap<>();
         info.put("name", "Library Management System API");
         info.put("version", "1.0.0");
         info.put("description", "RESTful API for managing library books, members, and lending");
         info.put("frontend", "http://localhost:8000");
         info.put("documentation", "/swagger-ui");
-        info.put("books_loaded", "20 books pre-loaded");
+        info.put("books_loaded", bookService.countBooks() + " books loaded");
         
         Map<String, String> endpoints = new HashMap<>();
         endpoints.put("books", "/api/books");
         endpoints.put("members", "/api/members");
         endpoints.put("lending", "/api/lending");
         endpoints.put("lending_history", "/api/lending/history");
+        endpoints.put("metrics", "/q/metrics");
         info.put("endpoints", endpoints);
         
         return info;
@@ -158,12 +172,14 @@ public class WelcomeController {
     @Path("/health")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, Object> health() {
-        LOG.info("Health check endpoint accessed");
+        LOG.debug("Health check endpoint accessed");
         Map<String, Object> health = new HashMap<>();
         health.put("status", "UP");
         health.put("timestamp", System.currentTimeMillis());
         health.put("service", "Library Management System");
-        health.put("books_loaded", "20 books available");
+        health.put("books_loaded", bookService.countBooks() + " books available");
+        health.put("members", memberService.countMembers());
+        health.put("active_lendings", lendingService.countActiveLendings());
         return health;
     }
 }
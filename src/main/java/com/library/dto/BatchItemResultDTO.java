@@ -0,0 +1,79 @@
+package com.library.dto;
+
+public class BatchItemResultDTO {
+    
+    // Outcome of one batch item
+    public static final String LENT = "LENT";
+    public static final String RETURNED = "RETURNED";
+    public static final String ALREADY_RETURNED = "ALREADY_RETURNED";
+    public static final String FAILED = "FAILED";
+    // The item itself was fine, but the batch was rolled back because another item failed
+    public static final String NOT_APPLIED = "NOT_APPLIED";
+    
+    private String id; // book ID for lends, lending ID for returns
+    private String status;
+    private LendingResponseDTO lending;
+    private String error;
+    private String code;
+    
+    // Constructors
+    public BatchItemResultDTO() {}
+    
+    public BatchItemResultDTO(String id, String status, LendingResponseDTO lending, String error, String code) {
+        this.id = id;
+        this.status = status;
+        this.lending = lending;
+        this.error = error;
+        this.code = code;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public LendingResponseDTO getLending() {
+        return lending;
+    }
+    
+    public void setLending(LendingResponseDTO lending) {
+        this.lending = lending;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public void setCode(String code) {
+        this.code = code;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchItemResultDTO{" +
+                "id='" + id + '\'' +
+                ", status='" + status + '\'' +
+                ", code='" + code + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchLendingRequestDTO {
+    
+    @NotBlank(message = "Member ID is required")
+    private String memberId;
+    
+    // One entry per copy: a book listed twice lends two copies
+    @NotEmpty(message = "At least one book ID is required")
+    @Size(max = 100, message = "At most 100 books can be lent in one batch")
+    private List<@NotBlank(message = "Book ID is required") String> bookIds;
+    
+    // Constructors
+    public BatchLendingRequestDTO() {}
+    
+    public BatchLendingRequestDTO(String memberId, List<String> bookIds) {
+        this.memberId = memberId;
+        this.bookIds = bookIds;
+    }
+    
+    // Getters and Setters
+    public String getMemberId() {
+        return memberId;
+    }
+    
+    public void setMemberId(String memberId) {
+        this.memberId = memberId;
+    }
+    
+    public List<String> getBookIds() {
+        return bookIds;
+    }
+    
+    public void setBookIds(List<String> bookIds) {
+        this.bookIds = bookIds;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchLendingRequestDTO{" +
+                "memberId='" + memberId + '\'' +
+                ", bookIds=" + bookIds +
+                '}';
+    }
+}
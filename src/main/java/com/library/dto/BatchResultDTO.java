@@ -0,0 +1,43 @@
+package com.library.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchResultDTO {
+    
+    private boolean applied; // false if any item failed and the whole batch was rolled back
+    private List<BatchItemResultDTO> items = new ArrayList<>();
+    
+    // Constructors
+    public BatchResultDTO() {}
+    
+    public BatchResultDTO(boolean applied, List<BatchItemResultDTO> items) {
+        this.applied = applied;
+        this.items = items;
+    }
+    
+    // Getters and Setters
+    public boolean isApplied() {
+        return applied;
+    }
+    
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+    
+    public List<BatchItemResultDTO> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<BatchItemResultDTO> items) {
+        this.items = items;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchResultDTO{" +
+                "applied=" + applied +
+                ", items=" + items.size() +
+                '}';
+    }
+}
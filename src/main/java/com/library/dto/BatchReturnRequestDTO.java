@@ -0,0 +1,37 @@
+package com.library.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchReturnRequestDTO {
+    
+    @NotEmpty(message = "At least one lending ID is required")
+    @Size(max = 100, message = "At most 100 books can be returned in one batch")
+    private List<@NotBlank(message = "Lending ID is required") String> lendingIds;
+    
+    // Constructors
+    public BatchReturnRequestDTO() {}
+    
+    public BatchReturnRequestDTO(List<String> lendingIds) {
+        this.lendingIds = lendingIds;
+    }
+    
+    // Getters and Setters
+    public List<String> getLendingIds() {
+        return lendingIds;
+    }
+    
+    public void setLendingIds(List<String> lendingIds) {
+        this.lendingIds = lendingIds;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchReturnRequestDTO{" +
+                "lendingIds=" + lendingIds +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package com.library.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+public class BookImportDTO {
+    
+    @NotBlank(message = "Title is required")
+    private String title;
+    
+    @NotBlank(message = "Author is required")
+    private String author;
+    
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 1000000, message = "Quantity must be at most 1000000")
+    private int quantity = 1;
+    
+    // Constructors
+    public BookImportDTO() {}
+    
+    public BookImportDTO(String title, String author, int quantity) {
+        this.title = title;
+        this.author = author;
+        this.quantity = quantity;
+    }
+    
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+    
+    @Override
+    public String toString() {
+        return "BookImportDTO{" +
+                "title='" + title + '\'' +
+                ", author='" + author + '\'' +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
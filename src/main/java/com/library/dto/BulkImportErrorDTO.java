@@ -0,0 +1,40 @@
+package com.library.dto;
+
+public class BulkImportErrorDTO {
+    
+    private long line;
+    private String message;
+    
+    // Constructors
+    public BulkImportErrorDTO() {}
+    
+    public BulkImportErrorDTO(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+    
+    // Getters and Setters
+    public long getLine() {
+        return line;
+    }
+    
+    public void setLine(long line) {
+        this.line = line;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkImportErrorDTO{" +
+                "line=" + line +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.library.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResultDTO {
+    
+    private long received;
+    private long imported;
+    private long failed;
+    private List<BulkImportErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated; // true if more rows failed than are listed in errors
+    
+    // Constructors
+    public BulkImportResultDTO() {}
+    
+    // Getters and Setters
+    public long getReceived() {
+        return received;
+    }
+    
+    public void setReceived(long received) {
+        this.received = received;
+    }
+    
+    public long getImported() {
+        return imported;
+    }
+    
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+    
+    public List<BulkImportErrorDTO> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<BulkImportErrorDTO> errors) {
+        this.errors = errors;
+    }
+    
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+    
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkImportResultDTO{" +
+                "received=" + received +
+                ", imported=" + imported +
+                ", failed=" + failed +
+                ", errorsTruncated=" + errorsTruncated +
+                '}';
+    }
+}
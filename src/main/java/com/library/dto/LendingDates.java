@@ -0,0 +1,35 @@
+package com.library.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversion between the epoch-millisecond timestamps kept in lending records and the
+ * {@code yyyy-MM-dd HH:mm:ss} strings (in the server's time zone) the API has always exposed.
+ */
+public final class LendingDates {
+    
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private LendingDates() {}
+    
+    public static String format(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(DATE_TIME_FORMATTER);
+    }
+    
+    /**
+     * Parses {@code yyyy-MM-dd HH:mm:ss}, or a bare {@code yyyy-MM-dd} as the start of that day.
+     *
+     * @throws DateTimeParseException if the value is in neither form
+     */
+    public static long parse(String value) {
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return LocalDateTime.parse(value, DATE_TIME_FORMATTER).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,23 +1,37 @@
 package com.library.dto;
 
+import jakarta.json.bind.annotation.JsonbTransient;
+
+/**
+ * A lending record. Dates are kept as epoch milliseconds and only formatted (by the
+ * {@code ...Date} getters) when the record is serialized. A time of 0 means the date is not set.
+ * <p>
+ * Stored records are never mutated: changes replace the record, and the service relies on identity
+ * equality to compare-and-set them, so this class must not override {@code equals}.
+ */
 public class LendingResponseDTO {
     
     private String lendingId;
     private String bookId;
     private String memberId;
-    private String lendingDate;
-    private String returnDate; // nullable - null if not returned yet
+    @JsonbTransient
+    private long lendingTime;
+    @JsonbTransient
+    private long dueTime; // 0 for lendings recorded before due dates existed
+    @JsonbTransient
+    private long returnTime; // 0 if not returned yet
     
     // Constructors
     public LendingResponseDTO() {}
     
     public LendingResponseDTO(String lendingId, String bookId, String memberId, 
-                            String lendingDate, String returnDate) {
+                            long lendingTime, long dueTime, long returnTime) {
         this.lendingId = lendingId;
         this.bookId = bookId;
         this.memberId = memberId;
-        this.lendingDate = lendingDate;
-        this.returnDate = returnDate;
+        this.lendingTime = lendingTime;
+        this.dueTime = dueTime;
+        this.returnTime = returnTime;
     }
     
     // Getters and Setters
@@ -45,20 +59,66 @@ public class LendingResponseDTO {
         this.memberId = memberId;
     }
     
+    public long getLendingTime() {
+        return lendingTime;
+    }
+    
+    public void setLendingTime(long lendingTime) {
+        this.lendingTime = lendingTime;
+    }
+    
+    public long getDueTime() {
+        return dueTime;
+    }
+    
+    public void setDueTime(long dueTime) {
+        this.dueTime = dueTime;
+    }
+    
+    public long getReturnTime() {
+        return returnTime;
+    }
+    
+    public void setReturnTime(long returnTime) {
+        this.returnTime = returnTime;
+    }
+    
+    @JsonbTransient
+    public boolean isReturned() {
+        return returnTime != 0;
+    }
+    
+    // Formatted views of the timestamps, as written to JSON
     public String getLendingDate() {
-        return lendingDate;
+        return toDate(lendingTime);
     }
     
     public void setLendingDate(String lendingDate) {
-        this.lendingDate = lendingDate;
+        this.lendingTime = toTime(lendingDate);
+    }
+    
+    public String getDueDate() {
+        return toDate(dueTime);
+    }
+    
+    public void setDueDate(String dueDate) {
+        this.dueTime = toTime(dueDate);
     }
     
     public String getReturnDate() {
-        return returnDate;
+        return toDate(returnTime);
     }
     
     public void setReturnDate(String returnDate) {
-        this.returnDate = returnDate;
+        this.returnTime = toTime(returnDate);
+    }
+    
+    private static String toDate(long time) {
+        return time != 0 ? LendingDates.format(time) : null;
+    }
+    
+    private static long toTime(String date) {
+        return date != null ? LendingDates.parse(date) : 0;
     }
     
     @Override
@@ -67,9 +127,9 @@ public class LendingResponseDTO {
                 "lendingId='" + lendingId + '\'' +
                 ", bookId='" + bookId + '\'' +
                 ", memberId='" + memberId + '\'' +
-                ", lendingDate='" + lendingDate + '\'' +
-                ", returnDate='" + returnDate + '\'' +
+                ", lendingTime=" + lendingTime +
+                ", dueTime=" + dueTime +
+                ", returnTime=" + returnTime +
                 '}';
     }
 }
-
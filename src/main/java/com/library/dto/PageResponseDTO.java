@@ -0,0 +1,53 @@
+package com.library.dto;
+
+import java.util.List;
+
+public class PageResponseDTO<T> {
+    
+    private List<T> items;
+    private String nextCursor; // nullable - null when there are no more items
+    private int limit;
+    
+    // Constructors
+    public PageResponseDTO() {}
+    
+    public PageResponseDTO(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+    
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+    
+    @Override
+    public String toString() {
+        return "PageResponseDTO{" +
+                "items=" + (items != null ? items.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", limit=" + limit +
+                '}';
+    }
+}
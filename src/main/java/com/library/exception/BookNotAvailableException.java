@@ -0,0 +1,8 @@
+package com.library.exception;
+
+public class BookNotAvailableException extends LibraryException {
+    
+    public BookNotAvailableException(String bookId) {
+        super(ErrorCode.BOOK_NOT_AVAILABLE, "Book has no quantity available for lending. Book ID: " + bookId);
+    }
+}
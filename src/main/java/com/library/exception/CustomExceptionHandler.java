@@ -1,46 +1,33 @@
 package com.library.exception;
 
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.Provider;
 import org.jboss.logging.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Fallback for runtime exceptions that are neither {@link LibraryException}s nor
+ * {@link JournalException}s. Framework exceptions keep their own status; anything else is logged with
+ * its stack trace and, as it always has been, reported as a 400.
+ */
 @Provider
 public class CustomExceptionHandler implements ExceptionMapper<RuntimeException> {
     
     private static final Logger LOG = Logger.getLogger(CustomExceptionHandler.class);
     
+    private static final ErrorBody REQUEST_BODY = new ErrorBody(null, "RequestException");
+    private static final ErrorBody BUSINESS_BODY = new ErrorBody(ErrorCode.INVALID_REQUEST, "BusinessException");
+    
     @Override
     public Response toResponse(RuntimeException exception) {
-        LOG.error("Custom exception handler caught: " + exception.getMessage(), exception);
-        
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("error", exception.getMessage());
-        errorResponse.put("timestamp", System.currentTimeMillis());
-        errorResponse.put("type", "BusinessException");
-        
-        // Determine HTTP status based on error message content
-        String message = exception.getMessage().toLowerCase();
-        
-        if (message.contains("not found")) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(errorResponse)
-                    .build();
-        } else if (message.contains("not available") || message.contains("already lent")) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(errorResponse)
-                    .build();
-        } else if (message.contains("already exists") || message.contains("duplicate")) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(errorResponse)
-                    .build();
-        } else {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(errorResponse)
-                    .build();
+        if (exception instanceof WebApplicationException webApplicationException) {
+            int status = webApplicationException.getResponse().getStatus();
+            LOG.debugf("Request failed with status %d: %s", status, exception.getMessage());
+            return REQUEST_BODY.response(status, exception.getMessage());
         }
+        
+        LOG.errorf(exception, "Unhandled exception: %s", exception.getMessage());
+        return BUSINESS_BODY.response(ErrorCode.INVALID_REQUEST.status().getStatusCode(), exception.getMessage());
     }
 }
@@ -0,0 +1,8 @@
+package com.library.exception;
+
+public class DuplicateResourceException extends LibraryException {
+    
+    public DuplicateResourceException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+}
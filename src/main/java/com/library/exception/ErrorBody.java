@@ -0,0 +1,93 @@
+package com.library.exception;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JSON error body of one fixed shape, {@code {"code":..,"type":..,"error":..,"timestamp":..}},
+ * written straight to bytes. The code and type never change for a given shape, so that part is
+ * encoded once up front; an error then costs one array for its body and never goes through JSON-B.
+ */
+final class ErrorBody {
+    
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    // {"code":"...","type":"...","error":
+    private final byte[] prefix;
+    
+    ErrorBody(ErrorCode code, String type) {
+        String codeValue = code != null ? '"' + code.name() + '"' : "null";
+        this.prefix = ("{\"code\":" + codeValue + ",\"type\":\"" + type + "\",\"error\":")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Builds a JSON response with this shape, the given message and the current time.
+     */
+    Response response(int status, String message) {
+        return Response.status(status)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(render(message, System.currentTimeMillis()))
+                .build();
+    }
+    
+    byte[] render(String message, long timestamp) {
+        byte[] error = message != null ? ('"' + escape(message) + '"').getBytes(StandardCharsets.UTF_8) : NULL;
+        String time = Long.toString(timestamp);
+        
+        byte[] body = Arrays.copyOf(prefix, prefix.length + error.length + 13 + time.length() + 1);
+        int offset = prefix.length;
+        System.arraycopy(error, 0, body, offset, error.length);
+        offset = ascii(",\"timestamp\":", body, offset + error.length);
+        offset = ascii(time, body, offset);
+        body[offset] = '}';
+        return body;
+    }
+    
+    // Helper method to copy an ASCII string into the body
+    private static int ascii(String value, byte[] target, int offset) {
+        for (int i = 0; i < value.length(); i++) {
+            target[offset++] = (byte) value.charAt(i);
+        }
+        return offset;
+    }
+    
+    // Helper method to escape a message as JSON string content; most messages need nothing escaped
+    static String escape(String value) {
+        int i = 0;
+        while (i < value.length() && !needsEscape(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        
+        StringBuilder escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+    
+    private static boolean needsEscape(char c) {
+        return c < 0x20 || c == '"' || c == '\\';
+    }
+}
@@ -0,0 +1,29 @@
+package com.library.exception;
+
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Machine-readable error codes returned to clients, each bound to the HTTP status it maps to.
+ */
+public enum ErrorCode {
+    BOOK_NOT_FOUND(Response.Status.NOT_FOUND),
+    MEMBER_NOT_FOUND(Response.Status.NOT_FOUND),
+    LENDING_NOT_FOUND(Response.Status.NOT_FOUND),
+    BOOK_ALREADY_EXISTS(Response.Status.CONFLICT),
+    MEMBER_ALREADY_EXISTS(Response.Status.CONFLICT),
+    BOOK_IN_USE(Response.Status.CONFLICT),
+    MEMBER_IN_USE(Response.Status.CONFLICT),
+    BOOK_NOT_AVAILABLE(Response.Status.BAD_REQUEST),
+    INVALID_REQUEST(Response.Status.BAD_REQUEST),
+    JOURNAL_UNAVAILABLE(Response.Status.SERVICE_UNAVAILABLE);
+    
+    private final Response.Status status;
+    
+    ErrorCode(Response.Status status) {
+        this.status = status;
+    }
+    
+    public Response.Status status() {
+        return status;
+    }
+}
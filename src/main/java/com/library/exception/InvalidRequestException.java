@@ -0,0 +1,8 @@
+package com.library.exception;
+
+public class InvalidRequestException extends LibraryException {
+    
+    public InvalidRequestException(String message) {
+        super(ErrorCode.INVALID_REQUEST, message);
+    }
+}
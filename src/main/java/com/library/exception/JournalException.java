@@ -0,0 +1,17 @@
+package com.library.exception;
+
+/**
+ * A mutation could not be recorded in the write-ahead log, so it may not survive a restart. Unlike
+ * {@link LibraryException} this is an infrastructure failure, not a client error, and keeps its
+ * cause and stack trace.
+ */
+public class JournalException extends RuntimeException {
+    
+    public JournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+    
+    public ErrorCode getErrorCode() {
+        return ErrorCode.JOURNAL_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,23 @@
+package com.library.exception;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
+
+@Provider
+public class JournalExceptionMapper implements ExceptionMapper<JournalException> {
+    
+    private static final Logger LOG = Logger.getLogger(JournalExceptionMapper.class);
+    
+    private static final ErrorBody BODY = new ErrorBody(ErrorCode.JOURNAL_UNAVAILABLE, "PersistenceException");
+    
+    @Override
+    public Response toResponse(JournalException exception) {
+        ErrorCode code = exception.getErrorCode();
+        // The write-ahead log already logged the underlying failure with its stack trace
+        LOG.warnf("%s: %s", code, exception.getMessage());
+        
+        return BODY.response(code.status().getStatusCode(), exception.getMessage());
+    }
+}
@@ -0,0 +1,21 @@
+package com.library.exception;
+
+/**
+ * Base class of the expected, client-caused failures of the library API. These are part of normal
+ * traffic (unknown IDs, duplicates, sold-out books), so they carry an {@link ErrorCode} instead of
+ * a status to be guessed from the message, and skip stack trace capture entirely.
+ */
+public class LibraryException extends RuntimeException {
+    
+    private final ErrorCode errorCode;
+    
+    public LibraryException(ErrorCode errorCode, String message) {
+        // No suppression list and no stack trace: the code and message say everything the client needs
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+    
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+}
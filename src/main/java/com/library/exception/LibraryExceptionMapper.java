@@ -0,0 +1,30 @@
+package com.library.exception;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
+
+@Provider
+public class LibraryExceptionMapper implements ExceptionMapper<LibraryException> {
+    
+    private static final Logger LOG = Logger.getLogger(LibraryExceptionMapper.class);
+    
+    // One body shape per error code, indexed by ordinal
+    private static final ErrorBody[] BODIES = new ErrorBody[ErrorCode.values().length];
+    
+    static {
+        for (ErrorCode code : ErrorCode.values()) {
+            BODIES[code.ordinal()] = new ErrorBody(code, "BusinessException");
+        }
+    }
+    
+    @Override
+    public Response toResponse(LibraryException exception) {
+        ErrorCode code = exception.getErrorCode();
+        // Routine client errors: logged once, at debug, with no stack trace
+        LOG.debugf("%s: %s", code, exception.getMessage());
+        
+        return BODIES[code.ordinal()].response(code.status().getStatusCode(), exception.getMessage());
+    }
+}
@@ -0,0 +1,18 @@
+package com.library.exception;
+
+public class ResourceInUseException extends LibraryException {
+    
+    public ResourceInUseException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+    
+    public static ResourceInUseException book(String id, int activeLendings) {
+        return new ResourceInUseException(ErrorCode.BOOK_IN_USE,
+                "Book has " + activeLendings + " active lending(s) and cannot be deleted. Book ID: " + id);
+    }
+    
+    public static ResourceInUseException member(String id, int activeLendings) {
+        return new ResourceInUseException(ErrorCode.MEMBER_IN_USE,
+                "Member has " + activeLendings + " active lending(s) and cannot be deleted. Member ID: " + id);
+    }
+}
@@ -0,0 +1,20 @@
+package com.library.exception;
+
+public class ResourceNotFoundException extends LibraryException {
+    
+    public ResourceNotFoundException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+    
+    public static ResourceNotFoundException book(String id) {
+        return new ResourceNotFoundException(ErrorCode.BOOK_NOT_FOUND, "Book not found with ID: " + id);
+    }
+    
+    public static ResourceNotFoundException member(String id) {
+        return new ResourceNotFoundException(ErrorCode.MEMBER_NOT_FOUND, "Member not found with ID: " + id);
+    }
+    
+    public static ResourceNotFoundException lending(String id) {
+        return new ResourceNotFoundException(ErrorCode.LENDING_NOT_FOUND, "Lending not found with ID: " + id);
+    }
+}
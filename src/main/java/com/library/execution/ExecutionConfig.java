@@ -0,0 +1,14 @@
+package com.library.execution;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "library.execution")
+public interface ExecutionConfig {
+    
+    /**
+     * Where mutating endpoints run: {@code worker} or {@code virtual}.
+     */
+    @WithDefault("worker")
+    ExecutionMode mode();
+}
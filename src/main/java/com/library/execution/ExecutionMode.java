@@ -0,0 +1,11 @@
+package com.library.execution;
+
+/**
+ * Threads the mutating endpoints run on.
+ */
+public enum ExecutionMode {
+    /** The shared Quarkus worker pool, a bounded set of platform threads. */
+    WORKER,
+    /** A new virtual thread per request; a call blocked on I/O holds no platform thread. */
+    VIRTUAL
+}
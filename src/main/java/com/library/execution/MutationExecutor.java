@@ -0,0 +1,57 @@
+package com.library.execution;
+
+import com.library.persistence.Journal;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Runs mutating calls, which may block on the journal, off the I/O thread on the threads chosen by
+ * {@code library.execution.mode}. With virtual threads the number of requests waiting for a group commit
+ * is no longer capped by the worker pool size. Blocking in the service layer goes through
+ * {@code java.util.concurrent} locks and conditions, never {@code synchronized}, so a waiting virtual
+ * thread unmounts instead of pinning its carrier. Nothing runs once the journal has stopped, so a change
+ * it could not record is refused before anything is modified.
+ */
+@ApplicationScoped
+public class MutationExecutor {
+    
+    private static final Logger LOG = Logger.getLogger(MutationExecutor.class);
+    
+    @Inject
+    ExecutionConfig config;
+    
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreads;
+    
+    @Inject
+    Journal journal;
+    
+    private Executor executor;
+    
+    @PostConstruct
+    void init() {
+        executor = config.mode() == ExecutionMode.VIRTUAL ? virtualThreads : Infrastructure.getDefaultWorkerPool();
+        LOG.info("Mutating endpoints run on " + (config.mode() == ExecutionMode.VIRTUAL ? "virtual threads" : "the worker pool"));
+    }
+    
+    /**
+     * Returns a Uni that runs {@code work} on the configured threads when subscribed, or fails with a
+     * {@link com.library.exception.JournalException} if the journal has stopped.
+     */
+    public <T> Uni<T> run(Supplier<T> work) {
+        return Uni.createFrom().item(() -> {
+            journal.checkWritable();
+            return work.get();
+        }).runSubscriptionOn(executor);
+    }
+}
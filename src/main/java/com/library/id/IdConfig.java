@@ -0,0 +1,14 @@
+package com.library.id;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "library.id")
+public interface IdConfig {
+    
+    /**
+     * Number of this instance, between 0 and 1023. Instances sharing data must use different numbers.
+     */
+    @WithDefault("0")
+    int node();
+}
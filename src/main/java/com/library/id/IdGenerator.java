@@ -0,0 +1,127 @@
+package com.library.id;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues unique, time-ordered IDs for books, members and lendings. Each ID packs 41 bits of
+ * milliseconds since 2024-01-01, a 10-bit node number and a 12-bit per-millisecond sequence into a
+ * positive long, written as 11 base-62 characters. The digits are in ASCII order and the width is
+ * fixed, so IDs compare as strings the same way they compare as numbers: new records sort after
+ * existing ones and cursors stay stable.
+ * <p>
+ * Generation is a single compare-and-set on the last issued value. When the clock goes backwards, or
+ * more than 4096 IDs are needed within a millisecond, the generator keeps counting from the last ID
+ * (borrowing the next millisecond) instead of waiting, so IDs never repeat and never go backwards.
+ * Across restarts the same holds once recovery has passed every recovered ID to {@link #advancePast}.
+ */
+@ApplicationScoped
+public class IdGenerator {
+    
+    // Length of every ID; 62^11 covers all positive longs
+    public static final int LENGTH = 11;
+    
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    
+    // URL-safe and in ascending ASCII order
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    
+    private final long nodeBits;
+    private final AtomicLong last = new AtomicLong();
+    
+    @Inject
+    public IdGenerator(IdConfig config) {
+        this(config.node());
+    }
+    
+    public IdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.nodeBits = (long) node << SEQUENCE_BITS;
+    }
+    
+    public String nextId() {
+        return encode(nextValue());
+    }
+    
+    /**
+     * Makes every later ID sort after {@code id}. IDs that are not in this format are ignored.
+     */
+    public void advancePast(String id) {
+        long value = decode(id);
+        if (value > 0) {
+            last.accumulateAndGet(value, Math::max);
+        }
+    }
+    
+    long nextValue() {
+        while (true) {
+            long previous = last.get();
+            long previousTime = previous >>> TIME_SHIFT;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next;
+            if (now > previousTime) {
+                next = now << TIME_SHIFT | nodeBits;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = previous + 1;
+            } else {
+                next = (previousTime + 1) << TIME_SHIFT | nodeBits;
+            }
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * Writes a non-negative value as an ID: fixed-width base-62, most significant digit first.
+     */
+    public static String encode(long value) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = DIGITS[(int) (value % DIGITS.length)];
+            value /= DIGITS.length;
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * Reverse of {@link #encode(long)}. Returns -1 if {@code id} is not in this format, e.g. a UUID
+     * from before these IDs were introduced, so callers can keep such IDs as strings.
+     */
+    public static long decode(String id) {
+        if (id == null || id.length() != LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = digit(id.charAt(i));
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / DIGITS.length) {
+                return -1;
+            }
+            value = value * DIGITS.length + digit;
+        }
+        return value;
+    }
+    
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.library.logging;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "library.access-log")
+public interface AccessLogConfig {
+    
+    @WithDefault("true")
+    boolean enabled();
+    
+    /**
+     * Fraction of ordinary requests that are logged, between 0 and 1.
+     */
+    @WithDefault("0.01")
+    double sampleRate();
+    
+    /**
+     * Requests taking at least this long are always logged, as are server errors.
+     */
+    @WithDefault("500ms")
+    Duration slowThreshold();
+}
@@ -0,0 +1,69 @@
+package com.library.logging;
+
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled access log: one key=value line per logged request, written to the {@code com.library.access}
+ * category. Replaces per-call INFO lines in the services, which cost a formatted message (and, with
+ * a synchronous handler, a console write) on every request. Slow requests and server errors are
+ * always logged; everything else is logged with probability {@code library.access-log.sample-rate}.
+ */
+@Provider
+public class AccessLogFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    
+    private static final Logger LOG = Logger.getLogger("com.library.access");
+    private static final String START_PROPERTY = AccessLogFilter.class.getName() + ".start";
+    
+    // Filters are created during static init, before runtime config exists, so it is resolved on first use
+    @Inject
+    Instance<AccessLogConfig> configInstance;
+    
+    private volatile AccessLogConfig config;
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (config().enabled()) {
+            requestContext.setProperty(START_PROPERTY, System.nanoTime());
+        }
+    }
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - (Long) start;
+        AccessLogConfig config = config();
+        int status = responseContext.getStatus();
+        
+        boolean always = status >= 500 || elapsed >= config.slowThreshold().toNanos();
+        if (!always && ThreadLocalRandom.current().nextDouble() >= config.sampleRate()) {
+            return;
+        }
+        
+        LOG.infof("method=%s path=%s status=%d duration_ms=%.3f",
+                requestContext.getMethod(),
+                requestContext.getUriInfo().getPath(),
+                status,
+                elapsed / 1_000_000.0);
+    }
+    
+    private AccessLogConfig config() {
+        AccessLogConfig current = config;
+        if (current == null) {
+            current = configInstance.get();
+            config = current;
+        }
+        return current;
+    }
+}
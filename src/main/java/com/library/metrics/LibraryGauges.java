@@ -0,0 +1,42 @@
+package com.library.metrics;
+
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Registers the catalog size gauges. They are sampled on every scrape, so each count is O(1).
+ */
+@ApplicationScoped
+public class LibraryGauges {
+    
+    @Inject
+    MeterRegistry registry;
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    void register(@Observes StartupEvent event) {
+        Gauge.builder("library.books", bookService, BookService::countBooks)
+                .description("Number of distinct books in the catalog")
+                .register(registry);
+        Gauge.builder("library.members", memberService, MemberService::countMembers)
+                .description("Number of registered members")
+                .register(registry);
+        Gauge.builder("library.lendings.active", lendingService, LendingService::countActiveLendings)
+                .description("Number of lendings not yet returned")
+                .register(registry);
+    }
+}
@@ -0,0 +1,76 @@
+package com.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business counters recorded by the services. The counters are registered once up front, so
+ * recording a rejection is a single lock-free increment with no registry lookup.
+ */
+@ApplicationScoped
+public class LibraryMetrics {
+    
+    // HTTP server timer recorded by the Quarkus Micrometer binder for every endpoint
+    static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+    
+    private final Counter oversellRejections;
+    private final Counter duplicateBookRejections;
+    private final Counter duplicateMemberRejections;
+    
+    @Inject
+    public LibraryMetrics(MeterRegistry registry) {
+        oversellRejections = Counter.builder("library.oversell.rejections")
+                .description("Lend attempts rejected because the book had no copies left")
+                .register(registry);
+        duplicateBookRejections = Counter.builder("library.duplicate.rejections")
+                .description("Creates and updates rejected because the entity already exists")
+                .tag("entity", "book")
+                .register(registry);
+        duplicateMemberRejections = Counter.builder("library.duplicate.rejections")
+                .description("Creates and updates rejected because the entity already exists")
+                .tag("entity", "member")
+                .register(registry);
+    }
+    
+    public void oversellRejected() {
+        oversellRejections.increment();
+    }
+    
+    public void duplicateBookRejected() {
+        duplicateBookRejections.increment();
+    }
+    
+    public void duplicateMemberRejected() {
+        duplicateMemberRejections.increment();
+    }
+    
+    /**
+     * Publishes request latencies as a Prometheus bucket histogram, bounded to 100 µs - 10 s so the
+     * bucket count per endpoint stays small. Percentiles are left to histogram_quantile() on the
+     * server: client-side percentiles cost a rotating set of histograms per timer and cannot be
+     * aggregated across instances.
+     */
+    public static MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!id.getName().equals(HTTP_SERVER_REQUESTS)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(100))
+                        .maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(10))
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
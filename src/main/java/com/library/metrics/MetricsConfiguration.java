@@ -0,0 +1,16 @@
+package com.library.metrics;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class MetricsConfiguration {
+    
+    // Picked up by Quarkus and applied to every registry
+    @Produces
+    @Singleton
+    public MeterFilter latencyHistograms() {
+        return LibraryMetrics.latencyHistograms();
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.model;
+
+import com.library.dto.BookResponseDTO;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stored form of a book. The catalog fields are immutable: an edit builds a new record that
+ * replaces the old one atomically, so a reader always sees a consistent title and author.
+ * The copy counter is the only mutable part. It is shared by every version of the record,
+ * so lending and returning copies never has to replace the record or race with an edit.
+ * <p>
+ * {@code titleAuthorKey} packs the catalog dictionary codes of the title and author, so duplicate
+ * checks compare numbers instead of case-folding strings. The record holds one dictionary reference
+ * on each code for as long as it is in the catalog.
+ */
+public record Book(String id, String title, String author, long titleAuthorKey, AtomicInteger stock) {
+    
+    public Book(String id, String title, String author, long titleAuthorKey, int quantity) {
+        this(id, title, author, titleAuthorKey, new AtomicInteger(quantity));
+    }
+    
+    public int quantity() {
+        return stock.get();
+    }
+    
+    /**
+     * Returns a new version of this book with other catalog details and the same copy counter.
+     */
+    public Book withDetails(String title, String author, long titleAuthorKey) {
+        return new Book(id, title, author, titleAuthorKey, stock);
+    }
+    
+    /**
+     * Builds the response view. Each call returns a new DTO, so callers and serializers can
+     * never change the stored book.
+     */
+    public BookResponseDTO toResponse() {
+        return toResponse(stock.get());
+    }
+    
+    public BookResponseDTO toResponse(int quantity) {
+        return new BookResponseDTO(id, title, author, quantity > 0, quantity);
+    }
+}
@@ -0,0 +1,29 @@
+package com.library.persistence;
+
+/**
+ * Kinds of entities persisted by the journal. The code is the on-disk tag and must never change.
+ */
+public enum EntityType {
+    BOOK((byte) 1),
+    MEMBER((byte) 2),
+    LENDING((byte) 3);
+    
+    private final byte code;
+    
+    EntityType(byte code) {
+        this.code = code;
+    }
+    
+    public byte code() {
+        return code;
+    }
+    
+    public static EntityType fromCode(byte code) {
+        for (EntityType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown entity type code: " + code);
+    }
+}
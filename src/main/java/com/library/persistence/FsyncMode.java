@@ -0,0 +1,13 @@
+package com.library.persistence;
+
+/**
+ * How the write-ahead log forces written records to stable storage.
+ */
+public enum FsyncMode {
+    /** Force after every group-committed batch; mutating calls wait until their batch is durable. */
+    ALWAYS,
+    /** Force at most once per configured interval; mutating calls never wait. */
+    INTERVAL,
+    /** Never force explicitly and leave flushing to the operating system. */
+    NONE
+}
@@ -0,0 +1,83 @@
+package com.library.persistence;
+
+import com.library.exception.JournalException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Collection;
+
+/**
+ * Entry point used by the services to journal their mutations. Until the write-ahead log is
+ * started (or when persistence is disabled) every call is a no-op.
+ */
+@ApplicationScoped
+public class Journal {
+    
+    @Inject
+    PersistenceConfig config;
+    
+    private volatile WriteAheadLog log;
+    
+    public boolean isEnabled() {
+        return config != null && config.enabled();
+    }
+    
+    /**
+     * Fails with a {@link JournalException} if the write-ahead log has stopped, so a change it could
+     * no longer record is rejected before anything is modified. The
+     * {@link com.library.execution.MutationExecutor} calls this before every mutating call.
+     */
+    public void checkWritable() {
+        WriteAheadLog current = log;
+        if (current != null) {
+            current.checkWritable();
+        }
+    }
+    
+    /**
+     * Records that an entity changed. Call after the in-memory mutation is visible and outside any
+     * lock: in {@link FsyncMode#ALWAYS} mode this blocks until the change has been forced to disk.
+     * Recording itself never fails. Only in {@link FsyncMode#ALWAYS} mode, if the log stops before the
+     * change is forced, does this throw a {@link JournalException}: the change then stays in memory
+     * until a restart recovers the last durable state, and every later change is rejected by
+     * {@link #checkWritable}.
+     */
+    public void commit(EntityType type, String id) {
+        WriteAheadLog current = log;
+        if (current == null) {
+            return;
+        }
+        long sequence = current.append(type, id);
+        if (config.fsyncMode() == FsyncMode.ALWAYS) {
+            current.awaitDurable(sequence);
+        }
+    }
+    
+    /**
+     * Records that several entities changed, waiting (in {@link FsyncMode#ALWAYS} mode) only once
+     * for the whole group to become durable.
+     */
+    public void commitAll(EntityType type, Collection<String> ids) {
+        WriteAheadLog current = log;
+        if (current == null || ids.isEmpty()) {
+            return;
+        }
+        long sequence = 0;
+        for (String id : ids) {
+            sequence = current.append(type, id);
+        }
+        if (config.fsyncMode() == FsyncMode.ALWAYS) {
+            current.awaitDurable(sequence);
+        }
+    }
+    
+    void attach(WriteAheadLog log) {
+        this.log = log;
+    }
+    
+    WriteAheadLog detach() {
+        WriteAheadLog current = log;
+        log = null;
+        return current;
+    }
+}
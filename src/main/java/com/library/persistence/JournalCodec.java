@@ -0,0 +1,194 @@
+package com.library.persistence;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding shared by the write-ahead log and snapshots.
+ * <p>
+ * Each record is framed as {@code [int payloadLength][int crc32c(payload)][payload]}. The payload
+ * starts with a tag byte (the entity type code, with {@link #REMOVED_FLAG} set for removals)
+ * followed by length-prefixed UTF-8 strings and, for books, the quantity. Lendings carry
+ * {@link #LENDING_TIMES_FLAG} and end with their lending, due and return times as epoch-millisecond longs.
+ * <p>
+ * Lendings written before that flag existed stored their dates as formatted strings (lending date, return
+ * date and, once due dates were added, due date); they still decode, and are rewritten in the current
+ * form by the next snapshot.
+ */
+final class JournalCodec {
+    
+    static final int FRAME_HEADER_SIZE = 8;
+    
+    private static final byte REMOVED_FLAG = 0x40;
+    private static final byte LENDING_TIMES_FLAG = 0x20;
+    private static final DateTimeFormatter LEGACY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int NULL_STRING = -1;
+    
+    private JournalCodec() {}
+    
+    /**
+     * Appends one framed record to {@code buffer}, returning the buffer (grown if it was too small).
+     */
+    static ByteBuffer encode(JournalEntry entry, ByteBuffer buffer) {
+        byte[][] strings;
+        int extra = 0;
+        byte tag = entry.type().code();
+        switch (entry) {
+            case JournalEntry.Book book -> {
+                strings = new byte[][] {utf8(book.id()), utf8(book.title()), utf8(book.author())};
+                extra = Integer.BYTES;
+            }
+            case JournalEntry.Member member ->
+                strings = new byte[][] {utf8(member.id()), utf8(member.name()), utf8(member.email())};
+            case JournalEntry.Lending lending -> {
+                strings = new byte[][] {utf8(lending.id()), utf8(lending.bookId()), utf8(lending.memberId())};
+                extra = 3 * Long.BYTES;
+                tag |= LENDING_TIMES_FLAG;
+            }
+            case JournalEntry.Removed removed -> {
+                strings = new byte[][] {utf8(removed.id())};
+                tag |= REMOVED_FLAG;
+            }
+        }
+        
+        int payloadLength = 1 + extra;
+        for (byte[] string : strings) {
+            payloadLength += Integer.BYTES + (string != null ? string.length : 0);
+        }
+        
+        buffer = ensureCapacity(buffer, FRAME_HEADER_SIZE + payloadLength);
+        int frameStart = buffer.position();
+        buffer.putInt(payloadLength);
+        buffer.putInt(0); // CRC placeholder, filled in once the payload is written
+        int payloadStart = buffer.position();
+        buffer.put(tag);
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putInt(NULL_STRING);
+            } else {
+                buffer.putInt(string.length);
+                buffer.put(string);
+            }
+        }
+        if (entry instanceof JournalEntry.Book book) {
+            buffer.putInt(book.quantity());
+        } else if (entry instanceof JournalEntry.Lending lending) {
+            buffer.putLong(lending.lendingTime());
+            buffer.putLong(lending.dueTime());
+            buffer.putLong(lending.returnTime());
+        }
+        
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(payloadStart).limit(buffer.position()));
+        buffer.putInt(frameStart + Integer.BYTES, (int) crc.getValue());
+        return buffer;
+    }
+    
+    /**
+     * Decodes the record starting at the buffer's position and advances past it. Returns {@code null},
+     * leaving the position untouched, if the remaining bytes do not hold a complete, intact record
+     * (end of data or a torn write).
+     */
+    static JournalEntry decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER_SIZE) {
+            return null;
+        }
+        int payloadLength = buffer.getInt(start);
+        int expectedCrc = buffer.getInt(start + Integer.BYTES);
+        if (payloadLength <= 0 || payloadLength > buffer.remaining() - FRAME_HEADER_SIZE) {
+            return null;
+        }
+        
+        ByteBuffer payload = buffer.duplicate().position(start + FRAME_HEADER_SIZE).limit(start + FRAME_HEADER_SIZE + payloadLength);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        
+        JournalEntry entry;
+        try {
+            entry = decodePayload(payload);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+        buffer.position(start + FRAME_HEADER_SIZE + payloadLength);
+        return entry;
+    }
+    
+    private static JournalEntry decodePayload(ByteBuffer payload) {
+        byte tag = payload.get();
+        if ((tag & REMOVED_FLAG) != 0) {
+            return new JournalEntry.Removed(EntityType.fromCode((byte) (tag & ~REMOVED_FLAG)), readString(payload));
+        }
+        if ((tag & LENDING_TIMES_FLAG) != 0) {
+            if (EntityType.fromCode((byte) (tag & ~LENDING_TIMES_FLAG)) != EntityType.LENDING) {
+                throw new IllegalArgumentException("Unexpected record tag: " + tag);
+            }
+            return new JournalEntry.Lending(readString(payload), readString(payload), readString(payload),
+                    payload.getLong(), payload.getLong(), payload.getLong());
+        }
+        return switch (EntityType.fromCode(tag)) {
+            case BOOK -> new JournalEntry.Book(readString(payload), readString(payload), readString(payload), payload.getInt());
+            case MEMBER -> new JournalEntry.Member(readString(payload), readString(payload), readString(payload));
+            case LENDING -> decodeLegacyLending(payload);
+        };
+    }
+    
+    // Lendings with formatted date strings; the due date was appended later, so it may be missing
+    private static JournalEntry.Lending decodeLegacyLending(ByteBuffer payload) {
+        String id = readString(payload);
+        String bookId = readString(payload);
+        String memberId = readString(payload);
+        long lendingTime = parseLegacyDate(readString(payload));
+        long returnTime = parseLegacyDate(readString(payload));
+        long dueTime = payload.hasRemaining() ? parseLegacyDate(readString(payload)) : 0;
+        return new JournalEntry.Lending(id, bookId, memberId, lendingTime, dueTime, returnTime);
+    }
+    
+    private static long parseLegacyDate(String date) {
+        if (date == null) {
+            return 0;
+        }
+        try {
+            return LocalDateTime.parse(date, LEGACY_DATE_FORMATTER).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid lending date: " + date, e);
+        }
+    }
+    
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > payload.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+    
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
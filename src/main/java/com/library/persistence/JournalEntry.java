@@ -0,0 +1,38 @@
+package com.library.persistence;
+
+/**
+ * Full-state image of one entity as written to the write-ahead log and to snapshots.
+ * Every entry describes the complete current state of its entity (or its removal),
+ * so replaying entries in log order and keeping the last one per key is always correct.
+ */
+public sealed interface JournalEntry {
+    
+    EntityType type();
+    
+    String id();
+    
+    record Book(String id, String title, String author, int quantity) implements JournalEntry {
+        @Override
+        public EntityType type() {
+            return EntityType.BOOK;
+        }
+    }
+    
+    record Member(String id, String name, String email) implements JournalEntry {
+        @Override
+        public EntityType type() {
+            return EntityType.MEMBER;
+        }
+    }
+    
+    // Times are epoch milliseconds; 0 when not set (no due date recorded, or not returned yet)
+    record Lending(String id, String bookId, String memberId, long lendingTime, long dueTime, long returnTime) implements JournalEntry {
+        @Override
+        public EntityType type() {
+            return EntityType.LENDING;
+        }
+    }
+    
+    record Removed(EntityType type, String id) implements JournalEntry {
+    }
+}
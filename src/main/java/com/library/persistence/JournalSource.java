@@ -0,0 +1,33 @@
+package com.library.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Bridge between a service's in-memory store and the journal. The journal reads entity
+ * state through it when writing log records and snapshots, and writes state back through
+ * it during recovery.
+ */
+public interface JournalSource {
+    
+    EntityType type();
+    
+    /**
+     * Returns the current state of the entity, or {@code null} if it no longer exists.
+     */
+    JournalEntry read(String id);
+    
+    /**
+     * Emits the current state of every entity, used to write snapshots.
+     */
+    void forEach(Consumer<JournalEntry> sink);
+    
+    /**
+     * Applies a recovered entity state, replacing whatever is currently stored.
+     */
+    void restore(JournalEntry entry);
+    
+    /**
+     * Applies a recovered removal.
+     */
+    void restoreRemoval(String id);
+}
@@ -0,0 +1,52 @@
+package com.library.persistence;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "library.persistence")
+public interface PersistenceConfig {
+    
+    /**
+     * Whether state is journaled to disk and recovered on startup.
+     */
+    @WithDefault("false")
+    boolean enabled();
+    
+    /**
+     * Directory holding the write-ahead log segments and snapshots.
+     */
+    @WithDefault("data")
+    String directory();
+    
+    @WithDefault("interval")
+    FsyncMode fsyncMode();
+    
+    /**
+     * Maximum time between forces in {@code interval} mode.
+     */
+    @WithDefault("50ms")
+    Duration fsyncInterval();
+    
+    /**
+     * Maximum number of mutations written (and forced) as one group commit.
+     */
+    @WithDefault("4096")
+    int maxBatchSize();
+    
+    /**
+     * Number of pending mutations buffered before mutating calls block.
+     */
+    @WithDefault("65536")
+    int queueCapacity();
+    
+    /**
+     * Time between snapshots. Each snapshot lets older log segments be deleted.
+     */
+    @WithDefault("5m")
+    Duration snapshotInterval();
+    
+    @WithDefault("true")
+    boolean snapshotOnShutdown();
+}
@@ -0,0 +1,72 @@
+package com.library.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * File helpers shared by the write-ahead log and snapshots.
+ */
+final class PersistenceFiles {
+    
+    // Files are read through memory-mapped windows of this size; records never span more than one window
+    static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    private PersistenceFiles() {}
+    
+    /**
+     * Lists the numbers of files named {@code prefix + number + suffix} in ascending order.
+     */
+    static List<Long> numbered(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> {
+                        try {
+                            numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                        } catch (NumberFormatException e) {
+                            // Not one of ours, ignore it
+                        }
+                    });
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+    
+    /**
+     * Decodes framed records between {@code start} and {@code end} through memory-mapped windows.
+     * Stops at the first incomplete or corrupt record and returns the position just after the last
+     * intact one.
+     */
+    static long readRecords(FileChannel channel, long start, long end, Consumer<JournalEntry> sink) throws IOException {
+        long position = start;
+        while (position < end) {
+            long windowSize = Math.min(MAP_WINDOW_SIZE, end - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            
+            JournalEntry entry;
+            while ((entry = JournalCodec.decode(window)) != null) {
+                sink.accept(entry);
+            }
+            
+            int consumed = window.position();
+            if (consumed == 0) {
+                // Nothing decodable at the start of a window: a torn or corrupt record
+                break;
+            }
+            position += consumed;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,195 @@
+package com.library.persistence;
+
+import com.library.id.IdGenerator;
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recovers the in-memory stores from the latest snapshot plus the log tail on startup, starts the
+ * write-ahead log and takes periodic snapshots that let old log segments be deleted.
+ */
+@ApplicationScoped
+public class PersistenceManager {
+    
+    private static final Logger LOG = Logger.getLogger(PersistenceManager.class);
+    
+    @Inject
+    PersistenceConfig config;
+    
+    @Inject
+    Journal journal;
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Inject
+    IdGenerator idGenerator;
+    
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private Path directory;
+    private List<JournalSource> sources;
+    private final Map<EntityType, JournalSource> sourcesByType = new EnumMap<>(EntityType.class);
+    private WriteAheadLog log;
+    private ScheduledExecutorService scheduler;
+    
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (!config.enabled()) {
+            return;
+        }
+        
+        directory = Paths.get(config.directory());
+        Files.createDirectories(directory);
+        sources = List.of(bookService.journalSource(), memberService.journalSource(), lendingService.journalSource());
+        for (JournalSource source : sources) {
+            sourcesByType.put(source.type(), source);
+        }
+        
+        long start = System.nanoTime();
+        long nextSegment = recover();
+        boolean recovered = nextSegment > 0;
+        
+        log = new WriteAheadLog(directory, Math.max(nextSegment, 1), config.fsyncMode(), config.fsyncInterval(),
+                config.maxBatchSize(), config.queueCapacity(), key -> {
+                    JournalEntry entry = sourcesByType.get(key.type()).read(key.id());
+                    return entry != null ? entry : new JournalEntry.Removed(key.type(), key.id());
+                });
+        journal.attach(log);
+        LOG.info("Persistence started in " + directory.toAbsolutePath() + " (fsync mode: " + config.fsyncMode() +
+                ", recovery took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+        
+        if (!recovered) {
+            bookService.seedSampleBooks();
+        }
+        
+        long intervalMillis = config.snapshotInterval().toMillis();
+        if (intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "library-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    void onStop(@Observes ShutdownEvent event) throws IOException {
+        if (log == null) {
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (config.snapshotOnShutdown()) {
+            snapshotQuietly();
+        }
+        journal.detach();
+        log.close();
+        log = null;
+    }
+    
+    /**
+     * Writes a snapshot of every store and deletes the log segments and snapshots it supersedes.
+     */
+    public void snapshot() throws IOException {
+        if (log == null) {
+            throw new IllegalStateException("Persistence is not enabled");
+        }
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            // Everything written before the roll is covered by the snapshot taken after it
+            long segment = log.roll();
+            long entries = SnapshotFile.write(SnapshotFile.path(directory, segment), sources);
+            
+            for (long older : SnapshotFile.snapshots(directory)) {
+                if (older < segment) {
+                    Files.deleteIfExists(SnapshotFile.path(directory, older));
+                }
+            }
+            for (long older : WriteAheadLog.segments(directory)) {
+                if (older < segment) {
+                    Files.deleteIfExists(WriteAheadLog.segmentPath(directory, older));
+                }
+            }
+            LOG.info("Snapshot " + segment + " written with " + entries + " entries in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+    
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Snapshot failed, the write-ahead log is kept until the next attempt", e);
+        }
+    }
+    
+    // Loads the newest snapshot, replays the log segments it does not cover and returns the number
+    // of the next segment to write, or 0 if there was nothing to recover
+    private long recover() throws IOException {
+        List<Long> snapshots = SnapshotFile.snapshots(directory);
+        List<Long> segments = WriteAheadLog.segments(directory);
+        if (snapshots.isEmpty() && segments.isEmpty()) {
+            return 0;
+        }
+        
+        long firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.get(snapshots.size() - 1);
+            Path snapshot = SnapshotFile.path(directory, firstSegment);
+            long entries = SnapshotFile.read(snapshot, this::apply);
+            LOG.info("Loaded snapshot " + snapshot.getFileName() + " with " + entries + " entries");
+        }
+        
+        long lastSegment = firstSegment;
+        for (long segment : segments) {
+            if (segment < firstSegment) {
+                continue;
+            }
+            long entries = WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), this::apply);
+            LOG.info("Replayed " + entries + " entries from log segment " + segment);
+            lastSegment = segment;
+        }
+        
+        // Never append to a recovered segment: its tail may be torn
+        return lastSegment + 1;
+    }
+    
+    private void apply(JournalEntry entry) {
+        // IDs issued after a restart must sort after every recovered one, even if the clock went back
+        idGenerator.advancePast(entry.id());
+        JournalSource source = sourcesByType.get(entry.type());
+        if (entry instanceof JournalEntry.Removed) {
+            source.restoreRemoval(entry.id());
+        } else {
+            source.restore(entry);
+        }
+    }
+}
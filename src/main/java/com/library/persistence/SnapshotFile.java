@@ -0,0 +1,145 @@
+package com.library.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary snapshot of every store, written and read through memory-mapped files.
+ * <p>
+ * Layout: {@code [int magic][int formatVersion][long entryCount][long dataLength]} followed by
+ * {@code dataLength} bytes of records framed by {@link JournalCodec}. A snapshot is written to a
+ * temporary file and atomically renamed, so a snapshot file under its final name is always complete.
+ * A snapshot numbered {@code n} covers every log segment numbered below {@code n}.
+ */
+final class SnapshotFile {
+    
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int MAGIC = 0x4C49424D; // "LIBM"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    
+    private SnapshotFile() {}
+    
+    static Path path(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+    }
+    
+    /**
+     * Lists the snapshot numbers present in the directory, in ascending order.
+     */
+    static List<Long> snapshots(Path directory) throws IOException {
+        return PersistenceFiles.numbered(directory, PREFIX, SUFFIX);
+    }
+    
+    /**
+     * Writes the current state of every source and returns the number of entries written.
+     */
+    static long write(Path target, List<JournalSource> sources) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long count;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedWriter writer = new MappedWriter(channel, HEADER_SIZE);
+            try {
+                for (JournalSource source : sources) {
+                    source.forEach(writer::write);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            long end = writer.finish();
+            count = writer.count;
+            
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(count).putLong(end - HEADER_SIZE);
+            header.force();
+            // Mapping past the end grows the file; drop the unused tail of the last window
+            channel.truncate(end);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+    
+    /**
+     * Streams every entry of a snapshot to the sink and returns the number of entries read.
+     */
+    static long read(Path source, Consumer<JournalEntry> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a valid snapshot: " + source);
+            }
+            long expectedCount = header.getLong();
+            long dataLength = header.getLong();
+            if (HEADER_SIZE + dataLength != channel.size()) {
+                throw new IOException("Snapshot size mismatch in " + source);
+            }
+            
+            long[] count = {0};
+            long end = PersistenceFiles.readRecords(channel, HEADER_SIZE, HEADER_SIZE + dataLength, entry -> {
+                sink.accept(entry);
+                count[0]++;
+            });
+            if (end != HEADER_SIZE + dataLength || count[0] != expectedCount) {
+                throw new IOException("Snapshot " + source + " is corrupt after " + count[0] + " entries");
+            }
+            return count[0];
+        }
+    }
+    
+    // Appends framed records to memory-mapped windows, remapping when the current window is full
+    private static final class MappedWriter {
+        
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private ByteBuffer scratch = ByteBuffer.allocate(4096);
+        private long count;
+        
+        MappedWriter(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            map(start);
+        }
+        
+        void write(JournalEntry entry) {
+            scratch.clear();
+            scratch = JournalCodec.encode(entry, scratch);
+            scratch.flip();
+            try {
+                if (window.remaining() < scratch.remaining()) {
+                    window.force();
+                    map(windowStart + window.position());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            window.put(scratch);
+            count++;
+        }
+        
+        long finish() {
+            window.force();
+            return windowStart + window.position();
+        }
+        
+        private void map(long start) throws IOException {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, PersistenceFiles.MAP_WINDOW_SIZE);
+            windowStart = start;
+        }
+    }
+}
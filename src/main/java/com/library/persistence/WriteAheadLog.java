@@ -0,0 +1,323 @@
+package com.library.persistence;
+
+import com.library.exception.JournalException;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Append-only, group-committed log of mutations.
+ * <p>
+ * Mutating threads only enqueue the key of the entity they changed. A single writer thread drains
+ * the queue in batches, reads the <em>current</em> state of each changed entity, writes one record
+ * per distinct key and forces the segment according to the {@link FsyncMode}. Because a record is
+ * always rendered after the mutation that enqueued it, the last record for a key in log order is
+ * never older than the state it stands for, so replay is a simple last-writer-wins per key.
+ * <p>
+ * Once a write fails the log stops for good. Callers check {@link #checkWritable} before they change
+ * anything, so a change is either rejected up front or reaches {@link #append}, which never fails.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    
+    private static final Logger LOG = Logger.getLogger(WriteAheadLog.class);
+    
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    record EntityKey(EntityType type, String id) {}
+    
+    private record Pending(EntityKey key, long sequence) {}
+    
+    private final Path directory;
+    private final FsyncMode fsyncMode;
+    private final long fsyncIntervalNanos;
+    private final int maxBatchSize;
+    private final Function<EntityKey, JournalEntry> resolver;
+    private final BlockingQueue<Pending> queue;
+    
+    // Sequence assignment and enqueueing happen under one lock so queue order matches sequence order
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long lastSequence;
+    
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private volatile long durableSequence;
+    private volatile Exception failure;
+    
+    // Guards the current segment; held by the writer per batch and by roll()
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private FileChannel channel;
+    private long segment;
+    private long writtenSequence;
+    private boolean unforced;
+    private long lastForceNanos;
+    
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    WriteAheadLog(Path directory, long segment, FsyncMode fsyncMode, Duration fsyncInterval, int maxBatchSize,
+                  int queueCapacity, Function<EntityKey, JournalEntry> resolver) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.fsyncMode = fsyncMode;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.resolver = resolver;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.channel = openSegment(segment);
+        this.lastForceNanos = System.nanoTime();
+        this.writer = new Thread(this::runWriter, "library-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Fails with a {@link JournalException} if the log has stopped. Call before changing anything.
+     */
+    void checkWritable() {
+        checkFailure();
+    }
+    
+    /**
+     * Records that an entity changed and returns the sequence number of the mutation. Never fails, as
+     * the change has already been made: an interrupt is kept for the caller, and a log that stopped
+     * since {@link #checkWritable} leaves the change out and fails {@link #awaitDurable} instead.
+     */
+    long append(EntityType type, String id) {
+        appendLock.lock();
+        try {
+            long sequence = ++lastSequence;
+            enqueue(new Pending(new EntityKey(type, id), sequence));
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+    
+    /**
+     * Blocks until the mutation with the given sequence number has been forced to disk.
+     */
+    void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkFailure();
+                durableAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+    
+    /**
+     * Forces and closes the current segment and starts a new one. Every record written before this
+     * call lives in a segment numbered below the returned one.
+     */
+    long roll() throws IOException {
+        channelLock.lock();
+        try {
+            forceLocked();
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            forceLocked();
+            channel.close();
+        } finally {
+            channelLock.unlock();
+        }
+    }
+    
+    // Helper method to wait for room in the queue, giving up only once the writer has stopped
+    private void enqueue(Pending pending) {
+        boolean interrupted = false;
+        try {
+            while (failure == null) {
+                try {
+                    if (queue.offer(pending, IDLE_POLL_NANOS, TimeUnit.NANOSECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        Set<EntityKey> written = new HashSet<>();
+        long pollNanos = fsyncMode == FsyncMode.INTERVAL ? Math.min(fsyncIntervalNanos, IDLE_POLL_NANOS) : IDLE_POLL_NANOS;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        
+        try {
+            while (true) {
+                Pending first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (!running) {
+                        return;
+                    }
+                    forceIfDue();
+                    continue;
+                }
+                
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                buffer = writeBatch(batch, written, buffer);
+                batch.clear();
+                written.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Write-ahead log failed, further mutations will be rejected", e);
+            failure = e;
+            signalDurable();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private ByteBuffer writeBatch(List<Pending> batch, Set<EntityKey> written, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        for (Pending pending : batch) {
+            // Several mutations of one entity in a batch collapse into a single record of its latest state
+            if (!written.add(pending.key())) {
+                continue;
+            }
+            JournalEntry entry = resolver.apply(pending.key());
+            buffer = JournalCodec.encode(entry, buffer);
+        }
+        buffer.flip();
+        
+        channelLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            writtenSequence = batch.get(batch.size() - 1).sequence();
+            unforced = true;
+            if (fsyncMode == FsyncMode.ALWAYS) {
+                forceLocked();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+        
+        if (fsyncMode == FsyncMode.INTERVAL) {
+            forceIfDue();
+        }
+        return buffer;
+    }
+    
+    private void forceIfDue() throws IOException {
+        if (fsyncMode != FsyncMode.INTERVAL) {
+            return;
+        }
+        channelLock.lock();
+        try {
+            if (unforced && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos) {
+                forceLocked();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+    
+    private void forceLocked() throws IOException {
+        if (unforced) {
+            channel.force(false);
+            unforced = false;
+        }
+        lastForceNanos = System.nanoTime();
+        durableSequence = writtenSequence;
+        signalDurable();
+    }
+    
+    private void signalDurable() {
+        durableLock.lock();
+        try {
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+    
+    private void checkFailure() {
+        Exception error = failure;
+        if (error != null) {
+            throw new JournalException("Write-ahead log is unavailable: " + error.getMessage(), error);
+        }
+    }
+    
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+    
+    /**
+     * Lists the segment numbers present in the directory, in ascending order.
+     */
+    static List<Long> segments(Path directory) throws IOException {
+        return PersistenceFiles.numbered(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+    
+    /**
+     * Replays every intact record of a segment. A torn or corrupt tail ends the segment.
+     */
+    static long replay(Path segmentPath, Consumer<JournalEntry> sink) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            long size = segmentChannel.size();
+            long[] count = {0};
+            long end = PersistenceFiles.readRecords(segmentChannel, 0, size, entry -> {
+                sink.accept(entry);
+                count[0]++;
+            });
+            if (end < size) {
+                LOG.warn("Ignoring " + (size - end) + " trailing bytes of torn or corrupt records in " + segmentPath);
+            }
+            return count[0];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.library.repository;
+
+/**
+ * Case folding that agrees with {@link String#equalsIgnoreCase}: two strings are equal ignoring case
+ * exactly when their folded forms are equal, so folded strings can key hash indexes that must treat
+ * them as the same. Each code point is folded on its own, as upper case then
+ * lower case, the way {@code equalsIgnoreCase} compares them. Nothing is trimmed or otherwise normalized.
+ */
+public final class CaseFolding {
+    
+    private CaseFolding() {}
+    
+    /**
+     * Returns the folded form of {@code value}; the same instance if it is already folded.
+     */
+    public static String fold(String value) {
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            if (fold(codePoint) != codePoint) {
+                StringBuilder folded = new StringBuilder(value.length()).append(value, 0, i);
+                for (int j = i; j < value.length(); ) {
+                    int next = value.codePointAt(j);
+                    folded.appendCodePoint(fold(next));
+                    j += Character.charCount(next);
+                }
+                return folded.toString();
+            }
+            i += Character.charCount(codePoint);
+        }
+        return value;
+    }
+    
+    /**
+     * Returns the hash code of the folded form of {@code value}, without building it.
+     */
+    public static int hash(String value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            hash = 31 * hash + fold(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return hash;
+    }
+    
+    private static int fold(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+}
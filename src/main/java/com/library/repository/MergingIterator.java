@@ -0,0 +1,59 @@
+package com.library.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges iterators that are each in key order into one iterator in key order. When several sources
+ * hold the same key, the entry of the first source wins and the others are skipped, so a record
+ * that is moving between two stores is listed once. Entries are passed through as they are; their
+ * values are not read here, so sources can decode them lazily.
+ */
+public final class MergingIterator<V> implements Iterator<Map.Entry<String, V>> {
+    
+    private record Head<V>(Map.Entry<String, V> entry, int source) {
+    }
+    
+    private final List<Iterator<Map.Entry<String, V>>> sources;
+    private final PriorityQueue<Head<V>> heads;
+    
+    public MergingIterator(List<Iterator<Map.Entry<String, V>>> sources) {
+        this.sources = sources;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+            int order = a.entry().getKey().compareTo(b.entry().getKey());
+            return order != 0 ? order : Integer.compare(a.source(), b.source());
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            advance(i);
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+    
+    @Override
+    public Map.Entry<String, V> next() {
+        Head<V> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        advance(head.source());
+        String key = head.entry().getKey();
+        while (!heads.isEmpty() && heads.peek().entry().getKey().equals(key)) {
+            advance(heads.poll().source());
+        }
+        return head.entry();
+    }
+    
+    private void advance(int source) {
+        Iterator<Map.Entry<String, V>> iterator = sources.get(source);
+        if (iterator.hasNext()) {
+            heads.add(new Head<>(iterator.next(), source));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind the services: records keyed by ID, iterated in ID order, with secondary
+ * indexes maintained on every write. Single-record operations are atomic and follow the
+ * {@link java.util.concurrent.ConcurrentMap} contract; iteration is weakly consistent unless
+ * stated otherwise. Services depend on this interface only, so the backend can change without
+ * touching them.
+ */
+public interface Repository<V> {
+    
+    /**
+     * Handle of a secondary index, as returned by {@link #index(Function)}.
+     */
+    interface Index<V> {
+    }
+    
+    V get(String id);
+    
+    boolean containsKey(String id);
+    
+    V put(String id, V value);
+    
+    boolean replace(String id, V expected, V replacement);
+    
+    V remove(String id);
+    
+    boolean remove(String id, V expected);
+    
+    int size();
+    
+    /**
+     * All records in ID order, read lazily while writes go on.
+     */
+    Stream<V> stream();
+    
+    /**
+     * Entries in ID order, starting after {@code id} (or at the first entry if null). Backs cursor pagination.
+     */
+    Iterator<Map.Entry<String, V>> entriesAfter(String id);
+    
+    /**
+     * All records in ID order as of a single point in time: no write is half-seen, and no write
+     * is seen without every write that completed before it.
+     */
+    List<V> snapshot();
+    
+    /**
+     * Declares a secondary index on the key {@code key} computes for each record; records for which
+     * it returns null are not indexed. Must be declared while the repository is still empty.
+     */
+    Index<V> index(Function<V, String> key);
+    
+    /**
+     * Records whose index key currently equals {@code key}, in no particular order.
+     */
+    List<V> find(Index<V> index, String key);
+}
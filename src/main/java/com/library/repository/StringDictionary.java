@@ -0,0 +1,179 @@
+package com.library.repository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent, reference-counted two-way dictionary between strings and small int codes. Each
+ * distinct string is held once, however many records refer to it: {@link #acquire} takes a
+ * reference and returns the string's code, and {@link #release} gives one back. When the last
+ * reference goes, the string is dropped and its code is reused for the next new string, so the
+ * dictionary only holds strings that are still in use. A code is valid while its holder keeps its
+ * reference.
+ * <p>
+ * Lookups are lock-free. Taking and releasing references locks only the string's own map entry;
+ * assigning and freeing codes takes a lock.
+ */
+public final class StringDictionary {
+    
+    public static final int NOT_FOUND = -1;
+    
+    private final boolean ignoreCase;
+    // Each entry is its own key: equality and hash cover the string only
+    private final Map<Entry, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Strings by code, null for a free code. Only changed under the lock; a code is published in
+    // entries after its slot is filled
+    private volatile String[] values = new String[64];
+    private int size;
+    // Codes given back by released strings, reused before the table grows
+    private int[] freeCodes = new int[16];
+    private int freeCount;
+    
+    private StringDictionary(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+    
+    /**
+     * Creates a dictionary in which strings are equal only if they are identical.
+     */
+    public StringDictionary() {
+        this(false);
+    }
+    
+    /**
+     * Creates a dictionary in which strings that are {@link String#equalsIgnoreCase equal ignoring case}
+     * share one code. The spelling that took the first reference is the one kept.
+     */
+    public static StringDictionary ignoringCase() {
+        return new StringDictionary(true);
+    }
+    
+    /**
+     * Takes a reference on {@code value} and returns its code, assigning a free one if it has none yet.
+     */
+    public int acquire(String value) {
+        return entries.compute(new Entry(value, hash(value)), (probe, entry) -> {
+            if (entry == null) {
+                probe.code = assign(value);
+                entry = probe;
+            }
+            entry.references++;
+            return entry;
+        }).code;
+    }
+    
+    /**
+     * Gives back one reference on the string with this code. The caller must hold that reference.
+     */
+    public void release(int code) {
+        String value = decode(code);
+        entries.computeIfPresent(new Entry(value, hash(value)), (probe, entry) -> {
+            if (--entry.references > 0) {
+                return entry;
+            }
+            free(entry.code);
+            return null;
+        });
+    }
+    
+    /**
+     * Returns the code of {@code value}, or {@link #NOT_FOUND} if nothing holds a reference on it.
+     * Takes no reference, so the code can be freed and reused as soon as it is returned.
+     */
+    public int find(String value) {
+        Entry entry = entries.get(new Entry(value, hash(value)));
+        return entry != null ? entry.code : NOT_FOUND;
+    }
+    
+    /**
+     * Returns the string held under {@code code}: the first spelling acquired, in a dictionary that
+     * ignores case.
+     */
+    public String decode(int code) {
+        String[] current = values;
+        String value = code >= 0 && code < current.length ? current[code] : null;
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown dictionary code: " + code);
+        }
+        return value;
+    }
+    
+    /**
+     * Returns the number of distinct strings currently held.
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    private int hash(String value) {
+        return ignoreCase ? CaseFolding.hash(value) : value.hashCode();
+    }
+    
+    // Helper method to give a new string a code, reusing a freed one when there is any
+    private int assign(String value) {
+        lock.lock();
+        try {
+            int code;
+            String[] current = values;
+            if (freeCount > 0) {
+                code = freeCodes[--freeCount];
+            } else {
+                code = size++;
+                if (code == current.length) {
+                    current = Arrays.copyOf(current, code * 2);
+                }
+            }
+            current[code] = value;
+            values = current;
+            return code;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Helper method to drop a released string and put its code up for reuse
+    private void free(int code) {
+        lock.lock();
+        try {
+            String[] current = values;
+            current[code] = null;
+            values = current;
+            if (freeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+            }
+            freeCodes[freeCount++] = code;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private final class Entry {
+        
+        final String value;
+        final int hash;
+        // Written before the entry is published, and then only inside its own map entry's lock
+        int code = NOT_FOUND;
+        int references;
+        
+        Entry(String value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry entry)) {
+                return false;
+            }
+            return ignoreCase ? value.equalsIgnoreCase(entry.value) : value.equals(entry.value);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
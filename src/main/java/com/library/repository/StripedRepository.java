@@ -0,0 +1,308 @@
+package com.library.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * In-memory {@link Repository} split into lock-striped shards. An ID hashes to one of N stripes (a
+ * power of two); each stripe has its own ID-ordered map, its own slice of every secondary index, a
+ * write lock and a version counter. Writes to different stripes never contend, and a write updates
+ * its record and the index entries under the same lock, so readers never see them disagree for long.
+ * Reads take no locks. Ordered iteration merges the stripes by ID.
+ * <p>
+ * The version counter is a sequence lock: odd while a write is in progress. {@link #snapshot()}
+ * copies all stripes and keeps the copy if no version moved meanwhile; if writers keep getting in
+ * the way, it takes every stripe lock for the copy instead.
+ * <p>
+ * The stripe count defaults to four per core, rounded up to a power of two. It can be set with the
+ * {@code library.storage.stripes} system property, read once when the first repository is created
+ * (a system property rather than application config, so stores built outside the container get it too).
+ */
+public final class StripedRepository<V> implements Repository<V> {
+    
+    private static final int MAX_STRIPES = 1 << 12;
+    private static final int OPTIMISTIC_SNAPSHOT_ATTEMPTS = 3;
+    
+    public static final int DEFAULT_STRIPES = defaultStripes();
+    
+    private final Stripe<V>[] stripes;
+    private final int mask;
+    private final List<IndexDefinition<V>> indexes = new CopyOnWriteArrayList<>();
+    
+    private record IndexDefinition<V>(int slot, Function<V, String> key) implements Index<V> {
+    }
+    
+    private static final class Stripe<V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentNavigableMap<String, V> records = new ConcurrentSkipListMap<>();
+        // One map per secondary index: index key -> IDs of this stripe's records with that key
+        final List<Map<String, Set<String>>> indexEntries = new CopyOnWriteArrayList<>();
+        // Only written under the lock; odd while a write is in progress
+        volatile long version;
+        volatile int size;
+    }
+    
+    public StripedRepository() {
+        this(DEFAULT_STRIPES);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public StripedRepository(int stripeCount) {
+        if (stripeCount < 1 || stripeCount > MAX_STRIPES || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two up to " + MAX_STRIPES + ": " + stripeCount);
+        }
+        stripes = (Stripe<V>[]) new Stripe<?>[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        mask = stripeCount - 1;
+    }
+    
+    @Override
+    public V get(String id) {
+        return stripeFor(id).records.get(id);
+    }
+    
+    @Override
+    public boolean containsKey(String id) {
+        return stripeFor(id).records.containsKey(id);
+    }
+    
+    @Override
+    public V put(String id, V value) {
+        Stripe<V> stripe = beginWrite(id);
+        try {
+            V previous = stripe.records.put(id, value);
+            reindex(stripe, id, previous, value);
+            if (previous == null) {
+                stripe.size++;
+            }
+            return previous;
+        } finally {
+            endWrite(stripe);
+        }
+    }
+    
+    @Override
+    public boolean replace(String id, V expected, V replacement) {
+        Stripe<V> stripe = beginWrite(id);
+        try {
+            if (!stripe.records.replace(id, expected, replacement)) {
+                return false;
+            }
+            reindex(stripe, id, expected, replacement);
+            return true;
+        } finally {
+            endWrite(stripe);
+        }
+    }
+    
+    @Override
+    public V remove(String id) {
+        Stripe<V> stripe = beginWrite(id);
+        try {
+            V previous = stripe.records.remove(id);
+            if (previous != null) {
+                reindex(stripe, id, previous, null);
+                stripe.size--;
+            }
+            return previous;
+        } finally {
+            endWrite(stripe);
+        }
+    }
+    
+    @Override
+    public boolean remove(String id, V expected) {
+        Stripe<V> stripe = beginWrite(id);
+        try {
+            if (!stripe.records.remove(id, expected)) {
+                return false;
+            }
+            reindex(stripe, id, expected, null);
+            stripe.size--;
+            return true;
+        } finally {
+            endWrite(stripe);
+        }
+    }
+    
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+    
+    @Override
+    public Stream<V> stream() {
+        Iterator<Map.Entry<String, V>> entries = entriesAfter(null);
+        Iterator<V> values = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+            
+            @Override
+            public V next() {
+                return entries.next().getValue();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(values,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    @Override
+    public Iterator<Map.Entry<String, V>> entriesAfter(String id) {
+        List<Iterator<Map.Entry<String, V>>> sources = new ArrayList<>(stripes.length);
+        for (Stripe<V> stripe : stripes) {
+            Map<String, V> view = id == null ? stripe.records : stripe.records.tailMap(id, false);
+            sources.add(view.entrySet().iterator());
+        }
+        return new MergingIterator<>(sources);
+    }
+    
+    @Override
+    public List<V> snapshot() {
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOT_ATTEMPTS; attempt++) {
+            List<V> copy = tryOptimisticSnapshot();
+            if (copy != null) {
+                return copy;
+            }
+            Thread.onSpinWait();
+        }
+        // Busy repository: hold every stripe still while copying. Locks are always taken in stripe order.
+        for (Stripe<V> stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            return copyStripes();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].lock.unlock();
+            }
+        }
+    }
+    
+    @Override
+    public Index<V> index(Function<V, String> key) {
+        if (size() != 0) {
+            throw new IllegalStateException("Indexes must be declared before the first record is stored");
+        }
+        IndexDefinition<V> index = new IndexDefinition<>(indexes.size(), key);
+        for (Stripe<V> stripe : stripes) {
+            stripe.indexEntries.add(new ConcurrentHashMap<>());
+        }
+        indexes.add(index);
+        return index;
+    }
+    
+    @Override
+    public List<V> find(Index<V> index, String key) {
+        IndexDefinition<V> definition = (IndexDefinition<V>) index;
+        List<V> result = new ArrayList<>();
+        for (Stripe<V> stripe : stripes) {
+            Set<String> ids = stripe.indexEntries.get(definition.slot()).get(key);
+            if (ids == null) {
+                continue;
+            }
+            for (String id : ids) {
+                // Reads are lock-free, so a record can change between the index and the map; the record decides
+                V value = stripe.records.get(id);
+                if (value != null && key.equals(definition.key().apply(value))) {
+                    result.add(value);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private Stripe<V> stripeFor(String id) {
+        int hash = id.hashCode();
+        // Spread the high bits down, as HashMap does, since the mask only keeps the low ones
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+    
+    private Stripe<V> beginWrite(String id) {
+        Stripe<V> stripe = stripeFor(id);
+        stripe.lock.lock();
+        stripe.version++;
+        return stripe;
+    }
+    
+    private void endWrite(Stripe<V> stripe) {
+        stripe.version++;
+        stripe.lock.unlock();
+    }
+    
+    // Moves the record's entries from the keys of its previous value to those of its new one. The new
+    // entry is added before the old one is removed, so a lock-free reader never finds the record in neither.
+    private void reindex(Stripe<V> stripe, String id, V previous, V value) {
+        for (IndexDefinition<V> index : indexes) {
+            String oldKey = previous != null ? index.key().apply(previous) : null;
+            String newKey = value != null ? index.key().apply(value) : null;
+            if (oldKey != null && oldKey.equals(newKey)) {
+                continue;
+            }
+            Map<String, Set<String>> entries = stripe.indexEntries.get(index.slot());
+            if (newKey != null) {
+                entries.computeIfAbsent(newKey, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            if (oldKey != null) {
+                Set<String> ids = entries.get(oldKey);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        entries.remove(oldKey, ids);
+                    }
+                }
+            }
+        }
+    }
+    
+    // Copies all stripes without locking; returns null if any stripe was written to in the meantime
+    private List<V> tryOptimisticSnapshot() {
+        long[] versions = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            versions[i] = stripes[i].version;
+            if ((versions[i] & 1) != 0) {
+                return null;
+            }
+        }
+        List<V> copy = copyStripes();
+        for (int i = 0; i < stripes.length; i++) {
+            if (stripes[i].version != versions[i]) {
+                return null;
+            }
+        }
+        return copy;
+    }
+    
+    private List<V> copyStripes() {
+        List<V> copy = new ArrayList<>(size());
+        entriesAfter(null).forEachRemaining(entry -> copy.add(entry.getValue()));
+        return copy;
+    }
+    
+    private static int defaultStripes() {
+        int stripes = Integer.getInteger("library.storage.stripes", 4 * Runtime.getRuntime().availableProcessors());
+        // Round up to a power of two, so picking a stripe is a mask
+        int bounded = Math.min(stripes, MAX_STRIPES);
+        return bounded <= 1 ? 1 : Integer.highestOneBit(bounded - 1) << 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.library.service;
+
+import com.library.exception.ResourceNotFoundException;
+import com.library.model.Book;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import org.jboss.logging.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Serialized JSON bodies for the catalog read endpoints, so repeated reads skip JSON-B entirely.
+ * A single book's entry stays valid while its stored record and copy count are unchanged; list and
+ * page entries stay valid while the catalog version is unchanged. Stale entries are rebuilt on the
+ * next read rather than evicted eagerly. Each entry carries an ETag derived from its bytes, so a
+ * client revalidating an unchanged body gets a 304 without anything being serialized. Its
+ * Last-Modified is the time of the latest catalog change when the entry was built, not the time it
+ * was serialized, so an unchanged body keeps its date however often it is rebuilt.
+ * <p>
+ * Bodies over {@value #MAX_CACHED_BODY_BYTES} bytes, in practice only the unpaginated list of a large
+ * catalog, are not kept. Their ETag is only known once they are serialized, so every request for them,
+ * conditional or not, serializes the whole catalog again. Large catalogs should be read in pages
+ * ({@code limit}/{@code cursor}) or streamed as NDJSON, which are cheap per request.
+ */
+@ApplicationScoped
+public class BookResponseCache {
+    
+    private static final Logger LOG = Logger.getLogger(BookResponseCache.class);
+    
+    // Bounds on the cache; when a map outgrows its bound it is simply cleared and refills with hot entries
+    private static final int MAX_BOOK_ENTRIES = 100_000;
+    private static final int MAX_PAGE_ENTRIES = 1_024;
+    // Larger bodies (the full list of a big catalog) are served with an ETag but not kept, see above
+    static final int MAX_CACHED_BODY_BYTES = 8 * 1024 * 1024;
+    
+    // Key of the unpaginated list in the page map; page keys always contain a separator
+    private static final String ALL_BOOKS = "all";
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    Jsonb jsonb;
+    
+    private final Map<String, BookEntry> bookEntries = new ConcurrentHashMap<>();
+    private final Map<String, PageEntry> pageEntries = new ConcurrentHashMap<>();
+    
+    /**
+     * A serialized UTF-8 JSON body with its validators.
+     */
+    public record CachedResponse(byte[] body, String etag, Date lastModified) {}
+    
+    // Valid while the stored record is the same instance and still has the same number of copies
+    private record BookEntry(Book book, int quantity, CachedResponse response) {}
+    
+    // Valid while the catalog version is unchanged
+    private record PageEntry(long version, CachedResponse response) {}
+    
+    public CachedResponse book(String id) {
+        // Dated with the latest change made before the book is read, like the page entries below
+        long modified = bookService.catalogModified();
+        Book book = bookService.findBook(id);
+        if (book == null) {
+            bookEntries.remove(id);
+            throw ResourceNotFoundException.book(id);
+        }
+        int quantity = book.quantity();
+        BookEntry entry = bookEntries.get(id);
+        if (entry != null && entry.book() == book && entry.quantity() == quantity) {
+            return entry.response();
+        }
+        
+        CachedResponse response = serialize(book.toResponse(quantity), modified);
+        if (bookEntries.size() >= MAX_BOOK_ENTRIES) {
+            bookEntries.clear();
+        }
+        bookEntries.put(id, new BookEntry(book, quantity, response));
+        return response;
+    }
+    
+    public CachedResponse allBooks() {
+        return page(ALL_BOOKS, () -> bookService.getAllBooks());
+    }
+    
+    public CachedResponse booksPage(String cursor, Integer limit) {
+        return page(cursor + '\u0000' + limit, () -> bookService.getBooksPage(cursor, limit));
+    }
+    
+    private CachedResponse page(String key, Supplier<Object> loader) {
+        // Read the version before the data, so an entry is never labelled newer than its contents
+        long version = bookService.catalogVersion();
+        long modified = bookService.catalogModified();
+        PageEntry entry = pageEntries.get(key);
+        if (entry != null && entry.version() == version) {
+            return entry.response();
+        }
+        
+        CachedResponse response = serialize(loader.get(), modified);
+        if (response.body().length <= MAX_CACHED_BODY_BYTES) {
+            if (pageEntries.size() >= MAX_PAGE_ENTRIES) {
+                pageEntries.clear();
+            }
+            pageEntries.put(key, new PageEntry(version, response));
+        }
+        return response;
+    }
+    
+    private CachedResponse serialize(Object value, long modified) {
+        byte[] body = jsonb.toJson(value).getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        // Strong validator from the bytes themselves, so an unchanged body keeps its tag across rebuilds
+        String etag = Integer.toHexString(body.length) + '-' + Long.toHexString(crc.getValue());
+        LOG.debugf("Serialized catalog response: %d bytes, ETag %s", body.length, etag);
+        return new CachedResponse(body, etag, new Date(modified));
+    }
+}
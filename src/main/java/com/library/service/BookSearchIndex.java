@@ -0,0 +1,368 @@
+package com.library.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process inverted index over book titles and authors. Text is split into
+ * case-folded, accent-stripped tokens; each token maps to the IDs of the books
+ * containing it, and a sorted vocabulary answers prefix lookups with a range scan.
+ * Every query term must match (as a whole token or a token prefix), and hits are
+ * ranked by where and how well each term matched.
+ */
+class BookSearchIndex {
+    
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+    
+    // Bounds on the work a single query can do, so short prefixes like "a" stay cheap
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MAX_CANDIDATES = 1_000;
+    // Terms expanding to at most this many tokens are checked by probing postings instead of tokens
+    private static final int MAX_PROBED_EXPANSIONS = 4;
+    
+    // Per-term scores: a title match outranks an author match, a whole token outranks a prefix
+    private static final int TITLE_EXACT = 4;
+    private static final int TITLE_PREFIX = 2;
+    private static final int AUTHOR_EXACT = 2;
+    private static final int AUTHOR_PREFIX = 1;
+    // The distinct per-term scores, best first; AUTHOR_EXACT scores the same as TITLE_PREFIX
+    private static final int[] SCORE_TIERS = {TITLE_EXACT, TITLE_PREFIX, AUTHOR_PREFIX};
+    
+    // Field bits stored with each posting, so single-term queries rank without touching the books
+    private static final int IN_TITLE = 1;
+    private static final int IN_AUTHOR = 2;
+    
+    // token -> (book ID -> field bits)
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> vocabulary = new ConcurrentSkipListSet<>();
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+    
+    // Postings of one token. It keeps the token instance the vocabulary was built from, so documents
+    // can share it rather than each holding its own copy of common words and author names. Most
+    // tokens occur in only a few books, so the table starts at its smallest size and grows on demand.
+    private static final class Postings extends ConcurrentHashMap<String, Integer> {
+        
+        private final String token;
+        
+        Postings(String token) {
+            super(1);
+            this.token = token;
+        }
+    }
+    
+    private record Document(String[] title, String[] author) {
+        
+        boolean contains(String token) {
+            return indexOf(title, token) >= 0 || indexOf(author, token) >= 0;
+        }
+        
+        int fields(String token) {
+            return (indexOf(title, token) >= 0 ? IN_TITLE : 0) | (indexOf(author, token) >= 0 ? IN_AUTHOR : 0);
+        }
+        
+        int score(String term) {
+            return Math.max(score(title, term, TITLE_EXACT, TITLE_PREFIX), score(author, term, AUTHOR_EXACT, AUTHOR_PREFIX));
+        }
+        
+        private static int score(String[] tokens, String term, int exact, int prefix) {
+            int best = 0;
+            for (String token : tokens) {
+                if (token.equals(term)) {
+                    return exact;
+                }
+                if (token.startsWith(term)) {
+                    best = prefix;
+                }
+            }
+            return best;
+        }
+        
+        private static int indexOf(String[] tokens, String token) {
+            for (int i = 0; i < tokens.length; i++) {
+                if (tokens[i].equals(token)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    // Postings of one vocabulary token matched by a query term, and whether the term equals the token
+    private record Expansion(Map<String, Integer> ids, boolean exact) {}
+    
+    private record Hit(String id, int score) {}
+    
+    /**
+     * Adds or re-indexes a book. Updates to the same book are serialized on its document
+     * entry; new tokens are linked before stale ones are unlinked, so a book that keeps
+     * a token never drops out of its postings. The stored document holds the shared
+     * vocabulary instances of its tokens.
+     */
+    void index(String id, String title, String author) {
+        Document document = new Document(tokenize(title), tokenize(author));
+        documents.compute(id, (k, previous) -> {
+            String[] titleTokens = document.title();
+            for (int i = 0; i < titleTokens.length; i++) {
+                titleTokens[i] = link(titleTokens[i], id, document.fields(titleTokens[i]));
+            }
+            String[] authorTokens = document.author();
+            for (int i = 0; i < authorTokens.length; i++) {
+                authorTokens[i] = link(authorTokens[i], id, document.fields(authorTokens[i]));
+            }
+            if (previous != null) {
+                unlinkStale(id, previous.title(), document);
+                unlinkStale(id, previous.author(), document);
+            }
+            return document;
+        });
+    }
+    
+    void remove(String id) {
+        documents.computeIfPresent(id, (k, previous) -> {
+            for (String token : previous.title()) {
+                unlink(token, id);
+            }
+            for (String token : previous.author()) {
+                unlink(token, id);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Returns the IDs of the best matching books, best first. Every query term is matched as
+     * a token prefix. Candidates come from the term with the fewest postings, taken best score
+     * first, and are checked against the other terms as they are scanned. The scan stops once a
+     * bounded number of books have matched every term, so when more books match than that, only
+     * the ranking among books with the same score on the driving term is best-effort.
+     */
+    List<String> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return Collections.emptyList();
+        }
+        if (terms.length > MAX_QUERY_TERMS) {
+            terms = Arrays.copyOf(terms, MAX_QUERY_TERMS);
+        }
+        
+        // Resolve every term to its expansions; the one with the fewest postings drives the scan
+        List<List<Expansion>> resolved = new ArrayList<>(terms.length);
+        int driverTerm = -1;
+        long driverSize = Long.MAX_VALUE;
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i];
+            List<Expansion> expansions = new ArrayList<>();
+            long size = 0;
+            for (String token : vocabulary.subSet(term, true, term + Character.MAX_VALUE, true)) {
+                Map<String, Integer> ids = postings.get(token);
+                if (ids != null) {
+                    expansions.add(new Expansion(ids, token.equals(term)));
+                    size += ids.size();
+                }
+                if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+            }
+            if (size == 0) {
+                // Every term has to match, so one unknown term means no results
+                return Collections.emptyList();
+            }
+            resolved.add(expansions);
+            if (size < driverSize) {
+                driverTerm = i;
+                driverSize = size;
+            }
+        }
+        
+        // Scan the driver term's postings best score first, so the cap keeps the best candidates. Only
+        // books that match every term count toward the cap. A book reached through several expansions
+        // is seen first in the pass of its best score and skipped afterwards.
+        List<Expansion> driver = resolved.get(driverTerm);
+        Set<String> seen = driver.size() > 1 ? new HashSet<>() : null;
+        // Min-heap holding the current top hits, worst on top
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BookSearchIndex::compareHits);
+        int matched = 0;
+        scan:
+        for (int tier : SCORE_TIERS) {
+            for (Expansion expansion : driver) {
+                for (Map.Entry<String, Integer> posting : expansion.ids().entrySet()) {
+                    String id = posting.getKey();
+                    if (score(posting.getValue(), expansion.exact()) != tier || seen != null && !seen.add(id)) {
+                        continue;
+                    }
+                    int score = tier;
+                    if (terms.length > 1) {
+                        score = scoreRemainingTerms(id, terms, resolved, driverTerm, score);
+                        if (score == 0) {
+                            continue;
+                        }
+                    }
+                    top.offer(new Hit(id, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                    if (++matched == MAX_CANDIDATES) {
+                        break scan;
+                    }
+                }
+            }
+        }
+        
+        String[] result = new String[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().id();
+        }
+        return Arrays.asList(result);
+    }
+    
+    // Adds the scores of the non-driver terms, or returns 0 if the book misses any of them
+    private int scoreRemainingTerms(String id, String[] terms, List<List<Expansion>> resolved, int driverTerm,
+                                    int score) {
+        Document document = null;
+        for (int i = 0; i < terms.length; i++) {
+            if (i == driverTerm) {
+                continue;
+            }
+            int termScore = 0;
+            List<Expansion> expansions = resolved.get(i);
+            if (expansions.size() <= MAX_PROBED_EXPANSIONS) {
+                // Narrow term: a few hash probes are cheaper than loading the book's tokens
+                for (Expansion expansion : expansions) {
+                    Integer fields = expansion.ids().get(id);
+                    if (fields != null) {
+                        termScore = Math.max(termScore, score(fields, expansion.exact()));
+                    }
+                }
+            } else if (isExactTitleMatch(expansions.get(0), id)) {
+                // Already the best score a term can get, no need to look at the other expansions
+                termScore = TITLE_EXACT;
+            } else {
+                if (document == null) {
+                    document = documents.get(id);
+                    if (document == null) {
+                        return 0;
+                    }
+                }
+                termScore = document.score(terms[i]);
+            }
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+    
+    private static boolean isExactTitleMatch(Expansion expansion, String id) {
+        if (!expansion.exact()) {
+            return false;
+        }
+        Integer fields = expansion.ids().get(id);
+        return fields != null && (fields & IN_TITLE) != 0;
+    }
+    
+    private static int score(int fields, boolean exact) {
+        if ((fields & IN_TITLE) != 0) {
+            return exact ? TITLE_EXACT : TITLE_PREFIX;
+        }
+        return exact ? AUTHOR_EXACT : AUTHOR_PREFIX;
+    }
+    
+    /**
+     * Splits text into lower-cased, accent-stripped tokens of letters and digits. Apostrophes are
+     * dropped inside a word ("Philosopher's" becomes "philosophers"); any other character separates
+     * tokens. Duplicate tokens are removed.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String folded = foldCase(text);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if ((c == '\'' || c == '’') && token.length() > 0) {
+                continue;
+            } else if (token.length() > 0) {
+                addToken(tokens, token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            addToken(tokens, token.toString());
+        }
+        return tokens.toArray(new String[0]);
+    }
+    
+    private static void addToken(List<String> tokens, String token) {
+        if (!tokens.contains(token)) {
+            tokens.add(token);
+        }
+    }
+    
+    private static String foldCase(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                // Decompose accented letters and drop the combining marks, so "é" matches "e"
+                return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+            }
+        }
+        return lower;
+    }
+    
+    // Adds the book to the token's postings and returns the token's shared instance
+    private String link(String token, String id, int fields) {
+        return postings.compute(token, (t, ids) -> {
+            if (ids == null) {
+                ids = new Postings(t);
+                vocabulary.add(t);
+            }
+            ids.put(id, fields);
+            return ids;
+        }).token;
+    }
+    
+    private void unlink(String token, String id) {
+        postings.computeIfPresent(token, (t, ids) -> {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                vocabulary.remove(t);
+                return null;
+            }
+            return ids;
+        });
+    }
+    
+    private void unlinkStale(String id, String[] previousTokens, Document current) {
+        for (String token : previousTokens) {
+            if (!current.contains(token)) {
+                unlink(token, id);
+            }
+        }
+    }
+    
+    // Orders hits worst first: lower score, then higher ID
+    private static int compareHits(Hit a, Hit b) {
+        if (a.score() != b.score()) {
+            return Integer.compare(a.score(), b.score());
+        }
+        return b.id().compareTo(a.id());
+    }
+}
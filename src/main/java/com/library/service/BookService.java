@@ -1,24 +1,89 @@
 package com.library.service;
 
+import com.library.dto.BookImportDTO;
 import com.library.dto.BookRequestDTO;
 import com.library.dto.BookResponseDTO;
+import com.library.dto.PageResponseDTO;
+import com.library.exception.BookNotAvailableException;
+import com.library.exception.DuplicateResourceException;
+import com.library.exception.ErrorCode;
+import com.library.exception.InvalidRequestException;
+import com.library.exception.LibraryException;
+import com.library.exception.ResourceInUseException;
+import com.library.exception.ResourceNotFoundException;
+import com.library.id.IdGenerator;
+import com.library.metrics.LibraryMetrics;
+import com.library.model.Book;
+import com.library.persistence.EntityType;
+import com.library.persistence.Journal;
+import com.library.persistence.JournalEntry;
+import com.library.persistence.JournalSource;
+import com.library.repository.CaseFolding;
+import com.library.repository.Repository;
+import com.library.repository.StringDictionary;
+import com.library.repository.StripedRepository;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class BookService {
     
     private static final Logger LOG = Logger.getLogger(BookService.class);
     
-    // In-memory storage using ConcurrentHashMap for thread safety
-    private final Map<String, BookResponseDTO> books = new ConcurrentHashMap<>();
+    @Inject
+    Journal journal;
+    
+    @Inject
+    IdGenerator idGenerator;
+    
+    @Inject
+    LibraryMetrics metrics;
+    
+    // In-memory storage of immutable book records, ordered by ID so list endpoints can paginate
+    // with a stable cursor. Edits replace a record atomically; copies live in its shared counter.
+    private final Repository<Book> books = new StripedRepository<>();
+    
+    // Titles and authors, compared ignoring case; their codes make up the title/author key. Every
+    // book holds a reference on both of its codes, and shares the dictionary's string where its own
+    // spelling is the same
+    private final StringDictionary names = StringDictionary.ignoringCase();
+    
+    // Secondary index: packed title/author key -> book ID, used for duplicate detection
+    private final Map<Long, String> titleAuthorIndex = new ConcurrentHashMap<>();
+    
+    // Active lendings per book, so a delete can refuse (or cascade) without scanning the lendings
+    private final ReferenceCounts references = new ReferenceCounts();
+    
+    // Full-text index over titles and authors, kept in step with every change to the catalog
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+    
+    // Bumped after every change to the catalog, copy counts included, so cached responses can tell
+    // whether they are still current
+    private final AtomicLong catalogVersion = new AtomicLong();
+    
+    // Time of the latest change to the catalog, for Last-Modified; never goes backwards
+    private final AtomicLong catalogModified = new AtomicLong(System.currentTimeMillis());
     
     @PostConstruct
     public void initializeBooks() {
+        if (journal.isEnabled()) {
+            // Books are recovered from disk; samples are only seeded into an empty data directory
+            LOG.info("Persistence enabled, skipping sample books until recovery has run");
+            return;
+        }
+        seedSampleBooks();
+    }
+    
+    public void seedSampleBooks() {
         LOG.info("Initializing BookService with sample books...");
         
         // Add some sample books
@@ -47,17 +112,15 @@ public class BookService {
         
         for (String[] book : sampleBooks) {
             try {
-                String id = UUID.randomUUID().toString().substring(0,5);
-                BookResponseDTO bookResponseDTO = new BookResponseDTO(
-                    id, 
-                    book[0], 
-                    book[1], 
-                    true, // Available
-                    1     // Quantity
-                );
-                
-                books.put(id, bookResponseDTO);
-                LOG.info("Added sample book: " + book[0] + " by " + book[1]);
+                String id = idGenerator.nextId();
+                Book sample = newBook(id, book[0], book[1], 1);
+                references.register(id);
+                books.put(id, sample);
+                titleAuthorIndex.put(sample.titleAuthorKey(), id);
+                searchIndex.index(id, book[0], book[1]);
+                catalogChanged();
+                journal.commit(EntityType.BOOK, id);
+                LOG.debugf("Added sample book: %s by %s", book[0], book[1]);
                 
             } catch (Exception e) {
                 LOG.warn("Error adding sample book: " + e.getMessage());
@@ -67,155 +130,522 @@ public class BookService {
         LOG.info("BookService initialization completed. Total books: " + books.size());
     }
     
+    public int countBooks() {
+        return books.size();
+    }
+    
     public List<BookResponseDTO> getAllBooks() {
-        LOG.info("Retrieving all books. Total books: " + books.size());
-        return new ArrayList<>(books.values());
+        LOG.debugf("Retrieving all books. Total books: %d", books.size());
+        List<Book> snapshot = books.snapshot();
+        List<BookResponseDTO> result = new ArrayList<>(snapshot.size());
+        for (Book book : snapshot) {
+            result.add(book.toResponse());
+        }
+        return result;
+    }
+    
+    public PageResponseDTO<BookResponseDTO> getBooksPage(String cursor, Integer limit) {
+        LOG.debugf("Retrieving books page. Cursor: %s, Limit: %s", cursor, limit);
+        return Pagination.page(books, cursor, limit, Book::toResponse);
+    }
+    
+    // Lazily walks the books in ID order, so callers can write them out with bounded memory
+    public Stream<BookResponseDTO> streamBooks() {
+        LOG.debugf("Streaming all books. Total books: %d", books.size());
+        return books.stream().map(Book::toResponse);
     }
     
     public BookResponseDTO getBookById(String id) {
-        LOG.info("Retrieving book with ID: " + id);
-        BookResponseDTO book = books.get(id);
+        LOG.debugf("Retrieving book with ID: %s", id);
+        Book book = books.get(id);
         if (book == null) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+            throw ResourceNotFoundException.book(id);
         }
-        return book;
+        return book.toResponse();
+    }
+    
+    // Current record for an ID, or null; used by the response cache to validate its entries
+    Book findBook(String id) {
+        return books.get(id);
+    }
+    
+    long catalogVersion() {
+        return catalogVersion.get();
+    }
+    
+    long catalogModified() {
+        return catalogModified.get();
+    }
+    
+    // Number of distinct titles and authors (ignoring case) the catalog dictionary holds
+    int dictionarySize() {
+        return names.size();
+    }
+    
+    public List<BookResponseDTO> searchBooks(String query, Integer limit) {
+        LOG.debugf("Searching books. Query: %s, Limit: %s", query, limit);
+        
+        if (query == null || query.isBlank()) {
+            throw new InvalidRequestException("Search query is required");
+        }
+        if (limit != null && limit < 1) {
+            throw new InvalidRequestException("Invalid limit: " + limit + ". Limit must be at least 1");
+        }
+        int size = limit == null ? BookSearchIndex.DEFAULT_LIMIT : Math.min(limit, BookSearchIndex.MAX_LIMIT);
+        
+        List<String> ids = searchIndex.search(query, size);
+        List<BookResponseDTO> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            // A book deleted since the index was read is simply skipped
+            Book book = books.get(id);
+            if (book != null) {
+                result.add(book.toResponse());
+            }
+        }
+        return result;
     }
     
     public BookResponseDTO createBook(BookRequestDTO bookRequestDTO) {
-        LOG.info("Creating new book: " + bookRequestDTO);
-        
-        // Check if book already exists (same title and author)
-        BookResponseDTO existingBook = findBookByTitleAndAuthor(bookRequestDTO.getTitle(), bookRequestDTO.getAuthor());
-        
-        if (existingBook != null) {
-            // Book exists, increase quantity
-            LOG.info("Book already exists, increasing quantity. Current quantity: " + existingBook.getQuantity());
-            existingBook.setQuantity(existingBook.getQuantity() + 1);
-            existingBook.setAvailable(existingBook.getQuantity() > 0);
-            books.put(existingBook.getId(), existingBook);
-            LOG.info("Updated book quantity: " + existingBook);
-            return existingBook;
-        } else {
-            // New book, create with quantity 1
-            String id = UUID.randomUUID().toString().substring(0,5);
-            BookResponseDTO bookResponseDTO = new BookResponseDTO(
-                id, 
-                bookRequestDTO.getTitle(), 
-                bookRequestDTO.getAuthor(), 
-                true, // Available
-                1     // Quantity
-            );
-            
-            books.put(id, bookResponseDTO);
-            LOG.info("Created new book: " + bookResponseDTO);
-            return bookResponseDTO;
+        LOG.debugf("Creating new book: %s", bookRequestDTO);
+        
+        BookResponseDTO book = addCopies(bookRequestDTO.getTitle(), bookRequestDTO.getAuthor(), 1);
+        catalogChanged();
+        journal.commit(EntityType.BOOK, book.getId());
+        
+        LOG.debugf("Created or restocked book: %s", book);
+        return book;
+    }
+    
+    /**
+     * Adds copies for a batch of already-validated import rows and returns the number of rows applied.
+     * Rows are applied one by one, but journaled as one group so a bulk load pays for a single commit.
+     */
+    public int importBooks(List<BookImportDTO> rows) {
+        Set<String> touched = new LinkedHashSet<>();
+        for (BookImportDTO row : rows) {
+            touched.add(addCopies(row.getTitle(), row.getAuthor(), row.getQuantity()).getId());
         }
+        catalogChanged();
+        journal.commitAll(EntityType.BOOK, touched);
+        
+        LOG.debugf("Imported %d book rows into %d books", rows.size(), touched.size());
+        return rows.size();
     }
     
     public BookResponseDTO updateBook(String id, BookRequestDTO bookRequestDTO) {
-        LOG.info("Updating book with ID: " + id);
+        LOG.debugf("Updating book with ID: %s", id);
         
-        if (!books.containsKey(id)) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+        String title = bookRequestDTO.getTitle();
+        String author = bookRequestDTO.getAuthor();
+        
+        // Reject a rename onto another book before taking any dictionary references for it
+        if (findOwner(title, author, id) != null) {
+            throw duplicateBook(title, author);
         }
         
-        BookResponseDTO existingBook = books.get(id);
-        BookResponseDTO updatedBook = new BookResponseDTO(
-            id,
-            bookRequestDTO.getTitle(),
-            bookRequestDTO.getAuthor(),
-            existingBook.getQuantity() > 0, // Available if quantity > 0
-            existingBook.getQuantity() // Keep existing quantity
-        );
+        // Holds the new details and their dictionary references until they move onto the stored record
+        Book details = newBook(id, title, author, 0);
+        long newKey = details.titleAuthorKey();
+        Book existingBook;
+        Book updatedBook;
         
-        books.put(id, updatedBook);
-        LOG.info("Updated book: " + updatedBook);
+        try {
+            while (true) {
+                existingBook = books.get(id);
+                if (existingBook == null) {
+                    throw ResourceNotFoundException.book(id);
+                }
+                
+                long oldKey = existingBook.titleAuthorKey();
+                boolean keyChanged = oldKey != newKey;
+                
+                // Reserve the new title/author key before moving the book onto it
+                boolean reserved = false;
+                if (keyChanged) {
+                    String ownerId = titleAuthorIndex.putIfAbsent(newKey, id);
+                    if (ownerId != null && !ownerId.equals(id)) {
+                        throw duplicateBook(title, author);
+                    }
+                    reserved = ownerId == null;
+                }
+                
+                // Swap in the new version only if nobody changed or removed the book since it was read.
+                // The copy counter carries over, so concurrent lends and returns are not lost.
+                updatedBook = existingBook.withDetails(details.title(), details.author(), newKey);
+                if (books.replace(id, existingBook, updatedBook)) {
+                    if (keyChanged) {
+                        titleAuthorIndex.remove(oldKey, id);
+                    }
+                    break;
+                }
+                
+                // Lost a race with a concurrent update/delete: undo our reservation and retry
+                if (reserved) {
+                    titleAuthorIndex.remove(newKey, id);
+                }
+            }
+        } catch (LibraryException e) {
+            releaseNames(details);
+            throw e;
+        }
+        // The replaced version gives its references back; the new one holds those taken above
+        releaseNames(existingBook);
+        searchIndex.index(id, updatedBook.title(), updatedBook.author());
+        catalogChanged();
+        
+        journal.commit(EntityType.BOOK, id);
         
-        return updatedBook;
+        BookResponseDTO response = updatedBook.toResponse();
+        LOG.debugf("Updated book: %s", response);
+        return response;
     }
     
+    /**
+     * Deletes a book that is not lent out. Closing its reference count at zero also stops new lends, so
+     * the check cannot go stale before the book is gone. See {@link LendingService#deleteBookCascade}
+     * for deleting a book that is lent out.
+     */
     public void deleteBook(String id) {
-        LOG.info("Deleting book with ID: " + id);
+        LOG.debugf("Deleting book with ID: %s", id);
         
-        if (!books.containsKey(id)) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+        int activeLendings = references.tryClose(id);
+        if (activeLendings > 0) {
+            throw ResourceInUseException.book(id, activeLendings);
         }
         
-        books.remove(id);
-        LOG.info("Deleted book with ID: " + id);
+        Book removed = books.remove(id);
+        references.unregister(id);
+        if (removed == null) {
+            throw ResourceNotFoundException.book(id);
+        }
+        
+        titleAuthorIndex.remove(removed.titleAuthorKey(), id);
+        releaseNames(removed);
+        searchIndex.remove(id);
+        catalogChanged();
+        journal.commit(EntityType.BOOK, id);
+        LOG.debugf("Deleted book with ID: %s", id);
     }
     
     public BookResponseDTO updateBookAvailability(String id, boolean available) {
-        LOG.info("Updating book availability. ID: " + id + ", Available: " + available);
+        LOG.debugf("Updating book availability. ID: %s, Available: %s", id, available);
         
-        BookResponseDTO book = books.get(id);
+        Book book = books.get(id);
         if (book == null) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+            throw ResourceNotFoundException.book(id);
         }
         
         // Update quantity based on availability
-        if (available && book.getQuantity() == 0) {
-            book.setQuantity(1);
-        } else if (!available && book.getQuantity() > 0) {
-            book.setQuantity(0);
-        }
+        int quantity = book.stock().updateAndGet(current -> {
+            if (available && current == 0) {
+                return 1;
+            } else if (!available && current > 0) {
+                return 0;
+            }
+            return current;
+        });
+        catalogChanged();
         
-        book.setAvailable(book.getQuantity() > 0);
-        books.put(id, book);
-        LOG.info("Updated book availability: " + book);
+        journal.commit(EntityType.BOOK, id);
         
-        return book;
+        BookResponseDTO response = book.toResponse(quantity);
+        LOG.debugf("Updated book availability: %s", response);
+        
+        return response;
     }
     
     public BookResponseDTO decreaseBookQuantity(String id) {
-        LOG.info("Decreasing book quantity for ID: " + id);
+        LOG.debugf("Decreasing book quantity for ID: %s", id);
         
-        BookResponseDTO book = books.get(id);
+        Book book = books.get(id);
         if (book == null) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+            throw ResourceNotFoundException.book(id);
         }
         
-        if (book.getQuantity() <= 0) {
-            LOG.error("Cannot decrease quantity. Book has no copies available. Book ID: " + id);
-            throw new RuntimeException("Book has no quantity available for lending. Book ID: " + id);
+        // Single conditional decrement: either reserves a copy or fails, never goes below zero
+        int quantity = reserveCopy(book.stock());
+        if (quantity < 0) {
+            metrics.oversellRejected();
+            throw new BookNotAvailableException(id);
         }
+        catalogChanged();
         
-        book.setQuantity(book.getQuantity() - 1);
-        book.setAvailable(book.getQuantity() > 0);
-        books.put(id, book);
-        LOG.info("Decreased book quantity: " + book);
+        journal.commit(EntityType.BOOK, id);
         
-        return book;
+        BookResponseDTO response = book.toResponse(quantity);
+        LOG.debugf("Decreased book quantity: %s", response);
+        
+        return response;
     }
     
     public BookResponseDTO increaseBookQuantity(String id) {
-        LOG.info("Increasing book quantity for ID: " + id);
+        LOG.debugf("Increasing book quantity for ID: %s", id);
         
-        BookResponseDTO book = books.get(id);
+        Book book = books.get(id);
         if (book == null) {
-            LOG.error("Book not found with ID: " + id);
-            throw new RuntimeException("Book not found with ID: " + id);
+            throw ResourceNotFoundException.book(id);
         }
         
-        book.setQuantity(book.getQuantity() + 1);
-        book.setAvailable(true);
-        books.put(id, book);
-        LOG.info("Increased book quantity: " + book);
+        BookResponseDTO response = book.toResponse(book.stock().incrementAndGet());
+        catalogChanged();
+        journal.commit(EntityType.BOOK, id);
+        LOG.debugf("Increased book quantity: %s", response);
         
-        return book;
+        return response;
+    }
+    
+    /**
+     * Takes one copy of each listed book (a book listed twice gives up two copies), or none at all.
+     * Returns one entry per item: {@code null} if its copy could be reserved, otherwise why not. If any
+     * item fails, the copies already taken are put back before returning. The touched books are
+     * journaled as one group.
+     */
+    public LibraryException[] reserveCopies(List<String> ids) {
+        LOG.debugf("Reserving copies of %d books", ids.size());
+        
+        LibraryException[] failures = new LibraryException[ids.size()];
+        Book[] reserved = new Book[ids.size()];
+        boolean failed = false;
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            Book book = books.get(id);
+            if (book == null) {
+                failures[i] = ResourceNotFoundException.book(id);
+                failed = true;
+            } else if (reserveCopy(book.stock()) < 0) {
+                metrics.oversellRejected();
+                failures[i] = new BookNotAvailableException(id);
+                failed = true;
+            } else {
+                reserved[i] = book;
+            }
+        }
+        
+        Set<String> touched = new LinkedHashSet<>();
+        for (Book book : reserved) {
+            if (book != null) {
+                if (failed) {
+                    // Roll back: the copy goes back to the same counter it was taken from
+                    book.stock().incrementAndGet();
+                }
+                touched.add(book.id());
+            }
+        }
+        if (!touched.isEmpty()) {
+            catalogChanged();
+            journal.commitAll(EntityType.BOOK, touched);
+        }
+        return failures;
+    }
+    
+    /**
+     * Puts back one copy of each listed book; books deleted in the meantime are skipped. The touched
+     * books are journaled as one group.
+     */
+    public void restockCopies(List<String> ids) {
+        LOG.debugf("Restocking copies of %d books", ids.size());
+        
+        Set<String> touched = new LinkedHashSet<>();
+        for (String id : ids) {
+            Book book = books.get(id);
+            if (book != null) {
+                book.stock().incrementAndGet();
+                touched.add(id);
+            }
+        }
+        if (!touched.isEmpty()) {
+            catalogChanged();
+            journal.commitAll(EntityType.BOOK, touched);
+        }
+    }
+    
+    // Reference counting by lendings: a lending holds one reference to its book while it is active
+    boolean acquireReference(String id) {
+        return references.acquire(id);
+    }
+    
+    void releaseReference(String id) {
+        references.release(id);
+    }
+    
+    void restoreReference(String id) {
+        references.restore(id);
+    }
+    
+    void publishReference(String id) {
+        references.published(id);
+    }
+    
+    // The counters themselves, for a cascading delete that closes one and waits for it to drain
+    ReferenceCounts references() {
+        return references;
+    }
+    
+    public JournalSource journalSource() {
+        return new JournalSource() {
+            @Override
+            public EntityType type() {
+                return EntityType.BOOK;
+            }
+            
+            @Override
+            public JournalEntry read(String id) {
+                Book book = books.get(id);
+                return book != null ? toEntry(book) : null;
+            }
+            
+            @Override
+            public void forEach(Consumer<JournalEntry> sink) {
+                books.stream().forEach(book -> sink.accept(toEntry(book)));
+            }
+            
+            @Override
+            public void restore(JournalEntry entry) {
+                JournalEntry.Book book = (JournalEntry.Book) entry;
+                Book restored = newBook(book.id(), book.title(), book.author(), book.quantity());
+                references.register(book.id());
+                Book previous = books.put(book.id(), restored);
+                if (previous != null) {
+                    titleAuthorIndex.remove(previous.titleAuthorKey(), book.id());
+                    releaseNames(previous);
+                }
+                titleAuthorIndex.put(restored.titleAuthorKey(), book.id());
+                searchIndex.index(book.id(), book.title(), book.author());
+                catalogChanged();
+            }
+            
+            @Override
+            public void restoreRemoval(String id) {
+                Book removed = books.remove(id);
+                if (removed != null) {
+                    titleAuthorIndex.remove(removed.titleAuthorKey(), id);
+                    releaseNames(removed);
+                }
+                references.unregister(id);
+                searchIndex.remove(id);
+                catalogChanged();
+            }
+            
+            private JournalEntry toEntry(Book book) {
+                return new JournalEntry.Book(book.id(), book.title(), book.author(), book.quantity());
+            }
+        };
+    }
+    
+    // Helper method to add copies of a title/author, creating the book if it does not exist yet.
+    // compute() locks the index entry, so concurrent creates of the same title and author are
+    // serialized onto a single book.
+    private BookResponseDTO addCopies(String title, String author, int copies) {
+        // Restocking a book already in the catalog takes no dictionary references
+        Book owner = findOwner(title, author, null);
+        if (owner != null) {
+            BookResponseDTO[] restocked = new BookResponseDTO[1];
+            titleAuthorIndex.computeIfPresent(owner.titleAuthorKey(), (k, existingId) -> {
+                Book existingBook = books.get(existingId);
+                // Still the same book under the same key, so the codes still stand for this title and author
+                if (existingBook != null && existingId.equals(owner.id()) && existingBook.titleAuthorKey() == k) {
+                    restocked[0] = existingBook.toResponse(existingBook.stock().addAndGet(copies));
+                }
+                return existingId;
+            });
+            if (restocked[0] != null) {
+                return restocked[0];
+            }
+        }
+        
+        // Not found, or deleted meanwhile: build a new book, and give its references back if a
+        // concurrent create of the same title and author gets there first
+        Book candidate = newBook(null, title, author, copies);
+        BookResponseDTO[] result = new BookResponseDTO[1];
+        boolean[] created = new boolean[1];
+        
+        titleAuthorIndex.compute(candidate.titleAuthorKey(), (k, existingId) -> {
+            Book existingBook = existingId != null ? books.get(existingId) : null;
+            
+            if (existingBook != null) {
+                // Book exists, increase quantity
+                int quantity = existingBook.stock().addAndGet(copies);
+                result[0] = existingBook.toResponse(quantity);
+                return existingId;
+            }
+            
+            // New book, create with the requested number of copies
+            String id = idGenerator.nextId();
+            Book book = new Book(id, candidate.title(), candidate.author(), k, candidate.stock());
+            references.register(id);
+            books.put(id, book);
+            searchIndex.index(id, title, author);
+            result[0] = book.toResponse(copies);
+            created[0] = true;
+            return id;
+        });
+        
+        if (!created[0]) {
+            releaseNames(candidate);
+        }
+        return result[0];
+    }
+    
+    // Helper method to mark the catalog as changed; called after the change is visible in the store
+    private void catalogChanged() {
+        // The time first, so a reader that sees the new version also sees a time at least as late
+        catalogModified.accumulateAndGet(System.currentTimeMillis(), Math::max);
+        catalogVersion.incrementAndGet();
+    }
+    
+    // Helper method to take one copy with a CAS loop. Returns the remaining quantity, or -1 if none was left.
+    private static int reserveCopy(AtomicInteger stock) {
+        int current;
+        do {
+            current = stock.get();
+            if (current <= 0) {
+                return -1;
+            }
+        } while (!stock.compareAndSet(current, current - 1));
+        return current - 1;
+    }
+    
+    // Helper method to build a book record, taking a dictionary reference on its title and its author.
+    // The record shares the dictionary's strings wherever its own spelling is the same.
+    private Book newBook(String id, String title, String author, int copies) {
+        int titleCode = names.acquire(title);
+        int authorCode = names.acquire(author);
+        return new Book(id, shared(titleCode, title), shared(authorCode, author),
+                (long) titleCode << 32 | authorCode, copies);
+    }
+    
+    // Helper method to give back the dictionary references a book record took in newBook
+    private void releaseNames(Book book) {
+        long key = book.titleAuthorKey();
+        names.release((int) (key >>> 32));
+        names.release((int) key);
+    }
+    
+    private String shared(int code, String value) {
+        String known = names.decode(code);
+        return known.equals(value) ? known : value;
+    }
+    
+    // Helper method to find the book that already has this title and author (ignoring case), other
+    // than the one with ID exceptId. Only looks codes up, so it takes no dictionary references.
+    private Book findOwner(String title, String author, String exceptId) {
+        int titleCode = names.find(title);
+        int authorCode = names.find(author);
+        if (titleCode == StringDictionary.NOT_FOUND || authorCode == StringDictionary.NOT_FOUND) {
+            return null;
+        }
+        String ownerId = titleAuthorIndex.get((long) titleCode << 32 | authorCode);
+        Book owner = ownerId != null && !ownerId.equals(exceptId) ? books.get(ownerId) : null;
+        // The codes can have been freed and reused since they were looked up, so confirm the match
+        if (owner == null || !owner.title().equalsIgnoreCase(title) || !owner.author().equalsIgnoreCase(author)) {
+            return null;
+        }
+        return owner;
     }
     
-    // Helper method to find book by title and author
-    private BookResponseDTO findBookByTitleAndAuthor(String title, String author) {
-        return books.values().stream()
-                .filter(book -> book.getTitle().equalsIgnoreCase(title) && 
-                               book.getAuthor().equalsIgnoreCase(author))
-                .findFirst()
-                .orElse(null);
+    private DuplicateResourceException duplicateBook(String title, String author) {
+        metrics.duplicateBookRejected();
+        return new DuplicateResourceException(ErrorCode.BOOK_ALREADY_EXISTS, "Book already exists with title: '" + title + 
+                "' and author: '" + author + "'");
     }
-}
\ No newline at end of file
+}
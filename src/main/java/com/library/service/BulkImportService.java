@@ -0,0 +1,246 @@
+package com.library.service;
+
+import com.library.dto.BookImportDTO;
+import com.library.dto.BulkImportErrorDTO;
+import com.library.dto.BulkImportResultDTO;
+import com.library.dto.MemberRequestDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Streams NDJSON or CSV bodies into the book and member stores. Lines are parsed incrementally,
+ * validated and applied in chunks, and every rejected row is reported with its line number.
+ */
+@ApplicationScoped
+public class BulkImportService {
+    
+    private static final Logger LOG = Logger.getLogger(BulkImportService.class);
+    
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 1000;
+    
+    public enum Format {
+        NDJSON,
+        CSV;
+        
+        public static Format of(MediaType mediaType) {
+            if (mediaType != null && mediaType.getSubtype().equalsIgnoreCase("csv")) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    Jsonb jsonb;
+    
+    @Inject
+    Validator validator;
+    
+    public BulkImportResultDTO importBooks(InputStream body, Format format) {
+        LOG.infof("Starting bulk book import. Format: %s", format);
+        long start = System.nanoTime();
+        BulkImportResultDTO result = run(body, format, "title",
+                line -> jsonb.fromJson(line, BookImportDTO.class),
+                fields -> {
+                    if (fields.size() < 2 || fields.size() > 3) {
+                        throw new IllegalArgumentException("Expected columns title,author[,quantity] but got " + fields.size());
+                    }
+                    int quantity = fields.size() == 3 && !fields.get(2).isBlank() ? parseQuantity(fields.get(2)) : 1;
+                    return new BookImportDTO(fields.get(0), fields.get(1), quantity);
+                },
+                rows -> {
+                    bookService.importBooks(rows);
+                    return new String[rows.size()];
+                });
+        LOG.infof("Bulk book import completed in %d ms: %s", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), result);
+        return result;
+    }
+    
+    public BulkImportResultDTO importMembers(InputStream body, Format format) {
+        LOG.infof("Starting bulk member import. Format: %s", format);
+        long start = System.nanoTime();
+        BulkImportResultDTO result = run(body, format, "name",
+                line -> jsonb.fromJson(line, MemberRequestDTO.class),
+                fields -> {
+                    if (fields.size() != 2) {
+                        throw new IllegalArgumentException("Expected columns name,email but got " + fields.size());
+                    }
+                    return new MemberRequestDTO(fields.get(0), fields.get(1));
+                },
+                memberService::importMembers);
+        LOG.infof("Bulk member import completed in %d ms: %s", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), result);
+        return result;
+    }
+    
+    // Reads the body line by line, collecting valid rows into chunks that are applied as soon as they fill up
+    private <T> BulkImportResultDTO run(InputStream body, Format format, String csvHeaderColumn,
+                                        Function<String, T> jsonParser, Function<List<String>, T> csvParser,
+                                        Function<List<T>, String[]> applier) {
+        BulkImportResultDTO result = new BulkImportResultDTO();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Long> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            long lineNumber = 0;
+            boolean firstRow = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                T row;
+                try {
+                    if (format == Format.CSV) {
+                        List<String> fields = parseCsvLine(line);
+                        // An optional header row is recognized by its first column name
+                        if (firstRow && fields.get(0).trim().equalsIgnoreCase(csvHeaderColumn)) {
+                            firstRow = false;
+                            continue;
+                        }
+                        row = csvParser.apply(fields);
+                    } else {
+                        row = jsonParser.apply(line);
+                    }
+                } catch (JsonbException e) {
+                    firstRow = false;
+                    result.setReceived(result.getReceived() + 1);
+                    reject(result, lineNumber, "Malformed JSON: " + e.getMessage());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    firstRow = false;
+                    result.setReceived(result.getReceived() + 1);
+                    reject(result, lineNumber, e.getMessage());
+                    continue;
+                }
+                firstRow = false;
+                result.setReceived(result.getReceived() + 1);
+                
+                String violation = row != null ? validate(row) : "Empty record";
+                if (violation != null) {
+                    reject(result, lineNumber, violation);
+                    continue;
+                }
+                
+                chunk.add(row);
+                chunkLines.add(lineNumber);
+                if (chunk.size() == CHUNK_SIZE) {
+                    applyChunk(result, chunk, chunkLines, applier);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bulk import body", e);
+        }
+        
+        if (!chunk.isEmpty()) {
+            applyChunk(result, chunk, chunkLines, applier);
+        }
+        return result;
+    }
+    
+    private <T> void applyChunk(BulkImportResultDTO result, List<T> chunk, List<Long> chunkLines,
+                                Function<List<T>, String[]> applier) {
+        String[] errors = applier.apply(chunk);
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] == null) {
+                result.setImported(result.getImported() + 1);
+            } else {
+                reject(result, chunkLines.get(i), errors[i]);
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+    
+    private <T> String validate(T row) {
+        Set<ConstraintViolation<T>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        StringBuilder message = new StringBuilder();
+        for (ConstraintViolation<T> violation : violations) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(violation.getMessage());
+        }
+        return message.toString();
+    }
+    
+    private static void reject(BulkImportResultDTO result, long lineNumber, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new BulkImportErrorDTO(lineNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+    
+    private static int parseQuantity(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantity: '" + value + "'");
+        }
+    }
+    
+    // Helper method to split one CSV record, honouring double-quoted fields with "" escapes
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
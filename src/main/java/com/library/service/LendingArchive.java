@@ -0,0 +1,781 @@
+package com.library.service;
+
+import com.library.dto.LendingResponseDTO;
+import com.library.id.IdGenerator;
+import com.library.repository.MergingIterator;
+import com.library.repository.StringDictionary;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Off-heap store for returned lendings, which never change again and only pile up. Each lending is a
+ * fixed-width row of longs and ints in a memory-mapped segment file: the lending ID as its numeric
+ * value, book and member IDs as codes from a shared {@link StringDictionary}, and the three times in
+ * epoch milliseconds. Records are decoded into {@link LendingResponseDTO}s only when read, so the heap
+ * holds the dictionary and a few arrays, not an object graph per lending.
+ * <p>
+ * Rows are appended in the order lendings are returned. Lookups by ID go through an open-addressing
+ * table in a direct buffer; lookups by book or member follow a chain of rows linked through the
+ * segments. A full segment is sealed with two sorted row orders, by ID and by lending time, so ordered
+ * reads are a merge over the segments; the open segment sorts its rows on demand.
+ * <p>
+ * Writes are serialized by a lock; reads take none. A row is written completely before it is
+ * published and never changed afterwards, so readers only ever see finished rows; removing a row only
+ * marks it in its segment's bitmap of removed rows. A read that races a removal may still return the
+ * row as it was, never a partly removed one. Removed and replaced rows stay behind as dead
+ * space until they outnumber the live ones; then the live rows are copied into a fresh store, which
+ * drops the dead rows, their ID table slots and the dictionary entries only they used. Readers keep
+ * the store they started on, so a compaction never changes what an ongoing read sees.
+ * <p>
+ * Segment files go in {@code library.archive.directory} (the temporary directory by default) and are
+ * unlinked as soon as they are mapped: they are swap space for the heap, not storage, and the journal
+ * stays the durable copy. Only lendings with generated IDs fit the fixed width ({@link #accepts}); any
+ * others stay on the heap.
+ */
+@ApplicationScoped
+class LendingArchive {
+    
+    // Row layout, in bytes
+    private static final int ID = 0;
+    private static final int LENDING_TIME = 8;
+    private static final int DUE_TIME = 16;
+    private static final int RETURN_TIME = 24;
+    private static final int BOOK = 32;
+    private static final int MEMBER = 36;
+    private static final int NEXT_BY_BOOK = 40;
+    private static final int NEXT_BY_MEMBER = 44;
+    private static final int ROW_BYTES = 48;
+    
+    // Rows are addressed across segments as segment << SEGMENT_BITS | row
+    private static final int SEGMENT_BITS = 14;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+    private static final int NONE = -1;
+    
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Everything readers look at; replaced as a whole by a compaction or by close()
+    private volatile Store store = new Store();
+    // Only accessed under the lock
+    private boolean closed;
+    
+    @Inject
+    LendingArchive(LendingArchiveConfig config) {
+        this(Path.of(config.directory()));
+    }
+    
+    LendingArchive(Path directory) {
+        this.directory = directory;
+    }
+    
+    static boolean accepts(LendingResponseDTO lending) {
+        return lending.isReturned() && IdGenerator.decode(lending.getLendingId()) > 0;
+    }
+    
+    /**
+     * Key ordering lendings by lending time, then ID: the time as 16 hex digits followed by the ID.
+     * Fixed-width hex, so keys compare in time order as strings.
+     */
+    static String timeKey(long time, String lendingId) {
+        String hex = Long.toHexString(time);
+        return "0".repeat(16 - hex.length()) + hex + lendingId;
+    }
+    
+    /**
+     * Stores a returned lending, replacing any row it already has. The lending must be {@link #accepts accepted}.
+     */
+    void add(LendingResponseDTO lending) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The lending archive is closed");
+            }
+            Store current = store;
+            current.add(lending);
+            compactIfSparse(current);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    LendingResponseDTO get(String lendingId) {
+        long id = IdGenerator.decode(lendingId);
+        if (id <= 0) {
+            return null;
+        }
+        Store current = store;
+        int address = current.ids.get(id);
+        return address != NONE ? current.decode(address, lendingId) : null;
+    }
+    
+    /**
+     * Removes the lending, returning what was stored or null if it was not here.
+     */
+    LendingResponseDTO remove(String lendingId) {
+        long id = IdGenerator.decode(lendingId);
+        if (id <= 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Store current = store;
+            int address = current.ids.get(id);
+            if (address == NONE) {
+                return null;
+            }
+            LendingResponseDTO removed = current.decode(address, lendingId);
+            current.ids.remove(id);
+            current.clear(address);
+            current.size--;
+            compactIfSparse(current);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Removes the lending if what is stored has the same fields as {@code expected}. Decoded records
+     * are new objects on every read, so unlike the heap store this compares by value.
+     */
+    boolean remove(String lendingId, LendingResponseDTO expected) {
+        lock.lock();
+        try {
+            LendingResponseDTO current = get(lendingId);
+            if (current == null || !sameFields(current, expected)) {
+                return false;
+            }
+            remove(lendingId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int size() {
+        return store.size;
+    }
+    
+    // Number of distinct book and member IDs held for the stored rows
+    int referenceCount() {
+        return store.references.size();
+    }
+    
+    int segmentCount() {
+        return store.segments.length;
+    }
+    
+    List<LendingResponseDTO> findByBook(String bookId) {
+        Store current = store;
+        return current.findByReference(current.bookHeads, bookId, BOOK, NEXT_BY_BOOK);
+    }
+    
+    List<LendingResponseDTO> findByMember(String memberId) {
+        Store current = store;
+        return current.findByReference(current.memberHeads, memberId, MEMBER, NEXT_BY_MEMBER);
+    }
+    
+    /**
+     * Entries in ID order, starting after {@code lendingId} (or at the first entry if null). Values
+     * are decoded when first asked for.
+     */
+    Iterator<Map.Entry<String, LendingResponseDTO>> entriesAfter(String lendingId) {
+        Bound bound = lendingId != null ? new Bound(Long.MIN_VALUE, lendingId, false) : null;
+        Store current = store;
+        Segment[] segments = current.segments;
+        List<Iterator<Map.Entry<String, LendingResponseDTO>>> cursors = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            cursors.add(new Cursor(current, i, segments[i], false, bound, Long.MAX_VALUE));
+        }
+        return new MergingIterator<>(cursors);
+    }
+    
+    /**
+     * Entries in time-key order (see {@link #timeKey}), starting after {@code afterKey} and stopping
+     * before the first lending made at or after {@code toTime}. Values are decoded when first asked for.
+     */
+    Iterator<Map.Entry<String, LendingResponseDTO>> entriesByTime(String afterKey, long toTime) {
+        Bound bound = new Bound(Long.parseUnsignedLong(afterKey, 0, 16, 16), afterKey.substring(16), true);
+        Store current = store;
+        Segment[] segments = current.segments;
+        List<Iterator<Map.Entry<String, LendingResponseDTO>>> cursors = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            cursors.add(new Cursor(current, i, segments[i], true, bound, toTime));
+        }
+        return new MergingIterator<>(cursors);
+    }
+    
+    /**
+     * Drops every stored row. The segment files were unlinked when they were mapped, so their disk
+     * space is returned as soon as the mappings are garbage collected. Later adds fail.
+     */
+    @PreDestroy
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            store = new Store();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Copies the live rows into a fresh store once dead rows outnumber them, so removed lendings stop
+    // taking up segment space, ID table slots and dictionary entries. Called under the lock.
+    private void compactIfSparse(Store current) {
+        if (current.dead < SEGMENT_ROWS || current.dead <= current.size) {
+            return;
+        }
+        Store compacted = new Store();
+        Segment[] segments = current.segments;
+        for (int i = 0; i < segments.length; i++) {
+            for (int row = 0; row < segments[i].count; row++) {
+                if (segments[i].live(row)) {
+                    compacted.add(current.decode(i << SEGMENT_BITS | row, null));
+                }
+            }
+        }
+        store = compacted;
+    }
+    
+    private MappedByteBuffer map() {
+        long bytes = (long) SEGMENT_ROWS * (ROW_BYTES + 2 * Integer.BYTES);
+        try {
+            Path file = Files.createTempFile(directory, "lending-archive-", ".seg");
+            // Unlinked when the channel closes; the mapping stays valid until it is garbage collected
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map a lending archive segment in " + directory, e);
+        }
+    }
+    
+    private static int offset(int address) {
+        return (address & (SEGMENT_ROWS - 1)) * ROW_BYTES;
+    }
+    
+    private static boolean sameFields(LendingResponseDTO a, LendingResponseDTO b) {
+        return a.getLendingId().equals(b.getLendingId())
+                && a.getBookId().equals(b.getBookId())
+                && a.getMemberId().equals(b.getMemberId())
+                && a.getLendingTime() == b.getLendingTime()
+                && a.getDueTime() == b.getDueTime()
+                && a.getReturnTime() == b.getReturnTime();
+    }
+    
+    private static AtomicIntegerArray emptyHeads(int length) {
+        AtomicIntegerArray heads = new AtomicIntegerArray(length);
+        for (int i = 0; i < length; i++) {
+            heads.set(i, NONE);
+        }
+        return heads;
+    }
+    
+    private static AtomicIntegerArray ensureHeads(AtomicIntegerArray heads, int code) {
+        if (code < heads.length()) {
+            return heads;
+        }
+        AtomicIntegerArray grown = emptyHeads(Math.max(heads.length() * 2, code + 1));
+        for (int i = 0; i < heads.length(); i++) {
+            grown.set(i, heads.get(i));
+        }
+        return grown;
+    }
+    
+    // Lower bound of an ordered read: rows strictly after (time, id). For ID order only the ID counts.
+    // The ID is a string, since it may come from a cursor over lendings that are not archived.
+    private record Bound(long time, String id, boolean byTime) {
+        
+        long numericId() {
+            return IdGenerator.decode(id);
+        }
+    }
+    
+    /**
+     * The rows and every structure that finds them. Written under the archive lock; a compaction
+     * builds a new one instead of changing this one, so readers can go on using it.
+     */
+    private final class Store {
+        
+        // Book and member IDs of the stored rows
+        final StringDictionary references = new StringDictionary();
+        final IdTable ids = new IdTable();
+        volatile Segment[] segments = new Segment[0];
+        // Last row of each book and member code, the start of its chain; grown under the lock
+        volatile AtomicIntegerArray bookHeads = emptyHeads(64);
+        volatile AtomicIntegerArray memberHeads = emptyHeads(64);
+        volatile int size;
+        // Removed and replaced rows still taking up space in the segments
+        int dead;
+        
+        void add(LendingResponseDTO lending) {
+            long id = IdGenerator.decode(lending.getLendingId());
+            int previous = ids.get(id);
+            int book = references.acquire(lending.getBookId());
+            int member = references.acquire(lending.getMemberId());
+            bookHeads = ensureHeads(bookHeads, book);
+            memberHeads = ensureHeads(memberHeads, member);
+            
+            int address = append();
+            Segment segment = segment(address);
+            int offset = offset(address);
+            ByteBuffer buffer = segment.buffer;
+            buffer.putLong(offset + ID, id);
+            buffer.putLong(offset + LENDING_TIME, lending.getLendingTime());
+            buffer.putLong(offset + DUE_TIME, lending.getDueTime());
+            buffer.putLong(offset + RETURN_TIME, lending.getReturnTime());
+            buffer.putInt(offset + BOOK, book);
+            buffer.putInt(offset + MEMBER, member);
+            buffer.putInt(offset + NEXT_BY_BOOK, bookHeads.get(book));
+            buffer.putInt(offset + NEXT_BY_MEMBER, memberHeads.get(member));
+            // Publish the finished row: the count for ordered reads, then the chains and the ID table
+            segment.count = (address & (SEGMENT_ROWS - 1)) + 1;
+            bookHeads.set(book, address);
+            memberHeads.set(member, address);
+            ids.put(id, address);
+            if (previous != NONE) {
+                clear(previous);
+            } else {
+                size++;
+            }
+            if (segment.count == SEGMENT_ROWS) {
+                segment.seal();
+            }
+        }
+        
+        List<LendingResponseDTO> findByReference(AtomicIntegerArray heads, String reference, int column, int next) {
+            int code = references.find(reference);
+            if (code == StringDictionary.NOT_FOUND || code >= heads.length()) {
+                return Collections.emptyList();
+            }
+            List<LendingResponseDTO> result = new ArrayList<>();
+            for (int address = heads.get(code); address != NONE; ) {
+                Segment segment = segment(address);
+                ByteBuffer buffer = segment.buffer;
+                int offset = offset(address);
+                if (segment.live(address & (SEGMENT_ROWS - 1)) && buffer.getInt(offset + column) == code) {
+                    result.add(decode(address, null));
+                }
+                address = buffer.getInt(offset + next);
+            }
+            return result;
+        }
+        
+        // Marks a row as removed; readers skip it from then on, but its fields stay as they were
+        void clear(int address) {
+            segment(address).markRemoved(address & (SEGMENT_ROWS - 1));
+            dead++;
+        }
+        
+        LendingResponseDTO decode(int address, String lendingId) {
+            ByteBuffer buffer = segment(address).buffer;
+            int offset = offset(address);
+            return new LendingResponseDTO(
+                lendingId != null ? lendingId : IdGenerator.encode(buffer.getLong(offset + ID)),
+                references.decode(buffer.getInt(offset + BOOK)),
+                references.decode(buffer.getInt(offset + MEMBER)),
+                buffer.getLong(offset + LENDING_TIME),
+                buffer.getLong(offset + DUE_TIME),
+                buffer.getLong(offset + RETURN_TIME)
+            );
+        }
+        
+        // Reserves the next row, mapping a new segment when the last one is full
+        private int append() {
+            Segment[] current = segments;
+            if (current.length == 0 || current[current.length - 1].count == SEGMENT_ROWS) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = new Segment(map());
+                segments = current;
+            }
+            int last = current.length - 1;
+            return last << SEGMENT_BITS | current[last].count;
+        }
+        
+        private Segment segment(int address) {
+            return segments[address >>> SEGMENT_BITS];
+        }
+    }
+    
+    /**
+     * One mapped segment: {@value #SEGMENT_ROWS} rows, followed by the row numbers sorted by ID and
+     * sorted by lending time, written when the segment is sealed.
+     */
+    private static final class Segment {
+        
+        final MappedByteBuffer buffer;
+        // One bit per removed row; set under the archive lock
+        private final AtomicLongArray removed = new AtomicLongArray(SEGMENT_ROWS / Long.SIZE);
+        // Rows written so far; only advanced under the archive lock, after the row is complete
+        volatile int count;
+        volatile boolean sealed;
+        // Sorted orders of the open segment, cached until more rows arrive
+        private volatile OpenOrders openOrders;
+        
+        private record OpenOrders(int count, int[] byId, int[] byTime) {
+        }
+        
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        void seal() {
+            int[] byId = sortedRows(SEGMENT_ROWS, false);
+            int[] byTime = sortedRows(SEGMENT_ROWS, true);
+            for (int i = 0; i < SEGMENT_ROWS; i++) {
+                buffer.putInt(orderOffset(false, i), byId[i]);
+                buffer.putInt(orderOffset(true, i), byTime[i]);
+            }
+            openOrders = null;
+            sealed = true;
+        }
+        
+        /**
+         * Row numbers in ID or time order, and how many there are.
+         */
+        int[] order(boolean byTime) {
+            if (sealed) {
+                return null;
+            }
+            int rows = count;
+            OpenOrders cached = openOrders;
+            if (cached == null || cached.count() != rows) {
+                cached = new OpenOrders(rows, sortedRows(rows, false), sortedRows(rows, true));
+                openOrders = cached;
+            }
+            return byTime ? cached.byTime() : cached.byId();
+        }
+        
+        int sealedRow(boolean byTime, int position) {
+            return buffer.getInt(orderOffset(byTime, position));
+        }
+        
+        long id(int row) {
+            return buffer.getLong(row * ROW_BYTES + ID);
+        }
+        
+        long lendingTime(int row) {
+            return buffer.getLong(row * ROW_BYTES + LENDING_TIME);
+        }
+        
+        boolean live(int row) {
+            return (removed.get(row >>> 6) & 1L << row) == 0;
+        }
+        
+        void markRemoved(int row) {
+            removed.set(row >>> 6, removed.get(row >>> 6) | 1L << row);
+        }
+        
+        int compare(int a, int b, boolean byTime) {
+            if (byTime) {
+                int order = Long.compare(lendingTime(a), lendingTime(b));
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Long.compare(id(a), id(b));
+        }
+        
+        private static int orderOffset(boolean byTime, int position) {
+            return SEGMENT_ROWS * ROW_BYTES + ((byTime ? SEGMENT_ROWS : 0) + position) * Integer.BYTES;
+        }
+        
+        // Merge sort of row numbers; rows are compared through the buffer, so nothing is boxed
+        private int[] sortedRows(int rows, boolean byTime) {
+            int[] order = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                order[i] = i;
+            }
+            int[] scratch = new int[rows];
+            for (int width = 1; width < rows; width *= 2) {
+                for (int low = 0; low < rows - width; low += 2 * width) {
+                    int middle = low + width;
+                    int high = Math.min(low + 2 * width, rows);
+                    int i = low;
+                    int j = middle;
+                    int k = low;
+                    while (i < middle && j < high) {
+                        scratch[k++] = compare(order[j], order[i], byTime) < 0 ? order[j++] : order[i++];
+                    }
+                    while (i < middle) {
+                        scratch[k++] = order[i++];
+                    }
+                    while (j < high) {
+                        scratch[k++] = order[j++];
+                    }
+                    System.arraycopy(scratch, low, order, low, high - low);
+                }
+            }
+            return order;
+        }
+    }
+    
+    /**
+     * Walks one segment in ID or time order from a lower bound, skipping removed rows.
+     */
+    private final class Cursor implements Iterator<Map.Entry<String, LendingResponseDTO>> {
+        
+        private final Store store;
+        private final int index;
+        private final Segment segment;
+        private final boolean byTime;
+        private final long toTime;
+        private final int[] order; // null for a sealed segment, whose order is in the buffer
+        private final int end;
+        private int position;
+        private Map.Entry<String, LendingResponseDTO> next;
+        
+        Cursor(Store store, int index, Segment segment, boolean byTime, Bound bound, long toTime) {
+            this.store = store;
+            this.index = index;
+            this.segment = segment;
+            this.byTime = byTime;
+            this.toTime = toTime;
+            this.order = segment.order(byTime);
+            this.end = order != null ? order.length : SEGMENT_ROWS;
+            this.position = bound != null ? firstAfter(bound) : 0;
+            this.next = advance();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public Map.Entry<String, LendingResponseDTO> next() {
+            Map.Entry<String, LendingResponseDTO> entry = next;
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            next = advance();
+            return entry;
+        }
+        
+        private Map.Entry<String, LendingResponseDTO> advance() {
+            while (position < end) {
+                int row = row(position++);
+                if (byTime && segment.lendingTime(row) >= toTime) {
+                    position = end;
+                    return null;
+                }
+                if (segment.live(row)) {
+                    String id = IdGenerator.encode(segment.id(row));
+                    return new ArchivedEntry(store, byTime ? timeKey(segment.lendingTime(row), id) : id,
+                            index << SEGMENT_BITS | row, id);
+                }
+            }
+            return null;
+        }
+        
+        private int row(int position) {
+            return order != null ? order[position] : segment.sealedRow(byTime, position);
+        }
+        
+        // Binary search for the first position whose row sorts after the bound
+        private int firstAfter(Bound bound) {
+            long numericId = bound.numericId();
+            int low = 0;
+            int high = end;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareToBound(row(middle), bound, numericId) > 0) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+        
+        private int compareToBound(int row, Bound bound, long numericId) {
+            if (byTime) {
+                int order = Long.compare(segment.lendingTime(row), bound.time());
+                if (order != 0) {
+                    return order;
+                }
+            }
+            long id = segment.id(row);
+            // Archived IDs all have the generated format, which compares the same as a string and a number
+            return numericId >= 0 ? Long.compare(id, numericId) : IdGenerator.encode(id).compareTo(bound.id());
+        }
+    }
+    
+    /**
+     * Entry whose key is known up front and whose record is decoded on first access.
+     */
+    private static final class ArchivedEntry implements Map.Entry<String, LendingResponseDTO> {
+        
+        private final Store store;
+        private final String key;
+        private final int address;
+        private final String lendingId;
+        private LendingResponseDTO value;
+        
+        ArchivedEntry(Store store, String key, int address, String lendingId) {
+            this.store = store;
+            this.key = key;
+            this.address = address;
+            this.lendingId = lendingId;
+        }
+        
+        @Override
+        public String getKey() {
+            return key;
+        }
+        
+        @Override
+        public LendingResponseDTO getValue() {
+            if (value == null) {
+                value = store.decode(address, lendingId);
+            }
+            return value;
+        }
+        
+        @Override
+        public LendingResponseDTO setValue(LendingResponseDTO value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    /**
+     * Open-addressing hash table from lending ID to row address, in a direct buffer. Slots are
+     * 16 bytes: the ID (0 for an empty slot) and the address (NONE once removed). Written under the
+     * archive lock; readers see an address before the ID that leads to it. Removed IDs keep their slot
+     * until the next resize, which sizes the table for the live IDs only, so it shrinks again after
+     * many removals.
+     */
+    private static final class IdTable {
+        
+        private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+        private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+        private static final int SLOT_BYTES = 16;
+        
+        private static final int MIN_SLOTS = 1024;
+        
+        private volatile ByteBuffer slots = allocate(MIN_SLOTS);
+        // Slots taken, removed IDs included, and IDs with an address
+        private int used;
+        private int live;
+        
+        int get(long id) {
+            ByteBuffer table = slots;
+            int mask = table.capacity() / SLOT_BYTES - 1;
+            for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+                long key = (long) LONGS.getAcquire(table, slot * SLOT_BYTES);
+                if (key == 0) {
+                    return NONE;
+                }
+                if (key == id) {
+                    return (int) INTS.getAcquire(table, slot * SLOT_BYTES + 8);
+                }
+            }
+        }
+        
+        void put(long id, int address) {
+            if ((used + 1) * 2 > slots.capacity() / SLOT_BYTES) {
+                resize();
+            }
+            int previous = get(id);
+            if (insert(slots, id, address)) {
+                used++;
+            }
+            if (previous == NONE) {
+                live++;
+            }
+        }
+        
+        void remove(long id) {
+            ByteBuffer table = slots;
+            int mask = table.capacity() / SLOT_BYTES - 1;
+            for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+                long key = (long) LONGS.getAcquire(table, slot * SLOT_BYTES);
+                if (key == 0) {
+                    return;
+                }
+                if (key == id) {
+                    // The slot stays taken by the ID, so probe chains through it are not broken
+                    if ((int) INTS.getAcquire(table, slot * SLOT_BYTES + 8) != NONE) {
+                        INTS.setRelease(table, slot * SLOT_BYTES + 8, NONE);
+                        live--;
+                    }
+                    return;
+                }
+            }
+        }
+        
+        // Returns true if a new slot was taken
+        private static boolean insert(ByteBuffer table, long id, int address) {
+            int mask = table.capacity() / SLOT_BYTES - 1;
+            for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+                long key = (long) LONGS.getAcquire(table, slot * SLOT_BYTES);
+                if (key == id) {
+                    INTS.setRelease(table, slot * SLOT_BYTES + 8, address);
+                    return false;
+                }
+                if (key == 0) {
+                    INTS.setRelease(table, slot * SLOT_BYTES + 8, address);
+                    LONGS.setRelease(table, slot * SLOT_BYTES, id);
+                    return true;
+                }
+            }
+        }
+        
+        // Rebuilds the table at most a quarter full with the live IDs, dropping removed ones; readers keep
+        // using the old one until it is published
+        private void resize() {
+            ByteBuffer table = slots;
+            int capacity = table.capacity() / SLOT_BYTES;
+            int target = MIN_SLOTS;
+            while ((live + 1) * 4 > target) {
+                target *= 2;
+            }
+            ByteBuffer rebuilt = allocate(target);
+            for (int slot = 0; slot < capacity; slot++) {
+                long key = (long) LONGS.getAcquire(table, slot * SLOT_BYTES);
+                int address = (int) INTS.getAcquire(table, slot * SLOT_BYTES + 8);
+                if (key != 0 && address != NONE) {
+                    insert(rebuilt, key, address);
+                }
+            }
+            used = live;
+            slots = rebuilt;
+        }
+        
+        
+        private static ByteBuffer allocate(int slotCount) {
+            // Aligned, as the atomic access modes require
+            return ByteBuffer.allocateDirect(slotCount * SLOT_BYTES + SLOT_BYTES - 1).alignedSlice(SLOT_BYTES)
+                    .order(ByteOrder.nativeOrder());
+        }
+        
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
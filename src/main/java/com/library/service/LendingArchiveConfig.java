@@ -0,0 +1,15 @@
+package com.library.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "library.archive")
+public interface LendingArchiveConfig {
+    
+    /**
+     * Directory for the segment files of the returned-lendings archive. Files are unlinked as soon as
+     * they are mapped, so nothing is left there, but the space counts against this file system.
+     */
+    @WithDefault("${java.io.tmpdir}")
+    String directory();
+}
@@ -0,0 +1,16 @@
+package com.library.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "library.lending")
+public interface LendingConfig {
+    
+    /**
+     * Time from lending a book until it is due back; after that an unreturned lending is overdue.
+     */
+    @WithDefault("14d")
+    Duration loanPeriod();
+}
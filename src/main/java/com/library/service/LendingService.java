@@ -1,21 +1,44 @@
 package com.library.service;
 
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BatchResultDTO;
+import com.library.dto.LendingDates;
 import com.library.dto.LendingRequestDTO;
 import com.library.dto.LendingResponseDTO;
+import com.library.dto.PageResponseDTO;
+import com.library.exception.InvalidRequestException;
+import com.library.exception.LibraryException;
+import com.library.exception.ResourceNotFoundException;
+import com.library.id.IdGenerator;
+import com.library.persistence.EntityType;
+import com.library.persistence.Journal;
+import com.library.persistence.JournalEntry;
+import com.library.persistence.JournalSource;
+import com.library.repository.MergingIterator;
+import com.library.repository.Repository;
+import com.library.repository.StripedRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @ApplicationScoped
 public class LendingService {
     
     private static final Logger LOG = Logger.getLogger(LendingService.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    // Resolution of the due-date wheel; a lending turns overdue at most one tick after its due date
+    static final long OVERDUE_TICK_MILLIS = 1_000;
     
     @Inject
     BookService bookService;
@@ -23,89 +46,726 @@ public class LendingService {
     @Inject
     MemberService memberService;
     
-    // In-memory storage using ConcurrentHashMap for thread safety
-    private final Map<String, LendingResponseDTO> lendings = new ConcurrentHashMap<>();
+    @Inject
+    Journal journal;
+    
+    @Inject
+    IdGenerator idGenerator;
+    
+    @Inject
+    LendingConfig lendingConfig;
+    
+    // In-memory storage of active lendings (and of returned ones until they are archived), ordered by
+    // ID so list endpoints can paginate with a stable cursor
+    private final Repository<LendingResponseDTO> lendings = new StripedRepository<>();
+    
+    // Returned lendings, moved off the heap once their return is committed. Reads look in both stores,
+    // and ordered reads merge them
+    @Inject
+    LendingArchive archive;
+    
+    // Secondary indexes: member ID / book ID -> lendings, split into active and returned. The
+    // repository moves a lending between them in the same write that marks it returned.
+    private final Repository.Index<LendingResponseDTO> activeByMember =
+            lendings.index(lending -> lending.isReturned() ? null : lending.getMemberId());
+    private final Repository.Index<LendingResponseDTO> returnedByMember =
+            lendings.index(lending -> lending.isReturned() ? lending.getMemberId() : null);
+    private final Repository.Index<LendingResponseDTO> activeByBook =
+            lendings.index(lending -> lending.isReturned() ? null : lending.getBookId());
+    private final Repository.Index<LendingResponseDTO> returnedByBook =
+            lendings.index(lending -> lending.isReturned() ? lending.getBookId() : null);
+    
+    // Heap lendings ordered by lending time, for date-range queries over the history. Keyed by the lending
+    // time as 16 hex digits followed by the lending ID, so keys sort by time and a range is a sub-map
+    private final ConcurrentNavigableMap<String, LendingResponseDTO> lendingsByTime = new ConcurrentSkipListMap<>();
+    
+    // Number of lendings not yet returned, kept alongside the store so it can be read in O(1)
+    private final LongAdder activeLendings = new LongAdder();
+    
+    // Due dates of active lendings, filed in a timing wheel that hands back each lending once its
+    // due date passes. A return cancels the lending's timer; one that expires anyway is skipped.
+    private final TimingWheel dueDates = new TimingWheel(OVERDUE_TICK_MILLIS, System.currentTimeMillis());
+    
+    // Index of overdue, unreturned lending IDs, filled by the wheel and cleared on return
+    private final NavigableSet<String> overdueLendings = new ConcurrentSkipListSet<>();
+    
+    public long countActiveLendings() {
+        return activeLendings.sum();
+    }
     
     public List<LendingResponseDTO> getAllLendings() {
-        LOG.info("Retrieving all lendings. Total lendings: " + lendings.size());
-        return new ArrayList<>(lendings.values());
+        LOG.debugf("Retrieving all lendings. Total lendings: %d", lendings.size() + archive.size());
+        return allLendings();
+    }
+    
+    public PageResponseDTO<LendingResponseDTO> getLendingsPage(String cursor, Integer limit) {
+        LOG.debugf("Retrieving lendings page. Cursor: %s, Limit: %s", cursor, limit);
+        return Pagination.page(this::entriesAfter, cursor, limit, Function.identity());
+    }
+    
+    // Lazily walks the lendings in ID order, so callers can write them out with bounded memory
+    public Stream<LendingResponseDTO> streamLendings() {
+        LOG.debugf("Streaming all lendings. Total lendings: %d", lendings.size() + archive.size());
+        return values(entriesAfter(null));
     }
     
     public LendingResponseDTO getLendingById(String id) {
-        LOG.info("Retrieving lending with ID: " + id);
-        LendingResponseDTO lending = lendings.get(id);
+        LOG.debugf("Retrieving lending with ID: %s", id);
+        LendingResponseDTO lending = findLending(id);
         if (lending == null) {
-            LOG.error("Lending not found with ID: " + id);
-            throw new RuntimeException("Lending not found with ID: " + id);
+            throw ResourceNotFoundException.lending(id);
         }
         return lending;
     }
     
     public LendingResponseDTO lendBook(LendingRequestDTO lendingRequestDTO) {
-        LOG.info("Lending book. Book ID: " + lendingRequestDTO.getBookId() + 
-                ", Member ID: " + lendingRequestDTO.getMemberId());
+        LOG.debugf("Lending book. Book ID: %s, Member ID: %s", lendingRequestDTO.getBookId(), lendingRequestDTO.getMemberId());
         
-        // Validate book exists and has quantity available
-        var book = bookService.getBookById(lendingRequestDTO.getBookId());
-        if (book.getQuantity() <= 0) {
-            LOG.error("Book has no quantity available for lending. Book ID: " + lendingRequestDTO.getBookId());
-            throw new RuntimeException("Book has no quantity available for lending. Book ID: " + lendingRequestDTO.getBookId());
+        String bookId = lendingRequestDTO.getBookId();
+        try (LibraryTransaction tx = new LibraryTransaction()) {
+            // Validates that member and book exist, and keeps them from being deleted while lent
+            acquireReferences(tx, bookId, lendingRequestDTO.getMemberId());
+            
+            // Reserve a copy: a single conditional decrement that fails if the book is missing
+            // or has no copies left, so concurrent lends can never oversell
+            bookService.decreaseBookQuantity(bookId);
+            tx.onRollback(() -> bookService.increaseBookQuantity(bookId));
+            
+            LendingResponseDTO lending = recordLending(bookId, lendingRequestDTO.getMemberId());
+            tx.onRollback(() -> unrecordLending(lending));
+            journal.commit(EntityType.LENDING, lending.getLendingId());
+            tx.commit();
+            
+            LOG.debugf("Book lent successfully: %s", lending);
+            return lending;
         }
+    }
+    
+    /**
+     * Lends a stack of books to one member, all or nothing. The member is validated once; then every
+     * book is referenced, so none can be deleted while the stack is in flight, and a copy of each is
+     * reserved. If any book is missing or has no copy left, the references and reservations are rolled
+     * back and no lending is created. The result reports the outcome of every item. Concurrent readers
+     * can see part of the stack applied while it is in flight; see {@link LibraryTransaction}.
+     */
+    public BatchResultDTO lendBooks(String memberId, List<String> bookIds) {
+        LOG.debugf("Lending %d books to member ID: %s", bookIds.size(), memberId);
         
-        // Validate member exists
-        memberService.getMemberById(lendingRequestDTO.getMemberId());
-        
-        // Create lending record
-        String lendingId = UUID.randomUUID().toString();
-        String lendingDate = LocalDateTime.now().format(DATE_FORMATTER);
-        
-        LendingResponseDTO lending = new LendingResponseDTO(
-            lendingId, 
-            lendingRequestDTO.getBookId(), 
-            lendingRequestDTO.getMemberId(), 
-            lendingDate, 
-            null // returnDate is null when book is lent
-        );
-        lendings.put(lendingId, lending);
-        
-        // Decrease book quantity
-        bookService.decreaseBookQuantity(lendingRequestDTO.getBookId());
+        // Validate member exists, once for the whole stack
+        memberService.getMemberById(memberId);
         
-        LOG.info("Book lent successfully: " + lending);
-        return lending;
+        List<BatchItemResultDTO> items = new ArrayList<>(bookIds.size());
+        try (LibraryTransaction tx = new LibraryTransaction()) {
+            // Reference every book before reserving copies, so a book deleted in between is reported
+            // as a failed item instead of failing the whole request
+            LibraryException[] failures = new LibraryException[bookIds.size()];
+            for (int i = 0; i < bookIds.size(); i++) {
+                failures[i] = tryAcquireReferences(tx, bookIds.get(i), memberId);
+            }
+            // Reserved even if a reference failed, so every item reports its own reason
+            LibraryException[] shortages = bookService.reserveCopies(bookIds);
+            if (!anyFailed(shortages)) {
+                tx.onRollback(() -> bookService.restockCopies(bookIds));
+            }
+            for (int i = 0; i < bookIds.size(); i++) {
+                if (failures[i] == null) {
+                    failures[i] = shortages[i];
+                }
+            }
+            if (anyFailed(failures)) {
+                for (int i = 0; i < bookIds.size(); i++) {
+                    items.add(rejectedItem(bookIds.get(i), failures[i]));
+                }
+                LOG.debugf("Batch lending rejected for member ID: %s", memberId);
+                return new BatchResultDTO(false, items);
+            }
+            
+            List<String> created = new ArrayList<>(bookIds.size());
+            for (String bookId : bookIds) {
+                LendingResponseDTO lending = recordLending(bookId, memberId);
+                tx.onRollback(() -> unrecordLending(lending));
+                created.add(lending.getLendingId());
+                items.add(new BatchItemResultDTO(bookId, BatchItemResultDTO.LENT, lending, null, null));
+            }
+            journal.commitAll(EntityType.LENDING, created);
+            tx.commit();
+            LOG.debugf("Lent %d books to member ID: %s", created.size(), memberId);
+        }
+        return new BatchResultDTO(true, items);
     }
     
     public LendingResponseDTO returnBook(String lendingId) {
-        LOG.info("Returning book. Lending ID: " + lendingId);
+        LOG.debugf("Returning book. Lending ID: %s", lendingId);
         
         LendingResponseDTO lending = getLendingById(lendingId);
         
         // Check if book is already returned
-        if (lending.getReturnDate() != null) {
-            LOG.warn("Book is already returned. Lending ID: " + lendingId);
+        if (lending.isReturned()) {
+            LOG.debugf("Book is already returned. Lending ID: %s", lendingId);
             return lending;
         }
         
-        // Mark book as returned
-        String returnDate = LocalDateTime.now().format(DATE_FORMATTER);
+        try (LibraryTransaction tx = new LibraryTransaction()) {
+            // Of concurrent returns of the same lending, only the one whose update lands restocks the copy
+            LendingResponseDTO updatedLending = recordReturn(lending);
+            if (updatedLending == null) {
+                LOG.debugf("Book is already returned. Lending ID: %s", lendingId);
+                return getLendingById(lendingId);
+            }
+            tx.onRollback(() -> unrecordReturn(lending, updatedLending));
+            journal.commit(EntityType.LENDING, lendingId);
+            
+            // Increase book quantity. The lending still holds its book reference, so the book cannot
+            // be deleted before its copy is back
+            bookService.increaseBookQuantity(lending.getBookId());
+            tx.commit();
+            releaseReferences(lending);
+            archiveReturned(updatedLending);
+            
+            LOG.debugf("Book returned successfully: %s", updatedLending);
+            return updatedLending;
+        }
+    }
+    
+    /**
+     * Returns a stack of lendings, all or nothing: if any lending ID is unknown, nothing is returned.
+     * Lendings that are already returned are reported as such and do not fail the batch. As with
+     * {@link #lendBooks}, the batch is all or nothing on failure but not isolated from concurrent readers.
+     */
+    public BatchResultDTO returnBooks(List<String> lendingIds) {
+        LOG.debugf("Returning %d lendings", lendingIds.size());
+        
+        // Resolve every lending first, so an unknown ID rejects the batch before anything changes
+        LibraryException[] failures = new LibraryException[lendingIds.size()];
+        for (int i = 0; i < lendingIds.size(); i++) {
+            if (findLending(lendingIds.get(i)) == null) {
+                failures[i] = ResourceNotFoundException.lending(lendingIds.get(i));
+            }
+        }
+        List<BatchItemResultDTO> items = new ArrayList<>(lendingIds.size());
+        if (anyFailed(failures)) {
+            for (int i = 0; i < lendingIds.size(); i++) {
+                items.add(rejectedItem(lendingIds.get(i), failures[i]));
+            }
+            LOG.debug("Batch return rejected");
+            return new BatchResultDTO(false, items);
+        }
+        
+        List<String> returned = new ArrayList<>(lendingIds.size());
+        List<String> bookIds = new ArrayList<>(lendingIds.size());
+        List<LendingResponseDTO> returnedLendings = new ArrayList<>(lendingIds.size());
+        List<LendingResponseDTO> updatedLendings = new ArrayList<>(lendingIds.size());
+        try (LibraryTransaction tx = new LibraryTransaction()) {
+            for (String lendingId : lendingIds) {
+                // Re-read: a lending listed twice is already returned by its first occurrence
+                LendingResponseDTO lending = findLending(lendingId);
+                LendingResponseDTO updatedLending = lending.isReturned() ? null : recordReturn(lending);
+                if (updatedLending == null) {
+                    LendingResponseDTO current = findLending(lendingId);
+                    items.add(new BatchItemResultDTO(lendingId, BatchItemResultDTO.ALREADY_RETURNED, current, null, null));
+                    continue;
+                }
+                tx.onRollback(() -> unrecordReturn(lending, updatedLending));
+                returned.add(lendingId);
+                bookIds.add(lending.getBookId());
+                returnedLendings.add(lending);
+                updatedLendings.add(updatedLending);
+                items.add(new BatchItemResultDTO(lendingId, BatchItemResultDTO.RETURNED, updatedLending, null, null));
+            }
+            journal.commitAll(EntityType.LENDING, returned);
+            bookService.restockCopies(bookIds);
+            tx.commit();
+        }
+        returnedLendings.forEach(this::releaseReferences);
+        updatedLendings.forEach(this::archiveReturned);
+        
+        LOG.debugf("Returned %d lendings", returned.size());
+        return new BatchResultDTO(true, items);
+    }
+    
+    /**
+     * Deletes a book together with its active lendings, which are ended (marked returned) first. The
+     * copies they held leave with the book, so nothing is restocked. New lends of the book are refused
+     * from the start, as if it were already gone. Returns the number of lendings ended.
+     */
+    public int deleteBookCascade(String bookId) {
+        LOG.debugf("Deleting book with ID: %s and ending its active lendings", bookId);
+        int ended = endActiveLendings(activeByBook, bookId, bookService.references(), false);
+        bookService.deleteBook(bookId);
+        LOG.debugf("Deleted book with ID: %s, ended %d lendings", bookId, ended);
+        return ended;
+    }
+    
+    /**
+     * Deletes a member together with their active lendings, which are ended (marked returned) first and
+     * their copies put back on the shelf. New lends to the member are refused from the start, as if they
+     * were already gone. Returns the number of lendings ended.
+     */
+    public int deleteMemberCascade(String memberId) {
+        LOG.debugf("Deleting member with ID: %s and ending their active lendings", memberId);
+        int ended = endActiveLendings(activeByMember, memberId, memberService.references(), true);
+        memberService.deleteMember(memberId);
+        LOG.debugf("Deleted member with ID: %s, ended %d lendings", memberId, ended);
+        return ended;
+    }
+    
+    public List<LendingResponseDTO> getOverdueLendings() {
+        LOG.debug("Retrieving overdue lendings");
+        List<LendingResponseDTO> result = new ArrayList<>();
+        for (String lendingId : overdueLendings) {
+            // A lending being returned can briefly stay in the index; the record decides
+            LendingResponseDTO lending = lendings.get(lendingId);
+            if (lending != null && !lending.isReturned()) {
+                result.add(lending);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Advances the due-date wheel to {@code nowMillis} and marks the lendings that came due and are
+     * still out as overdue. Returns how many were marked. Called by {@link OverdueScheduler} every tick.
+     */
+    public int markOverdue(long nowMillis) {
+        int marked = 0;
+        for (String lendingId : dueDates.advance(nowMillis)) {
+            LendingResponseDTO lending = lendings.get(lendingId);
+            if (lending == null || lending.isReturned()) {
+                continue;
+            }
+            overdueLendings.add(lendingId);
+            // A return racing with this tick may have missed the entry just added; check again
+            LendingResponseDTO current = lendings.get(lendingId);
+            if (current == null || current.isReturned()) {
+                overdueLendings.remove(lendingId);
+            } else {
+                marked++;
+            }
+        }
+        return marked;
+    }
+    
+    public List<LendingResponseDTO> getLendingHistory() {
+        LOG.debugf("Retrieving lending history. Total lendings: %d", lendings.size() + archive.size());
+        return allLendings();
+    }
+    
+    /**
+     * Lendings made from {@code from} (inclusive) until {@code to} (exclusive), oldest first. Either bound
+     * may be null to leave that side open; both take {@code yyyy-MM-dd HH:mm:ss} or {@code yyyy-MM-dd}.
+     */
+    public List<LendingResponseDTO> getLendingHistory(String from, String to) {
+        LOG.debugf("Retrieving lending history. From: %s, To: %s", from, to);
+        List<LendingResponseDTO> result = new ArrayList<>();
+        historyRange(from, to).apply(null).forEachRemaining(entry -> result.add(entry.getValue()));
+        return result;
+    }
+    
+    public PageResponseDTO<LendingResponseDTO> getLendingHistoryPage(String from, String to, String cursor, Integer limit) {
+        LOG.debugf("Retrieving lending history page. From: %s, To: %s, Cursor: %s, Limit: %s", from, to, cursor, limit);
+        return Pagination.page(historyRange(from, to), cursor, limit, Function.identity());
+    }
+    
+    public Stream<LendingResponseDTO> streamLendingHistory(String from, String to) {
+        LOG.debugf("Streaming lending history. From: %s, To: %s", from, to);
+        return values(historyRange(from, to).apply(null));
+    }
+    
+    public List<LendingResponseDTO> getLendingsByMember(String memberId, String status) {
+        LOG.debugf("Retrieving lendings for member ID: %s, status: %s", memberId, status);
+        
+        // Validate member exists
+        memberService.getMemberById(memberId);
+        
+        return resolveLendings(activeByMember, returnedByMember, archive::findByMember, memberId, status);
+    }
+    
+    public List<LendingResponseDTO> getLendingsByBook(String bookId, String status) {
+        LOG.debugf("Retrieving lendings for book ID: %s, status: %s", bookId, status);
+        
+        // Validate book exists
+        bookService.getBookById(bookId);
+        
+        return resolveLendings(activeByBook, returnedByBook, archive::findByBook, bookId, status);
+    }
+    
+    public JournalSource journalSource() {
+        return new JournalSource() {
+            @Override
+            public EntityType type() {
+                return EntityType.LENDING;
+            }
+            
+            @Override
+            public JournalEntry read(String id) {
+                LendingResponseDTO lending = findLending(id);
+                return lending != null ? toEntry(lending) : null;
+            }
+            
+            @Override
+            public void forEach(Consumer<JournalEntry> sink) {
+                entriesAfter(null).forEachRemaining(entry -> sink.accept(toEntry(entry.getValue())));
+            }
+            
+            @Override
+            public void restore(JournalEntry entry) {
+                JournalEntry.Lending lending = (JournalEntry.Lending) entry;
+                LendingResponseDTO restored = new LendingResponseDTO(lending.id(), lending.bookId(), lending.memberId(),
+                        lending.lendingTime(), lending.dueTime(), lending.returnTime());
+                // Recovery runs before requests are served, so the record may be briefly in neither store
+                LendingResponseDTO previous = lendings.remove(lending.id());
+                if (previous == null) {
+                    previous = archive.remove(lending.id());
+                }
+                if (previous != null) {
+                    lendingsByTime.remove(timeKey(previous));
+                    if (!previous.isReturned()) {
+                        activeLendings.decrement();
+                        bookService.releaseReference(previous.getBookId());
+                        memberService.releaseReference(previous.getMemberId());
+                    }
+                }
+                if (LendingArchive.accepts(restored)) {
+                    archive.add(restored);
+                } else {
+                    lendings.put(lending.id(), restored);
+                    lendingsByTime.put(timeKey(restored), restored);
+                }
+                if (!restored.isReturned()) {
+                    activeLendings.increment();
+                    bookService.restoreReference(lending.bookId());
+                    memberService.restoreReference(lending.memberId());
+                    if (lending.dueTime() != 0) {
+                        // Already past due? Then it is marked overdue on the next tick
+                        dueDates.schedule(lending.id(), lending.dueTime());
+                    }
+                } else {
+                    dueDates.cancel(lending.id());
+                    overdueLendings.remove(lending.id());
+                }
+            }
+            
+            @Override
+            public void restoreRemoval(String id) {
+                LendingResponseDTO removed = lendings.remove(id);
+                if (removed == null) {
+                    removed = archive.remove(id);
+                }
+                if (removed != null) {
+                    if (!removed.isReturned()) {
+                        activeLendings.decrement();
+                        bookService.releaseReference(removed.getBookId());
+                        memberService.releaseReference(removed.getMemberId());
+                    }
+                    lendingsByTime.remove(timeKey(removed));
+                    dueDates.cancel(id);
+                    overdueLendings.remove(id);
+                }
+            }
+            
+            private JournalEntry toEntry(LendingResponseDTO lending) {
+                return new JournalEntry.Lending(lending.getLendingId(), lending.getBookId(), lending.getMemberId(),
+                        lending.getLendingTime(), lending.getDueTime(), lending.getReturnTime());
+            }
+        };
+    }
+    
+    // Helper method to create and index a lending for a copy that has already been reserved. Not journaled.
+    private LendingResponseDTO recordLending(String bookId, String memberId) {
+        String lendingId = idGenerator.nextId();
+        long lendingTime = System.currentTimeMillis();
+        long dueTime = lendingTime + lendingConfig.loanPeriod().toMillis();
+        
+        LendingResponseDTO lending = new LendingResponseDTO(
+            lendingId, 
+            bookId, 
+            memberId, 
+            lendingTime, 
+            dueTime,
+            0 // returnTime is 0 when book is lent
+        );
+        lendings.put(lendingId, lending);
+        lendingsByTime.put(timeKey(lending), lending);
+        activeLendings.increment();
+        dueDates.schedule(lendingId, dueTime);
+        // A cascading delete waiting on either reference can now find the lending
+        bookService.publishReference(bookId);
+        memberService.publishReference(memberId);
+        return lending;
+    }
+    
+    // Helper method to take the member and book references a new lending holds, released again on rollback
+    private void acquireReferences(LibraryTransaction tx, String bookId, String memberId) {
+        LibraryException failure = tryAcquireReferences(tx, bookId, memberId);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    // Helper method like acquireReferences, returning the failure instead of throwing it
+    private LibraryException tryAcquireReferences(LibraryTransaction tx, String bookId, String memberId) {
+        if (!memberService.acquireReference(memberId)) {
+            return ResourceNotFoundException.member(memberId);
+        }
+        tx.onRollback(() -> memberService.releaseReference(memberId));
+        if (!bookService.acquireReference(bookId)) {
+            return ResourceNotFoundException.book(bookId);
+        }
+        tx.onRollback(() -> bookService.releaseReference(bookId));
+        return null;
+    }
+    
+    // Helper method to close the counter of key and end the active lendings indexed under it until nothing
+    // references it anymore. The only newcomers are lends that took their reference just before closing:
+    // they show up in the index once recorded, or roll back. Both signal the counters.
+    private int endActiveLendings(Repository.Index<LendingResponseDTO> activeIndex, String key,
+                                  ReferenceCounts references, boolean restock) {
+        references.close(key);
+        int ended = 0;
+        while (true) {
+            // Read before looking, so a lend or return that settles after the look is not missed
+            long settlements = references.settlements();
+            if (references.count(key) == 0) {
+                return ended;
+            }
+            List<String> lendingIds = new ArrayList<>();
+            List<String> bookIds = new ArrayList<>();
+            List<LendingResponseDTO> endedLendings = new ArrayList<>();
+            List<LendingResponseDTO> updatedLendings = new ArrayList<>();
+            for (LendingResponseDTO lending : lendings.find(activeIndex, key)) {
+                LendingResponseDTO updatedLending = recordReturn(lending);
+                if (updatedLending != null) {
+                    lendingIds.add(lending.getLendingId());
+                    bookIds.add(lending.getBookId());
+                    endedLendings.add(lending);
+                    updatedLendings.add(updatedLending);
+                }
+            }
+            journal.commitAll(EntityType.LENDING, lendingIds);
+            if (restock) {
+                bookService.restockCopies(bookIds);
+            }
+            endedLendings.forEach(this::releaseReferences);
+            updatedLendings.forEach(this::archiveReturned);
+            ended += lendingIds.size();
+            if (lendingIds.isEmpty()) {
+                // A lend between taking its reference and recording its lending, or a return still
+                // restocking its copy: wait until one of them settles
+                references.awaitSettlement(settlements);
+            }
+        }
+    }
+    
+    // Helper method to undo recordLending, journaling the removal. Only removes the record it was given.
+    private void unrecordLending(LendingResponseDTO lending) {
+        if (lendings.remove(lending.getLendingId(), lending)) {
+            lendingsByTime.remove(timeKey(lending), lending);
+            dueDates.cancel(lending.getLendingId());
+            activeLendings.decrement();
+            journal.commit(EntityType.LENDING, lending.getLendingId());
+        }
+    }
+    
+    // Helper method to mark an active lending as returned, which moves it between the index sets. Not journaled.
+    // Returns null if the record is no longer the one given, i.e. a concurrent return got there first.
+    // The lending keeps its references until the caller has restocked its copy and calls releaseReferences.
+    private LendingResponseDTO recordReturn(LendingResponseDTO lending) {
         LendingResponseDTO updatedLending = new LendingResponseDTO(
             lending.getLendingId(),
             lending.getBookId(),
             lending.getMemberId(),
-            lending.getLendingDate(),
-            returnDate
+            lending.getLendingTime(),
+            lending.getDueTime(),
+            System.currentTimeMillis()
         );
-        lendings.put(lendingId, updatedLending);
-        
-        // Increase book quantity
-        bookService.increaseBookQuantity(lending.getBookId());
-        
-        LOG.info("Book returned successfully: " + updatedLending);
+        // Records are replaced, never mutated, and compare by identity, so this is a compare-and-set on the version read
+        if (!lendings.replace(lending.getLendingId(), lending, updatedLending)) {
+            return null;
+        }
+        lendingsByTime.put(timeKey(updatedLending), updatedLending);
+        dueDates.cancel(lending.getLendingId());
+        overdueLendings.remove(lending.getLendingId());
+        activeLendings.decrement();
         return updatedLending;
     }
     
-    public List<LendingResponseDTO> getLendingHistory() {
-        LOG.info("Retrieving lending history. Total lendings: " + lendings.size());
-        return new ArrayList<>(lendings.values());
+    // Helper method to release the book and member references of a lending whose return is complete
+    private void releaseReferences(LendingResponseDTO lending) {
+        bookService.releaseReference(lending.getBookId());
+        memberService.releaseReference(lending.getMemberId());
+    }
+    
+    // Helper method to undo recordReturn, journaling the restored record
+    private void unrecordReturn(LendingResponseDTO lending, LendingResponseDTO updatedLending) {
+        if (lendings.replace(lending.getLendingId(), updatedLending, lending)) {
+            lendingsByTime.put(timeKey(lending), lending);
+            activeLendings.increment();
+            if (lending.getDueTime() != 0) {
+                // It may have come due while it looked returned; a past due time fires on the next tick
+                dueDates.schedule(lending.getLendingId(), lending.getDueTime());
+            }
+            journal.commit(EntityType.LENDING, lending.getLendingId());
+        }
+    }
+    
+    // Helper method to move a returned lending from the heap into the archive once its return is committed.
+    // It is archived before it leaves the heap stores, so a read always finds it in one of them.
+    private void archiveReturned(LendingResponseDTO lending) {
+        if (!LendingArchive.accepts(lending)) {
+            return;
+        }
+        archive.add(lending);
+        lendingsByTime.remove(timeKey(lending), lending);
+        if (!lendings.remove(lending.getLendingId(), lending)) {
+            // Replaced on the heap in the meantime, so the heap copy is the current one
+            archive.remove(lending.getLendingId(), lending);
+        }
+    }
+    
+    private LendingResponseDTO findLending(String id) {
+        LendingResponseDTO lending = lendings.get(id);
+        return lending != null ? lending : archive.get(id);
+    }
+    
+    // Helper method to walk all lendings in ID order, heap and archive merged
+    private Iterator<Map.Entry<String, LendingResponseDTO>> entriesAfter(String id) {
+        return new MergingIterator<>(List.of(lendings.entriesAfter(id), archive.entriesAfter(id)));
+    }
+    
+    // Helper method to list all lendings: a consistent snapshot of the heap, merged with the archive
+    private List<LendingResponseDTO> allLendings() {
+        Iterator<Map.Entry<String, LendingResponseDTO>> heap = lendings.snapshot().stream()
+                .map(lending -> Map.entry(lending.getLendingId(), lending))
+                .iterator();
+        List<LendingResponseDTO> result = new ArrayList<>(lendings.size() + archive.size());
+        new MergingIterator<>(List.of(heap, archive.entriesAfter(null)))
+                .forEachRemaining(entry -> result.add(entry.getValue()));
+        return result;
+    }
+    
+    // Lazily maps entries to their records, so archived ones are only decoded as they are consumed
+    private static Stream<LendingResponseDTO> values(Iterator<Map.Entry<String, LendingResponseDTO>> entries) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED), false)
+                .map(Map.Entry::getValue);
+    }
+    
+    // Helper method to select the lendings made within [from, to): a function from the last time key
+    // returned (null at the start) to the entries after it, heap and archive merged in time-key order
+    private Function<String, Iterator<Map.Entry<String, LendingResponseDTO>>> historyRange(String from, String to) {
+        long fromTime = from != null ? parseBound("from", from) : 0;
+        long toTime = to != null ? parseBound("to", to) : Long.MAX_VALUE;
+        if (fromTime > toTime) {
+            throw new InvalidRequestException("Invalid date range: 'from' (" + from + ") is after 'to' (" + to + ")");
+        }
+        String upper = timeKey(toTime, "");
+        return after -> {
+            // Every key has an ID after the time, so (fromTime, "") is below all lendings made at fromTime
+            String lower = timeKey(fromTime, "");
+            if (after != null) {
+                // Checked before it is compared, so a tampered cursor is rejected rather than read as page one
+                if (!isTimeKey(after)) {
+                    throw new InvalidRequestException("Invalid cursor: '" + after + "'");
+                }
+                if (after.compareTo(lower) > 0) {
+                    lower = after;
+                }
+            }
+            if (lower.compareTo(upper) >= 0) {
+                return Collections.emptyIterator();
+            }
+            return new MergingIterator<>(List.of(
+                    lendingsByTime.subMap(lower, false, upper, false).entrySet().iterator(),
+                    archive.entriesByTime(lower, toTime)));
+        };
+    }
+    
+    private static long parseBound(String name, String value) {
+        try {
+            // Dates before the epoch cannot match any lending, and would not fit the unsigned time keys
+            return Math.max(0, LendingDates.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid '" + name + "' date: '" + value + "'. Expected yyyy-MM-dd or yyyy-MM-dd HH:mm:ss");
+        }
+    }
+    
+    // A key as timeKey makes them: 16 lower-case hex digits followed by a lending ID
+    private static boolean isTimeKey(String key) {
+        if (key.length() <= 16) {
+            return false;
+        }
+        for (int i = 0; i < 16; i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String timeKey(LendingResponseDTO lending) {
+        return timeKey(lending.getLendingTime(), lending.getLendingId());
+    }
+    
+    private static String timeKey(long time, String lendingId) {
+        return LendingArchive.timeKey(time, lendingId);
+    }
+    
+    private static boolean anyFailed(LibraryException[] failures) {
+        for (LibraryException failure : failures) {
+            if (failure != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Helper method to report an item of a rolled-back batch: its own failure, or NOT_APPLIED if it was fine
+    private static BatchItemResultDTO rejectedItem(String id, LibraryException failure) {
+        if (failure == null) {
+            return new BatchItemResultDTO(id, BatchItemResultDTO.NOT_APPLIED, null, null, null);
+        }
+        return new BatchItemResultDTO(id, BatchItemResultDTO.FAILED, null, failure.getMessage(),
+                failure.getErrorCode().name());
+    }
+    
+    // Helper method to look up the lendings indexed under key, filtered by status (active, returned or all)
+    private List<LendingResponseDTO> resolveLendings(Repository.Index<LendingResponseDTO> activeIndex,
+                                                     Repository.Index<LendingResponseDTO> returnedIndex,
+                                                     Function<String, List<LendingResponseDTO>> archived,
+                                                     String key, String status) {
+        boolean includeActive;
+        boolean includeReturned;
+        if (status == null || status.isBlank() || status.equalsIgnoreCase("all")) {
+            includeActive = true;
+            includeReturned = true;
+        } else if (status.equalsIgnoreCase("active")) {
+            includeActive = true;
+            includeReturned = false;
+        } else if (status.equalsIgnoreCase("returned")) {
+            includeActive = false;
+            includeReturned = true;
+        } else {
+            throw new InvalidRequestException("Invalid lending status: '" + status + "'. Expected active, returned or all");
+        }
+        
+        List<LendingResponseDTO> result = new ArrayList<>();
+        if (includeActive) {
+            result.addAll(lendings.find(activeIndex, key));
+        }
+        if (includeReturned) {
+            // A lending being archived can briefly be in both stores; list it once
+            List<LendingResponseDTO> onHeap = lendings.find(returnedIndex, key);
+            Set<String> seen = new HashSet<>();
+            for (LendingResponseDTO lending : onHeap) {
+                seen.add(lending.getLendingId());
+            }
+            result.addAll(onHeap);
+            for (LendingResponseDTO lending : archived.apply(key)) {
+                if (!seen.contains(lending.getLendingId())) {
+                    result.add(lending);
+                }
+            }
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
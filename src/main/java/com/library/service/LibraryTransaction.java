@@ -0,0 +1,59 @@
+package com.library.service;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo log for a change that spans several library stores, such as a lend (a copy taken, a lending
+ * recorded) or a return. Each step that changes state registers how to reverse itself; if the log is
+ * closed without {@link #commit()}, typically because a later step threw, the registered steps are
+ * undone in reverse order. Used in try-with-resources:
+ * <pre>{@code
+ * try (LibraryTransaction tx = new LibraryTransaction()) {
+ *     bookService.decreaseBookQuantity(bookId);
+ *     tx.onRollback(() -> bookService.increaseBookQuantity(bookId));
+ *     ...
+ *     tx.commit();
+ * }
+ * }</pre>
+ * The guarantee is all-or-nothing on failure, not atomic visibility. Every step is visible to
+ * concurrent readers as soon as it is applied, so a reader can see a copy taken before its lending
+ * is recorded, or a lending returned before its copy is back on the shelf; a failed change can be
+ * seen briefly before it is undone. Each step is safe on its own (conditional decrements never
+ * oversell, compare-and-set record updates never lose a concurrent write), so every store is
+ * consistent by itself at all times, and copy counts and lendings agree with each other once the
+ * changes in flight have finished. No locks are taken, so concurrent changes never block each other.
+ */
+final class LibraryTransaction implements AutoCloseable {
+    
+    private static final Logger LOG = Logger.getLogger(LibraryTransaction.class);
+    
+    private final Deque<Runnable> undoLog = new ArrayDeque<>();
+    private boolean committed;
+    
+    void onRollback(Runnable undo) {
+        undoLog.push(undo);
+    }
+    
+    void commit() {
+        committed = true;
+        undoLog.clear();
+    }
+    
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        // Keep undoing after a failed step, so one broken compensation does not strand the others
+        while (!undoLog.isEmpty()) {
+            try {
+                undoLog.pop().run();
+            } catch (RuntimeException e) {
+                LOG.error("Failed to roll back a transaction step", e);
+            }
+        }
+    }
+}
@@ -2,105 +2,279 @@ package com.library.service;
 
 import com.library.dto.MemberRequestDTO;
 import com.library.dto.MemberResponseDTO;
+import com.library.dto.PageResponseDTO;
+import com.library.exception.DuplicateResourceException;
+import com.library.exception.ErrorCode;
+import com.library.exception.ResourceInUseException;
+import com.library.exception.ResourceNotFoundException;
+import com.library.id.IdGenerator;
+import com.library.metrics.LibraryMetrics;
+import com.library.persistence.EntityType;
+import com.library.persistence.Journal;
+import com.library.persistence.JournalEntry;
+import com.library.persistence.JournalSource;
+import com.library.repository.CaseFolding;
+import com.library.repository.Repository;
+import com.library.repository.StripedRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class MemberService {
     
     private static final Logger LOG = Logger.getLogger(MemberService.class);
     
-    // In-memory storage using ConcurrentHashMap for thread safety
-    private final Map<String, MemberResponseDTO> members = new ConcurrentHashMap<>();
+    @Inject
+    Journal journal;
+    
+    @Inject
+    IdGenerator idGenerator;
+    
+    @Inject
+    LibraryMetrics metrics;
+    
+    // In-memory storage, ordered by ID so list endpoints can paginate with a stable cursor
+    private final Repository<MemberResponseDTO> members = new StripedRepository<>();
+    
+    // Unique index: case-folded email -> member ID. putIfAbsent reserves an address atomically.
+    private final Map<String, String> emailIndex = new ConcurrentHashMap<>();
+    
+    // Active lendings per member, so a delete can refuse (or cascade) without scanning the lendings
+    private final ReferenceCounts references = new ReferenceCounts();
+    
+    public int countMembers() {
+        return members.size();
+    }
     
     public List<MemberResponseDTO> getAllMembers() {
-        LOG.info("Retrieving all members. Total members: " + members.size());
-        return new ArrayList<>(members.values());
+        LOG.debugf("Retrieving all members. Total members: %d", members.size());
+        return members.snapshot();
+    }
+    
+    public PageResponseDTO<MemberResponseDTO> getMembersPage(String cursor, Integer limit) {
+        LOG.debugf("Retrieving members page. Cursor: %s, Limit: %s", cursor, limit);
+        return Pagination.page(members, cursor, limit, Function.identity());
+    }
+    
+    // Lazily walks the members in ID order, so callers can write them out with bounded memory
+    public Stream<MemberResponseDTO> streamMembers() {
+        LOG.debugf("Streaming all members. Total members: %d", members.size());
+        return members.stream();
     }
     
     public MemberResponseDTO getMemberById(String id) {
-        LOG.info("Retrieving member with ID: " + id);
+        LOG.debugf("Retrieving member with ID: %s", id);
         MemberResponseDTO member = members.get(id);
         if (member == null) {
-            LOG.error("Member not found with ID: " + id);
-            throw new RuntimeException("Member not found with ID: " + id);
+            throw ResourceNotFoundException.member(id);
         }
         return member;
     }
     
     public MemberResponseDTO createMember(MemberRequestDTO memberRequestDTO) {
-        LOG.info("Creating new member: " + memberRequestDTO);
+        LOG.debugf("Creating new member: %s", memberRequestDTO);
         
-        // Check for duplicate email
-        if (isEmailDuplicate(memberRequestDTO.getEmail())) {
-            LOG.error("Member already exists with email: " + memberRequestDTO.getEmail());
-            throw new RuntimeException("Member already exists with email: '" + memberRequestDTO.getEmail() + "'");
+        MemberResponseDTO memberResponseDTO = insertMember(memberRequestDTO.getName(), memberRequestDTO.getEmail());
+        if (memberResponseDTO == null) {
+            metrics.duplicateMemberRejected();
+            throw new DuplicateResourceException(ErrorCode.MEMBER_ALREADY_EXISTS, "Member already exists with email: '" + memberRequestDTO.getEmail() + "'");
         }
         
-        String id = UUID.randomUUID().toString();
-        MemberResponseDTO memberResponseDTO = new MemberResponseDTO(
-            id,
-            memberRequestDTO.getName(),
-            memberRequestDTO.getEmail()
-        );
-        
-        members.put(id, memberResponseDTO);
-        LOG.info("Created new member: " + memberResponseDTO);
+        journal.commit(EntityType.MEMBER, memberResponseDTO.getId());
+        LOG.debugf("Created new member: %s", memberResponseDTO);
         
         return memberResponseDTO;
     }
     
-    public MemberResponseDTO updateMember(String id, MemberRequestDTO memberRequestDTO) {
-        LOG.info("Updating member with ID: " + id);
-        
-        if (!members.containsKey(id)) {
-            LOG.error("Member not found with ID: " + id);
-            throw new RuntimeException("Member not found with ID: " + id);
+    /**
+     * Registers a batch of already-validated import rows. Returns one entry per row: {@code null} if the
+     * member was created, otherwise the reason it was rejected. The batch is journaled as one group.
+     */
+    public String[] importMembers(List<MemberRequestDTO> rows) {
+        String[] errors = new String[rows.size()];
+        List<String> created = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            MemberRequestDTO row = rows.get(i);
+            MemberResponseDTO member = insertMember(row.getName(), row.getEmail());
+            if (member == null) {
+                metrics.duplicateMemberRejected();
+                errors[i] = "Member already exists with email: '" + row.getEmail() + "'";
+            } else {
+                created.add(member.getId());
+            }
         }
+        journal.commitAll(EntityType.MEMBER, created);
         
-        // Check for duplicate email (excluding the current member being updated)
-        if (isEmailDuplicateExcludingId(memberRequestDTO.getEmail(), id)) {
-            LOG.error("Member already exists with email: " + memberRequestDTO.getEmail());
-            throw new RuntimeException("Member already exists with email: '" + memberRequestDTO.getEmail() + "'");
-        }
+        LOG.debugf("Imported %d of %d member rows", created.size(), rows.size());
+        return errors;
+    }
+    
+    public MemberResponseDTO updateMember(String id, MemberRequestDTO memberRequestDTO) {
+        LOG.debugf("Updating member with ID: %s", id);
         
         MemberResponseDTO updatedMember = new MemberResponseDTO(
             id,
             memberRequestDTO.getName(),
             memberRequestDTO.getEmail()
         );
+        String newKey = emailKey(memberRequestDTO.getEmail());
+        
+        while (true) {
+            MemberResponseDTO existingMember = members.get(id);
+            if (existingMember == null) {
+                throw ResourceNotFoundException.member(id);
+            }
+            
+            String oldKey = emailKey(existingMember.getEmail());
+            boolean emailChanged = !oldKey.equals(newKey);
+            
+            // Reserve the new email (excluding the current member being updated)
+            boolean reserved = false;
+            if (emailChanged) {
+                String ownerId = emailIndex.putIfAbsent(newKey, id);
+                if (ownerId != null && !ownerId.equals(id)) {
+                    metrics.duplicateMemberRejected();
+                    throw new DuplicateResourceException(ErrorCode.MEMBER_ALREADY_EXISTS, "Member already exists with email: '" + memberRequestDTO.getEmail() + "'");
+                }
+                reserved = ownerId == null;
+            }
+            
+            // Swap only if nobody changed or removed the member since it was read
+            if (members.replace(id, existingMember, updatedMember)) {
+                if (emailChanged) {
+                    // Release the previous address only after the member has moved to the new one
+                    emailIndex.remove(oldKey, id);
+                }
+                break;
+            }
+            
+            // Lost a race with a concurrent update/delete: undo our reservation and retry
+            if (reserved) {
+                emailIndex.remove(newKey, id);
+            }
+        }
         
-        members.put(id, updatedMember);
-        LOG.info("Updated member: " + updatedMember);
+        journal.commit(EntityType.MEMBER, id);
+        LOG.debugf("Updated member: %s", updatedMember);
         
         return updatedMember;
     }
     
+    /**
+     * Deletes a member with no books out. Closing their reference count at zero also stops new lends, so
+     * the check cannot go stale before the member is gone. See {@link LendingService#deleteMemberCascade}
+     * for deleting a member who still has books out.
+     */
     public void deleteMember(String id) {
-        LOG.info("Deleting member with ID: " + id);
+        LOG.debugf("Deleting member with ID: %s", id);
         
         if (!members.containsKey(id)) {
-            LOG.error("Member not found with ID: " + id);
-            throw new RuntimeException("Member not found with ID: " + id);
+            throw ResourceNotFoundException.member(id);
+        }
+        
+        int activeLendings = references.tryClose(id);
+        if (activeLendings > 0) {
+            throw ResourceInUseException.member(id, activeLendings);
+        }
+        
+        MemberResponseDTO removed = members.remove(id);
+        references.unregister(id);
+        if (removed != null) {
+            emailIndex.remove(emailKey(removed.getEmail()), id);
+            journal.commit(EntityType.MEMBER, id);
+        }
+        LOG.debugf("Deleted member with ID: %s", id);
+    }
+    
+    // Helper method to reserve the email and store a new member. Returns null if the email is taken.
+    private MemberResponseDTO insertMember(String name, String email) {
+        String id = idGenerator.nextId();
+        
+        // Reserve the email; fails if another member already owns it
+        if (emailIndex.putIfAbsent(emailKey(email), id) != null) {
+            return null;
         }
         
-        members.remove(id);
-        LOG.info("Deleted member with ID: " + id);
+        MemberResponseDTO memberResponseDTO = new MemberResponseDTO(id, name, email);
+        references.register(id);
+        members.put(id, memberResponseDTO);
+        return memberResponseDTO;
+    }
+    
+    // Reference counting by lendings: a lending holds one reference to its member while it is active
+    boolean acquireReference(String id) {
+        return references.acquire(id);
+    }
+    
+    void releaseReference(String id) {
+        references.release(id);
+    }
+    
+    void restoreReference(String id) {
+        references.restore(id);
+    }
+    
+    void publishReference(String id) {
+        references.published(id);
+    }
+    
+    // The counters themselves, for a cascading delete that closes one and waits for it to drain
+    ReferenceCounts references() {
+        return references;
     }
     
-    // Helper method to check for duplicate email
-    private boolean isEmailDuplicate(String email) {
-        return members.values().stream()
-                .anyMatch(member -> member.getEmail().equalsIgnoreCase(email));
+    public JournalSource journalSource() {
+        return new JournalSource() {
+            @Override
+            public EntityType type() {
+                return EntityType.MEMBER;
+            }
+            
+            @Override
+            public JournalEntry read(String id) {
+                MemberResponseDTO member = members.get(id);
+                return member != null ? new JournalEntry.Member(id, member.getName(), member.getEmail()) : null;
+            }
+            
+            @Override
+            public void forEach(Consumer<JournalEntry> sink) {
+                members.stream().forEach(member ->
+                        sink.accept(new JournalEntry.Member(member.getId(), member.getName(), member.getEmail())));
+            }
+            
+            @Override
+            public void restore(JournalEntry entry) {
+                JournalEntry.Member member = (JournalEntry.Member) entry;
+                references.register(member.id());
+                MemberResponseDTO previous = members.put(member.id(),
+                        new MemberResponseDTO(member.id(), member.name(), member.email()));
+                if (previous != null) {
+                    emailIndex.remove(emailKey(previous.getEmail()), member.id());
+                }
+                emailIndex.put(emailKey(member.email()), member.id());
+            }
+            
+            @Override
+            public void restoreRemoval(String id) {
+                MemberResponseDTO removed = members.remove(id);
+                if (removed != null) {
+                    emailIndex.remove(emailKey(removed.getEmail()), id);
+                }
+                references.unregister(id);
+            }
+        };
     }
     
-    // Helper method to check for duplicate email excluding a specific ID (for updates)
-    private boolean isEmailDuplicateExcludingId(String email, String excludeId) {
-        return members.values().stream()
-                .anyMatch(member -> !member.getId().equals(excludeId) && 
-                                member.getEmail().equalsIgnoreCase(email));
+    // Helper method to build the email index key: the same equality as the equalsIgnoreCase members
+    // have always been compared with, and no trimming
+    private static String emailKey(String email) {
+        return CaseFolding.fold(email);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.library.service;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Advances the lending due-date wheel once per tick on a background thread, so lendings turn
+ * overdue as their due date passes without anything scanning the lending store.
+ */
+@ApplicationScoped
+public class OverdueScheduler {
+    
+    private static final Logger LOG = Logger.getLogger(OverdueScheduler.class);
+    
+    @Inject
+    LendingService lendingService;
+    
+    private ScheduledExecutorService scheduler;
+    
+    void onStart(@Observes StartupEvent event) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-overdue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, LendingService.OVERDUE_TICK_MILLIS,
+                LendingService.OVERDUE_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+    
+    private void tick() {
+        // An exception would cancel the schedule, so log it and keep ticking
+        try {
+            int marked = lendingService.markOverdue(System.currentTimeMillis());
+            if (marked > 0) {
+                LOG.debugf("Marked %d lendings overdue", marked);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Failed to advance overdue lendings", e);
+        }
+    }
+}
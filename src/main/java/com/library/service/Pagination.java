@@ -0,0 +1,89 @@
+package com.library.service;
+
+import com.library.dto.PageResponseDTO;
+import com.library.exception.InvalidRequestException;
+import com.library.repository.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+/**
+ * Cursor-based pagination over an ID-ordered map, repository or merged source. The cursor is the opaque,
+ * URL-safe encoding of the last ID returned, so a page is a tail-map walk
+ * that stays stable while entries are added or removed concurrently.
+ */
+final class Pagination {
+    
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 1000;
+    
+    private Pagination() {}
+    
+    static <V, R> PageResponseDTO<R> page(NavigableMap<String, V> source, String cursor, Integer limit,
+                                          Function<V, R> mapper) {
+        NavigableMap<String, V> view = (cursor == null || cursor.isBlank())
+                ? source
+                : source.tailMap(decodeCursor(cursor), false);
+        return page(view.entrySet().iterator(), limit, mapper);
+    }
+    
+    static <V, R> PageResponseDTO<R> page(Repository<V> source, String cursor, Integer limit,
+                                          Function<V, R> mapper) {
+        return page(source::entriesAfter, cursor, limit, mapper);
+    }
+    
+    // Pages over any key-ordered source, given as a function from the last key returned (null at
+    // the start) to the entries after it
+    static <V, R> PageResponseDTO<R> page(Function<String, Iterator<Map.Entry<String, V>>> entriesAfter,
+                                          String cursor, Integer limit, Function<V, R> mapper) {
+        String after = (cursor == null || cursor.isBlank()) ? null : decodeCursor(cursor);
+        return page(entriesAfter.apply(after), limit, mapper);
+    }
+    
+    private static <V, R> PageResponseDTO<R> page(Iterator<Map.Entry<String, V>> entries, Integer limit,
+                                                  Function<V, R> mapper) {
+        int pageSize = resolveLimit(limit);
+        List<R> items = new ArrayList<>(Math.min(pageSize, 64));
+        String lastKey = null;
+        boolean hasMore = false;
+        while (entries.hasNext()) {
+            Map.Entry<String, V> entry = entries.next();
+            if (items.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            items.add(mapper.apply(entry.getValue()));
+            lastKey = entry.getKey();
+        }
+        
+        return new PageResponseDTO<>(items, hasMore ? encodeCursor(lastKey) : null, pageSize);
+    }
+    
+    private static int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new InvalidRequestException("Invalid limit: " + limit + ". Limit must be at least 1");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+    
+    private static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: '" + cursor + "'");
+        }
+    }
+}
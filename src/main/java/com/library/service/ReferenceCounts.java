@@ -0,0 +1,147 @@
+package com.library.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-entity count of the active lendings that reference it, so a delete can tell in O(1) whether the
+ * entity is still in use. A counter exists from when its entity is stored until it is deleted; taking
+ * a reference to an unknown ID fails, which doubles as the existence check.
+ * <p>
+ * Deleting first <em>closes</em> the counter: from then on no new reference can be taken, so a
+ * lend racing with the delete either got its reference in before (and the delete sees it) or fails.
+ * A delete that has to wait for such references to settle waits on a condition: every release of a
+ * reference on a closed counter, and every lending published under one, signals it.
+ */
+final class ReferenceCounts {
+    
+    // Set on a closed counter; the bits below it hold the count
+    private static final int CLOSED = 1 << 30;
+    
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    
+    // Counts the settlements on closed counters, so a waiter can tell whether one happened since it looked
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition settled = lock.newCondition();
+    private long settlements;
+    
+    // Called before the entity becomes visible, so anyone who finds the entity finds its counter
+    void register(String id) {
+        counts.putIfAbsent(id, new AtomicInteger());
+    }
+    
+    void unregister(String id) {
+        counts.remove(id);
+    }
+    
+    /**
+     * Takes a reference. Returns false if the ID is unknown or its entity is being deleted.
+     */
+    boolean acquire(String id) {
+        AtomicInteger count = counts.get(id);
+        if (count == null) {
+            return false;
+        }
+        int current;
+        do {
+            current = count.get();
+            if ((current & CLOSED) != 0) {
+                return false;
+            }
+        } while (!count.compareAndSet(current, current + 1));
+        return true;
+    }
+    
+    void release(String id) {
+        AtomicInteger count = counts.get(id);
+        if (count != null && (count.decrementAndGet() & CLOSED) != 0) {
+            signalSettlement();
+        }
+    }
+    
+    /**
+     * Called once the lending holding a reference has been stored, so a delete waiting on the closed
+     * counter looks for the lending again.
+     */
+    void published(String id) {
+        AtomicInteger count = counts.get(id);
+        if (count != null && (count.get() & CLOSED) != 0) {
+            signalSettlement();
+        }
+    }
+    
+    // Read before looking at the lendings; pass to awaitSettlement to wait for anything that changed since
+    long settlements() {
+        lock.lock();
+        try {
+            return settlements;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Waits until a reference on a closed counter has been released or published after {@code observed}
+     * was read from {@link #settlements()}. Returns at once if that has already happened.
+     */
+    void awaitSettlement(long observed) {
+        lock.lock();
+        try {
+            while (settlements == observed) {
+                settled.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void signalSettlement() {
+        lock.lock();
+        try {
+            settlements++;
+            settled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Journal replay may see a lending before its book or member, so this registers the ID if needed
+    void restore(String id) {
+        counts.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+    }
+    
+    int count(String id) {
+        AtomicInteger count = counts.get(id);
+        return count != null ? count.get() & ~CLOSED : 0;
+    }
+    
+    /**
+     * Closes the counter if nothing references the ID. Returns 0 if it is now closed (or unknown),
+     * otherwise the number of references in the way, leaving the counter open.
+     */
+    int tryClose(String id) {
+        AtomicInteger count = counts.get(id);
+        if (count == null) {
+            return 0;
+        }
+        int current;
+        do {
+            current = count.get();
+            if ((current & ~CLOSED) != 0) {
+                return current & ~CLOSED;
+            }
+        } while (!count.compareAndSet(current, CLOSED));
+        return 0;
+    }
+    
+    // Closes the counter whatever its count, so the references left can be ended before deleting
+    void close(String id) {
+        AtomicInteger count = counts.get(id);
+        if (count != null) {
+            count.getAndUpdate(current -> current | CLOSED);
+        }
+    }
+}
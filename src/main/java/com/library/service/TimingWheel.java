@@ -0,0 +1,172 @@
+package com.library.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timing wheel of string keys. Time is counted in fixed ticks; level 0 has one slot per
+ * tick, and each higher level has slots 64 times as wide as the level below. A key is filed at the
+ * lowest level whose slot still tells its deadline apart from the current tick, so scheduling is O(1)
+ * and a key is touched only when it moves one level down or expires: at most once per level.
+ * Each key has at most one timer, found through a map, so cancelling is O(1) as well. Owners still
+ * check on expiry whether the key matters, since a cancel can race the advance that expires it.
+ */
+final class TimingWheel {
+    
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^7 ticks: at one-second ticks, far beyond any deadline this library sets
+    private static final int LEVELS = 7;
+    
+    // A slot is a doubly linked list, pushed at the front; a timer knows its slot so it can unlink itself
+    private static final class Timer {
+        
+        final String key;
+        long deadline;
+        int level;
+        int slot;
+        Timer previous;
+        Timer next;
+        
+        Timer(String key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+    
+    private final long tickMillis;
+    private final Timer[][] wheel = new Timer[LEVELS][SLOTS];
+    private final Map<String, Timer> timers = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentTick;
+    
+    TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+    
+    /**
+     * Files {@code key} to expire at {@code deadlineMillis}, replacing any timer it already has.
+     * A deadline that has already passed expires on the next advance.
+     */
+    void schedule(String key, long deadlineMillis) {
+        // Round up, so a key never expires before its deadline
+        long deadline = Math.ceilDiv(deadlineMillis, tickMillis);
+        lock.lock();
+        try {
+            Timer timer = timers.get(key);
+            if (timer != null) {
+                unlink(timer);
+            } else {
+                timer = new Timer(key, deadline);
+                timers.put(key, timer);
+            }
+            timer.deadline = Math.max(deadline, currentTick + 1);
+            file(timer);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Removes the timer of {@code key}, if it has one that has not expired yet.
+     */
+    void cancel(String key) {
+        lock.lock();
+        try {
+            Timer timer = timers.remove(key);
+            if (timer != null) {
+                unlink(timer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Number of keys with a pending timer
+    int size() {
+        lock.lock();
+        try {
+            return timers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Moves the wheel forward to {@code nowMillis} and returns the keys whose deadline has been reached.
+     */
+    List<String> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        List<String> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (currentTick < target) {
+                long tick = ++currentTick;
+                // Bring down the timers of every higher slot that starts at this tick, widest first
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+                        Timer timer = wheel[level][slot];
+                        wheel[level][slot] = null;
+                        while (timer != null) {
+                            Timer next = timer.next;
+                            if (timer.deadline <= tick) {
+                                expire(timer, expired);
+                            } else {
+                                file(timer);
+                            }
+                            timer = next;
+                        }
+                    }
+                }
+                int slot = (int) tick & SLOT_MASK;
+                for (Timer timer = wheel[0][slot]; timer != null; timer = timer.next) {
+                    expire(timer, expired);
+                }
+                wheel[0][slot] = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+    
+    private void expire(Timer timer, List<String> expired) {
+        timers.remove(timer.key);
+        expired.add(timer.key);
+    }
+    
+    // Files a timer at the level of the highest 6-bit digit in which its deadline differs from now
+    private void file(Timer timer) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(timer.deadline ^ currentTick);
+        int level = Math.min(highestBit / SLOT_BITS, LEVELS - 1);
+        int slot = (int) (timer.deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        Timer head = wheel[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = head;
+        if (head != null) {
+            head.previous = timer;
+        }
+        wheel[level][slot] = timer;
+    }
+    
+    private void unlink(Timer timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            wheel[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.previous = null;
+        timer.next = null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.library.controller;
+
+import com.library.dto.BookRequestDTO;
+import com.library.service.BookService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Conditional GETs of cached catalog bodies: the ETag decides, and a date alone never turns an
+ * equal Last-Modified into a 304.
+ */
+@QuarkusTest
+class CachedResponsesTest {
+    
+    @Inject
+    BookService bookService;
+    
+    @Test
+    void matchingEtagGets304UntilTheBookChanges() {
+        String id = newBook();
+        for (String path : new String[] {"/api/books/", "/api/rx/books/"}) {
+            Response first = given().get(path + id).then().statusCode(200).extract().response();
+            String etag = first.header("ETag");
+            assertNotNull(etag);
+            assertNotNull(first.header("Last-Modified"));
+            
+            given().header("If-None-Match", etag).get(path + id).then().statusCode(304).header("ETag", etag);
+            given().header("If-None-Match", "\"other\", W/" + etag).get(path + id).then().statusCode(304);
+            given().header("If-None-Match", "\"other\"").get(path + id).then().statusCode(200);
+        }
+        
+        Response before = given().get("/api/books/" + id).then().extract().response();
+        bookService.decreaseBookQuantity(id);
+        Response after = given().header("If-None-Match", before.header("ETag")).get("/api/books/" + id)
+                .then().statusCode(200).extract().response();
+        assertNotEquals(before.header("ETag"), after.header("ETag"));
+    }
+    
+    @Test
+    void equalDateAloneIsNotEnoughFor304() {
+        String id = newBook();
+        Response first = given().get("/api/books/" + id).then().statusCode(200).extract().response();
+        String lastModified = first.header("Last-Modified");
+        
+        // Within the same second the book can change again without its date moving
+        bookService.decreaseBookQuantity(id);
+        given().header("If-Modified-Since", lastModified).get("/api/books/" + id).then().statusCode(200);
+        
+        // The ETag still decides when both are sent
+        String etag = given().get("/api/books/" + id).then().extract().header("ETag");
+        given().header("If-None-Match", etag).header("If-Modified-Since", lastModified)
+                .get("/api/books/" + id).then().statusCode(304);
+        // A date later than the last change is enough on its own
+        String later = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(1));
+        given().header("If-Modified-Since", later).get("/api/books/" + id).then().statusCode(304);
+        given().header("If-Modified-Since", "not a date").get("/api/books/" + id).then().statusCode(200);
+    }
+    
+    @Test
+    void lastModifiedIsTheTimeOfTheChangeNotOfSerialization() throws InterruptedException {
+        newBook();
+        String first = given().queryParam("limit", 1).get("/api/books").then().statusCode(200).extract().header("Last-Modified");
+        Thread.sleep(1_100);
+        // A different page, serialized a second later from the same catalog version
+        String second = given().queryParam("limit", 2).get("/api/books").then().statusCode(200).extract().header("Last-Modified");
+        assertEquals(first, second);
+    }
+    
+    private String newBook() {
+        String run = Long.toString(System.nanoTime(), 36);
+        String id = bookService.createBook(new BookRequestDTO("Cached " + run, "Cache Author")).getId();
+        bookService.createBook(new BookRequestDTO("Cached " + run, "Cache Author"));
+        return id;
+    }
+}
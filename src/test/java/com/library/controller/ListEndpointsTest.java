@@ -0,0 +1,188 @@
+package com.library.controller;
+
+import com.library.dto.BookRequestDTO;
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.dto.MemberRequestDTO;
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The list endpoints over HTTP: page parameters are validated, the cursor walks the whole list, and
+ * NDJSON is only streamed to a client that prefers it explicitly. The lending history is filtered by
+ * date and paged in lending-time order across the heap and the archive.
+ */
+@QuarkusTest
+class ListEndpointsTest {
+    
+    private static final String NDJSON = "application/x-ndjson";
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Test
+    void invalidLimitOrCursorIsBadRequest() {
+        for (String query : new String[] {"limit=0", "limit=-1", "cursor=not%20a%20cursor!"}) {
+            given().get("/api/books?" + query).then().statusCode(400).body("code", equalTo("INVALID_REQUEST"));
+            given().get("/api/members?" + query).then().statusCode(400).body("code", equalTo("INVALID_REQUEST"));
+        }
+    }
+    
+    @Test
+    void cursorWalksEveryBookOnce() {
+        bookService.createBook(new BookRequestDTO("Paged " + System.nanoTime(), "Page Author"));
+        int total = bookService.countBooks();
+        
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Response page = given().queryParam("limit", 7).queryParam("cursor", cursor == null ? "" : cursor)
+                    .get("/api/books").then().statusCode(200).extract().response();
+            ids.addAll(page.jsonPath().getList("items.id"));
+            cursor = page.jsonPath().getString("nextCursor");
+        } while (cursor != null);
+        
+        assertEquals(total, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+    
+    @Test
+    void ndjsonIsStreamedOneRecordPerLine() {
+        String id = bookService.createBook(new BookRequestDTO("Streamed " + System.nanoTime(), "Stream Author")).getId();
+        
+        Response response = given().accept(NDJSON).get("/api/books").then().statusCode(200)
+                .contentType(startsWith(NDJSON)).extract().response();
+        String[] lines = response.asString().split("\n");
+        
+        assertEquals(bookService.countBooks(), lines.length);
+        for (String line : lines) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"), line);
+        }
+        assertTrue(response.asString().contains("\"id\":\"" + id + "\""));
+    }
+    
+    @Test
+    void ndjsonOnlyWhenPreferredOverJson() {
+        assertNdjson(NDJSON, true);
+        assertNdjson(NDJSON + ", application/json;q=0.5", true);
+        assertNdjson("application/json, " + NDJSON, false);
+        assertNdjson("*/*", false);
+        assertNdjson("application/*", false);
+    }
+    
+    @Test
+    void membersPageWithoutMoreEntriesHasNoCursor() {
+        Response page = given().queryParam("limit", 1000).get("/api/members").then().statusCode(200).extract().response();
+        
+        assertNull(page.jsonPath().getString("nextCursor"));
+        assertEquals(1000, page.jsonPath().getInt("limit"));
+    }
+    
+    @Test
+    void historyRangeSelectsByLendingDate() {
+        String lendingId = lend(System.nanoTime()).getLendingId();
+        LocalDate today = LocalDate.now();
+        
+        List<String> inRange = given().queryParam("from", today.minusDays(1).toString()).queryParam("to", today.plusDays(1).toString())
+                .get("/api/lending/history").then().statusCode(200).extract().jsonPath().getList("lendingId");
+        List<String> later = given().queryParam("from", today.plusDays(1) + " 00:00:00")
+                .get("/api/lending/history").then().statusCode(200).extract().jsonPath().getList("lendingId");
+        List<String> earlier = given().queryParam("to", today.minusDays(1).toString())
+                .get("/api/lending/history").then().statusCode(200).extract().jsonPath().getList("lendingId");
+        
+        assertTrue(inRange.contains(lendingId));
+        assertTrue(later.isEmpty(), later.toString());
+        assertFalse(earlier.contains(lendingId));
+        assertEquals(lendingService.getLendingHistory(today.minusDays(1).toString(), today.plusDays(1).toString()).stream()
+                .map(LendingResponseDTO::getLendingId).toList(), inRange);
+    }
+    
+    @Test
+    void invalidHistoryRangeIsBadRequest() {
+        String today = LocalDate.now().toString();
+        String tomorrow = LocalDate.now().plusDays(1).toString();
+        for (String query : new String[] {"from=yesterday", "to=2024-13-01", "from=" + tomorrow + "&to=" + today}) {
+            given().get("/api/lending/history?" + query).then().statusCode(400).body("code", equalTo("INVALID_REQUEST"));
+        }
+        // Malformed cursors are rejected wherever they would sort, including below the start of the range
+        for (String key : new String[] {"!", "0000000000000000", "000000000000000G1", "zzzzzzzzzzzzzzzzzz"}) {
+            given().queryParam("from", today).queryParam("cursor", cursor(key))
+                    .get("/api/lending/history").then().statusCode(400).body("code", equalTo("INVALID_REQUEST"));
+        }
+    }
+    
+    @Test
+    void historyPagesWalkHeapAndArchiveInTimeOrder() {
+        long run = System.nanoTime();
+        Set<String> mine = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            LendingResponseDTO lending = lend(run + i);
+            mine.add(lending.getLendingId());
+            if (i % 2 == 0) {
+                // Returned lendings move to the archive, so the walk merges both stores
+                lendingService.returnBook(lending.getLendingId());
+            }
+        }
+        String from = LocalDate.now().minusDays(1).toString();
+        
+        List<String> ids = new ArrayList<>();
+        List<String> dates = new ArrayList<>();
+        String cursor = null;
+        do {
+            Response page = given().queryParam("from", from).queryParam("limit", 2).queryParam("cursor", cursor == null ? "" : cursor)
+                    .get("/api/lending/history").then().statusCode(200).extract().response();
+            ids.addAll(page.jsonPath().getList("items.lendingId"));
+            dates.addAll(page.jsonPath().getList("items.lendingDate"));
+            cursor = page.jsonPath().getString("nextCursor");
+        } while (cursor != null);
+        
+        assertTrue(ids.containsAll(mine), ids.toString());
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        // yyyy-MM-dd HH:mm:ss sorts as text in time order
+        assertEquals(dates.stream().sorted().toList(), dates);
+    }
+    
+    // Helper method to lend a fresh book to a fresh member
+    private LendingResponseDTO lend(long run) {
+        String bookId = bookService.createBook(new BookRequestDTO("History " + run, "History Author")).getId();
+        String memberId = memberService.createMember(new MemberRequestDTO("History Member", "history-" + run + "@example.com")).getId();
+        return lendingService.lendBook(new LendingRequestDTO(bookId, memberId));
+    }
+    
+    private static String cursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Helper method to check which format the book list comes back in for an Accept header
+    private static void assertNdjson(String accept, boolean ndjson) {
+        String contentType = given().accept(accept).get("/api/books").then().statusCode(200).extract().contentType();
+        assertEquals(ndjson, contentType.startsWith(NDJSON), accept + " -> " + contentType);
+    }
+}
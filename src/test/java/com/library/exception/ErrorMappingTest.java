@@ -0,0 +1,111 @@
+package com.library.exception;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.ws.rs.NotAllowedException;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each kind of failure maps to its status and error code by type, never by its message, and the body
+ * keeps the same JSON shape whatever produced it.
+ */
+@QuarkusTest
+class ErrorMappingTest {
+    
+    @Test
+    void unknownBookIsNotFound() {
+        String id = "missing-" + run();
+        given()
+          .when().get("/api/books/" + id)
+          .then()
+             .statusCode(404)
+             .contentType(ContentType.JSON)
+             .body("code", equalTo("BOOK_NOT_FOUND"))
+             .body("type", equalTo("BusinessException"))
+             .body("error", equalTo("Book not found with ID: " + id))
+             .body("timestamp", greaterThan(0L));
+    }
+    
+    @Test
+    void duplicateMemberIsConflict() {
+        String member = "{\"name\":\"Ada\",\"email\":\"ada-" + run() + "@example.com\"}";
+        given().contentType(ContentType.JSON).body(member).when().post("/api/members").then().statusCode(201);
+        
+        given()
+          .contentType(ContentType.JSON).body(member)
+          .when().post("/api/members")
+          .then()
+             .statusCode(409)
+             .body("code", equalTo("MEMBER_ALREADY_EXISTS"));
+    }
+    
+    @Test
+    void messageContentDoesNotChooseTheStatus() {
+        // The baseline picked 409 for any message containing "already exists"
+        Response response = new LibraryExceptionMapper().toResponse(
+                new ResourceNotFoundException(ErrorCode.BOOK_NOT_FOUND, "Book already exists, \"quoted\"\n"));
+        
+        assertEquals(404, response.getStatus());
+        assertTrue(body(response).contains("\"error\":\"Book already exists, \\\"quoted\\\"\\n\""));
+    }
+    
+    @Test
+    void everyErrorCodeMapsToItsStatus() {
+        for (ErrorCode code : ErrorCode.values()) {
+            Response response = new LibraryExceptionMapper().toResponse(new LibraryException(code, code.name()));
+            assertEquals(code.status().getStatusCode(), response.getStatus(), code.name());
+            assertTrue(body(response).startsWith("{\"code\":\"" + code + "\",\"type\":\"BusinessException\""), code.name());
+        }
+    }
+    
+    @Test
+    void journalFailureIsServiceUnavailable() {
+        Response response = new JournalExceptionMapper().toResponse(
+                new JournalException("Write-ahead log is unavailable: disk full", new IOException("disk full")));
+        
+        assertEquals(503, response.getStatus());
+        assertTrue(body(response).startsWith("{\"code\":\"JOURNAL_UNAVAILABLE\",\"type\":\"PersistenceException\""));
+    }
+    
+    @Test
+    void frameworkExceptionKeepsItsStatus() {
+        Response response = new CustomExceptionHandler().toResponse(new NotAllowedException("GET"));
+        
+        assertEquals(405, response.getStatus());
+        assertTrue(body(response).startsWith("{\"code\":null,\"type\":\"RequestException\""));
+    }
+    
+    @Test
+    void unknownRuntimeExceptionIsBadRequest() {
+        Response response = new CustomExceptionHandler().toResponse(new IllegalStateException());
+        
+        assertEquals(400, response.getStatus());
+        assertTrue(body(response).startsWith("{\"code\":\"INVALID_REQUEST\",\"type\":\"BusinessException\",\"error\":null,"));
+    }
+    
+    @Test
+    void bodyIsCompleteJson() {
+        String body = new String(new ErrorBody(ErrorCode.BOOK_IN_USE, "BusinessException").render("Tab\there \u0001", 42),
+                StandardCharsets.UTF_8);
+        
+        assertEquals("{\"code\":\"BOOK_IN_USE\",\"type\":\"BusinessException\",\"error\":\"Tab\\there \\u0001\",\"timestamp\":42}", body);
+    }
+    
+    private static String run() {
+        return Long.toString(System.nanoTime(), 36);
+    }
+    
+    private static String body(Response response) {
+        return new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+    
+    // One hour ahead, in the millisecond field above the node and sequence bits
+    private static final long HOUR_AHEAD = 3_600_000L << 22;
+    
+    @Test
+    void idsSortInIssueOrder() {
+        IdGenerator generator = new IdGenerator(0);
+        String previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.nextId();
+            assertTrue(next.compareTo(previous) > 0, next + " after " + previous);
+            previous = next;
+        }
+    }
+    
+    @Test
+    void advancingPastAnIdFromAheadOfTheClockKeepsLaterIdsAfterIt() {
+        IdGenerator generator = new IdGenerator(0);
+        String ahead = IdGenerator.encode(generator.nextValue() + HOUR_AHEAD);
+        
+        generator.advancePast(ahead);
+        assertTrue(generator.nextId().compareTo(ahead) > 0);
+    }
+    
+    @Test
+    void advancingPastAnOlderOrForeignIdChangesNothing() {
+        IdGenerator generator = new IdGenerator(0);
+        long last = generator.nextValue();
+        
+        generator.advancePast(IdGenerator.encode(last - HOUR_AHEAD));
+        generator.advancePast(UUID.randomUUID().toString());
+        assertTrue(generator.nextValue() > last);
+        assertEquals(-1, IdGenerator.decode("not-an-id"));
+    }
+}
@@ -0,0 +1,275 @@
+package com.library.persistence;
+
+import com.library.dto.BookRequestDTO;
+import com.library.exception.ResourceNotFoundException;
+import com.library.id.IdGenerator;
+import com.library.service.BookService;
+import com.library.service.LendingService;
+import com.library.service.MemberService;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovery from a data directory into the running services. Each test starts its own
+ * {@link PersistenceManager} on a temporary directory and stops it again, so the journal is only
+ * attached for the duration of the test.
+ */
+@QuarkusTest
+class PersistenceRecoveryTest {
+    
+    // One hour ahead, in the millisecond field above the node and sequence bits
+    private static final long HOUR_AHEAD = 3_600_000L << 22;
+    
+    @Inject
+    Journal journal;
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    private Path directory;
+    
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("library-recovery");
+    }
+    
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    @Test
+    void idsIssuedAfterRecoverySortAfterRecoveredOnes() throws IOException {
+        // Stands in for an ID issued before the clock was set back
+        String recoveredId = IdGenerator.encode(IdGenerator.decode(new IdGenerator(0).nextId()) + HOUR_AHEAD);
+        JournalEntry.Book book = new JournalEntry.Book(recoveredId, "Recovered " + recoveredId, "Recovered Author", 1);
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, FsyncMode.ALWAYS, Duration.ofMillis(10), 16, 16, key -> book)) {
+            log.awaitDurable(log.append(EntityType.BOOK, recoveredId));
+        }
+        
+        PersistenceManager manager = manager();
+        manager.onStart(null);
+        try {
+            assertEquals(recoveredId, bookService.getBookById(recoveredId).getId());
+            String next = manager.idGenerator.nextId();
+            assertTrue(next.compareTo(recoveredId) > 0, next + " after " + recoveredId);
+        } finally {
+            manager.onStop(null);
+        }
+    }
+    
+    @Test
+    void laterSegmentsOverrideTheSnapshotAndATornTailIsDropped() throws IOException {
+        IdGenerator ids = new IdGenerator(0);
+        String stale = ids.nextId();
+        String changed = ids.nextId();
+        String removed = ids.nextId();
+        String added = ids.nextId();
+        String intact = ids.nextId();
+        String torn = ids.nextId();
+        Map<String, JournalEntry> state = new HashMap<>();
+        
+        // Segment 1 predates snapshot 2, which covers everything written before it
+        state.put(stale, book(stale, 1));
+        writeSegment(1, state, stale);
+        state.clear();
+        state.put(changed, book(changed, 1));
+        state.put(removed, book(removed, 1));
+        SnapshotFile.write(SnapshotFile.path(directory, 2), List.of(new MapSource(state)));
+        
+        state.put(changed, book(changed, 5));
+        state.remove(removed);
+        state.put(added, book(added, 2));
+        writeSegment(2, state, changed, removed, added);
+        
+        state.put(intact, book(intact, 3));
+        state.put(torn, book(torn, 4));
+        writeSegment(3, state, intact, torn);
+        Path last = WriteAheadLog.segmentPath(directory, 3);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        
+        PersistenceManager manager = manager();
+        manager.onStart(null);
+        try {
+            assertThrows(ResourceNotFoundException.class, () -> bookService.getBookById(stale));
+            assertEquals(5, bookService.getBookById(changed).getQuantity());
+            assertThrows(ResourceNotFoundException.class, () -> bookService.getBookById(removed));
+            assertEquals(2, bookService.getBookById(added).getQuantity());
+            assertEquals(3, bookService.getBookById(intact).getQuantity());
+            assertThrows(ResourceNotFoundException.class, () -> bookService.getBookById(torn));
+            // New records never go into a recovered segment, whose tail may be torn
+            assertEquals(List.of(1L, 2L, 3L, 4L), WriteAheadLog.segments(directory));
+        } finally {
+            manager.onStop(null);
+        }
+    }
+    
+    @Test
+    void changesGroupCommittedWhileRunningAreRecovered() throws Exception {
+        // An empty recovered segment, so starting up does not seed the sample books again
+        Files.createFile(WriteAheadLog.segmentPath(directory, 1));
+        PersistenceManager manager = manager();
+        manager.onStart(null);
+        List<String> created = new ArrayList<>();
+        try {
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    String title = "Grouped " + i + " " + System.nanoTime();
+                    futures.add(pool.submit(() -> bookService.createBook(new BookRequestDTO(title, "Group Author")).getId()));
+                }
+                for (Future<String> future : futures) {
+                    created.add(future.get(10, TimeUnit.SECONDS));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            manager.onStop(null);
+        }
+        
+        // Every create waited for its group to be forced, so the log now holds all of them
+        Set<String> journaled = new HashSet<>();
+        for (long segment : WriteAheadLog.segments(directory)) {
+            WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), entry -> journaled.add(entry.id()));
+        }
+        assertTrue(journaled.containsAll(created));
+    }
+    
+    // Helper method to write a log segment holding the given books' current state
+    private void writeSegment(long number, Map<String, JournalEntry> state, String... changedIds) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, number, FsyncMode.ALWAYS, Duration.ofMillis(10), 16, 16,
+                key -> state.getOrDefault(key.id(), new JournalEntry.Removed(key.type(), key.id())))) {
+            for (String id : changedIds) {
+                log.awaitDurable(log.append(EntityType.BOOK, id));
+            }
+        }
+    }
+    
+    private static JournalEntry.Book book(String id, int quantity) {
+        return new JournalEntry.Book(id, "Recovered " + id, "Recovered Author", quantity);
+    }
+    
+    // Helper method to wire a manager onto the running services, with its own ID generator
+    private PersistenceManager manager() {
+        PersistenceManager manager = new PersistenceManager();
+        manager.config = new TestConfig(directory);
+        manager.journal = journal;
+        manager.bookService = bookService;
+        manager.memberService = memberService;
+        manager.lendingService = lendingService;
+        manager.idGenerator = new IdGenerator(0);
+        return manager;
+    }
+    
+    private record MapSource(Map<String, JournalEntry> entries) implements JournalSource {
+        
+        @Override
+        public EntityType type() {
+            return EntityType.BOOK;
+        }
+        
+        @Override
+        public JournalEntry read(String id) {
+            return entries.get(id);
+        }
+        
+        @Override
+        public void forEach(Consumer<JournalEntry> sink) {
+            entries.values().forEach(sink);
+        }
+        
+        @Override
+        public void restore(JournalEntry entry) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void restoreRemoval(String id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    private record TestConfig(Path path) implements PersistenceConfig {
+        
+        @Override
+        public boolean enabled() {
+            return true;
+        }
+        
+        @Override
+        public String directory() {
+            return path.toString();
+        }
+        
+        @Override
+        public FsyncMode fsyncMode() {
+            return FsyncMode.ALWAYS;
+        }
+        
+        @Override
+        public Duration fsyncInterval() {
+            return Duration.ofMillis(10);
+        }
+        
+        @Override
+        public int maxBatchSize() {
+            return 64;
+        }
+        
+        @Override
+        public int queueCapacity() {
+            return 1024;
+        }
+        
+        @Override
+        public Duration snapshotInterval() {
+            return Duration.ZERO;
+        }
+        
+        @Override
+        public boolean snapshotOnShutdown() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.library.persistence;
+
+import com.library.exception.JournalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writing and replaying log segments: group commit, torn tails and a log that has stopped.
+ */
+class WriteAheadLogTest {
+    
+    private Path directory;
+    
+    // State the log reads when it writes a record, standing in for the services
+    private final Map<String, JournalEntry.Book> books = new ConcurrentHashMap<>();
+    
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("library-wal");
+    }
+    
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    @Test
+    void groupCommitWritesOneRecordPerEntityWithItsLatestState() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (WriteAheadLog log = open(FsyncMode.ALWAYS, key -> {
+            // Hold the writer on its first batch so every later change queues up behind it
+            writing.countDown();
+            awaitQuietly(release);
+            return resolve(key);
+        })) {
+            change("a", 1);
+            log.append(EntityType.BOOK, "a");
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            
+            long last = 0;
+            for (int quantity = 2; quantity <= 100; quantity++) {
+                change("a", quantity);
+                last = log.append(EntityType.BOOK, "a");
+            }
+            change("b", 7);
+            last = log.append(EntityType.BOOK, "b");
+            release.countDown();
+            log.awaitDurable(last);
+        }
+        
+        List<JournalEntry> replayed = replay(1);
+        // The held batch, then one group for the 100 queued changes
+        assertEquals(3, replayed.size());
+        assertEquals(100, ((JournalEntry.Book) replayed.get(1)).quantity());
+        assertEquals("b", replayed.get(2).id());
+    }
+    
+    @Test
+    void tornTailEndsReplayAtTheLastIntactRecord() throws IOException {
+        try (WriteAheadLog log = open(FsyncMode.ALWAYS, this::resolve)) {
+            for (int i = 0; i < 3; i++) {
+                change("book-" + i, i + 1);
+                log.awaitDurable(log.append(EntityType.BOOK, "book-" + i));
+            }
+        }
+        
+        Path segment = WriteAheadLog.segmentPath(directory, 1);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Cut the last record short, as a crash in the middle of a write would
+            channel.truncate(channel.size() - 3);
+        }
+        
+        List<JournalEntry> replayed = replay(1);
+        assertEquals(List.of("book-0", "book-1"), replayed.stream().map(JournalEntry::id).toList());
+    }
+    
+    @Test
+    void garbageAfterTheLastRecordIsIgnored() throws IOException {
+        try (WriteAheadLog log = open(FsyncMode.NONE, this::resolve)) {
+            change("book", 1);
+            log.append(EntityType.BOOK, "book");
+        }
+        
+        Files.write(WriteAheadLog.segmentPath(directory, 1), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11},
+                StandardOpenOption.APPEND);
+        
+        assertEquals(1, replay(1).size());
+    }
+    
+    @Test
+    void stoppedLogRejectsChangesUpFrontAndNeverFailsAnAppend() throws Exception {
+        try (WriteAheadLog log = open(FsyncMode.ALWAYS, key -> {
+            throw new IllegalStateException("unreadable " + key.id());
+        })) {
+            long sequence = log.append(EntityType.BOOK, "broken");
+            assertThrows(JournalException.class, () -> log.awaitDurable(sequence));
+            assertThrows(JournalException.class, log::checkWritable);
+            
+            // A change made before the log stopped still gets its sequence, without blocking or throwing
+            long next = log.append(EntityType.BOOK, "late");
+            assertEquals(sequence + 1, next);
+            assertThrows(JournalException.class, () -> log.awaitDurable(next));
+        }
+    }
+    
+    @Test
+    void interruptedAppendKeepsTheInterruptAndRecordsTheChange() throws IOException {
+        try (WriteAheadLog log = open(FsyncMode.ALWAYS, this::resolve)) {
+            change("book", 3);
+            Thread.currentThread().interrupt();
+            long sequence = log.append(EntityType.BOOK, "book");
+            assertTrue(Thread.interrupted());
+            log.awaitDurable(sequence);
+        }
+        
+        assertEquals(3, ((JournalEntry.Book) replay(1).get(0)).quantity());
+    }
+    
+    private WriteAheadLog open(FsyncMode mode, Function<WriteAheadLog.EntityKey, JournalEntry> resolver)
+            throws IOException {
+        return new WriteAheadLog(directory, 1, mode, Duration.ofMillis(10), 4096, 1024, resolver);
+    }
+    
+    private void change(String id, int quantity) {
+        books.put(id, new JournalEntry.Book(id, "Title " + id, "Author", quantity));
+    }
+    
+    private JournalEntry resolve(WriteAheadLog.EntityKey key) {
+        JournalEntry entry = books.get(key.id());
+        return entry != null ? entry : new JournalEntry.Removed(key.type(), key.id());
+    }
+    
+    private List<JournalEntry> replay(long segment) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), entries::add);
+        return entries;
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.library.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StringDictionaryTest {
+    
+    @Test
+    void stringIsHeldUntilItsLastReferenceIsReleased() {
+        StringDictionary dictionary = new StringDictionary();
+        int code = dictionary.acquire("Tolkien");
+        assertEquals(code, dictionary.acquire(new String("Tolkien")));
+        assertEquals(1, dictionary.size());
+        
+        dictionary.release(code);
+        assertEquals(code, dictionary.find("Tolkien"));
+        dictionary.release(code);
+        assertEquals(StringDictionary.NOT_FOUND, dictionary.find("Tolkien"));
+        assertEquals(0, dictionary.size());
+        assertThrows(IllegalArgumentException.class, () -> dictionary.decode(code));
+    }
+    
+    @Test
+    void releasedCodesAreReused() {
+        StringDictionary dictionary = new StringDictionary();
+        int first = dictionary.acquire("first");
+        int second = dictionary.acquire("second");
+        dictionary.release(first);
+        
+        int third = dictionary.acquire("third");
+        assertEquals(first, third);
+        assertNotEquals(second, third);
+        assertEquals("third", dictionary.decode(third));
+    }
+    
+    @Test
+    void ignoringCaseKeepsTheFirstSpelling() {
+        StringDictionary dictionary = StringDictionary.ignoringCase();
+        String first = "The Hobbit";
+        int code = dictionary.acquire(first);
+        
+        assertEquals(code, dictionary.acquire("THE HOBBIT"));
+        assertEquals(code, dictionary.find("the hobbit"));
+        assertEquals(StringDictionary.NOT_FOUND, dictionary.find(" the hobbit"));
+        assertSame(first, dictionary.decode(code));
+        
+        dictionary.release(code);
+        dictionary.release(code);
+        assertEquals(0, dictionary.size());
+    }
+}
@@ -0,0 +1,160 @@
+package com.library.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent writers on a repository with few stripes, so most of them contend for the same locks.
+ */
+class StripedRepositoryTest {
+    
+    private static final int THREADS = 8;
+    private static final int KEYS = 64;
+    private static final int ROUNDS = 5_000;
+    
+    private record Counter(String id, String group, int value) {
+    }
+    
+    @Test
+    void replaceLoopsNeverLoseAnUpdate() throws Exception {
+        Repository<Counter> repository = new StripedRepository<>(4);
+        for (int key = 0; key < KEYS; key++) {
+            repository.put(id(key), new Counter(id(key), "even", 0));
+        }
+        
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                String id = id((thread + round) % KEYS);
+                // Read-modify-write: only the writer whose expected value is still current wins
+                while (true) {
+                    Counter current = repository.get(id);
+                    Counter next = new Counter(id, (current.value() + 1) % 2 == 0 ? "even" : "odd", current.value() + 1);
+                    if (repository.replace(id, current, next)) {
+                        break;
+                    }
+                }
+            }
+        });
+        
+        int total = 0;
+        for (Counter counter : repository.snapshot()) {
+            total += counter.value();
+        }
+        assertEquals(THREADS * ROUNDS, total);
+        assertEquals(KEYS, repository.size());
+    }
+    
+    @Test
+    void concurrentPutsAndRemovesKeepSizeAndIndexesInStep() throws Exception {
+        Repository<Counter> repository = new StripedRepository<>(4);
+        Repository.Index<Counter> byGroup = repository.index(Counter::group);
+        AtomicInteger removedByOthers = new AtomicInteger();
+        
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Each thread owns its own IDs, but all of them share the stripes
+                String id = thread + "-" + (round % KEYS);
+                if (repository.get(id) == null) {
+                    assertNull(repository.put(id, new Counter(id, "group-" + thread, round)));
+                } else {
+                    assertNotNull(repository.remove(id));
+                }
+                // Conditional removes of a record that was replaced meanwhile must fail
+                if (repository.remove(id, new Counter(id, "stale", -1))) {
+                    removedByOthers.incrementAndGet();
+                }
+            }
+        });
+        
+        assertEquals(0, removedByOthers.get());
+        List<Counter> records = repository.snapshot();
+        assertEquals(records.size(), repository.size());
+        int indexed = 0;
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (Counter counter : repository.find(byGroup, "group-" + thread)) {
+                assertTrue(counter.id().startsWith(thread + "-"), counter.id());
+                indexed++;
+            }
+        }
+        assertEquals(records.size(), indexed);
+    }
+    
+    @Test
+    void iterationStaysInIdOrderDuringWrites() throws Exception {
+        Repository<Counter> repository = new StripedRepository<>(4);
+        for (int key = 0; key < KEYS * 4; key++) {
+            repository.put(id(key), new Counter(id(key), "even", 0));
+        }
+        
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS / 10; round++) {
+                if (thread % 2 == 0) {
+                    String id = id((thread * ROUNDS + round) % (KEYS * 4));
+                    Counter current = repository.get(id);
+                    if (current != null) {
+                        repository.remove(id, current);
+                        repository.put(id, current);
+                    }
+                } else {
+                    String previous = "";
+                    var entries = repository.entriesAfter(null);
+                    while (entries.hasNext()) {
+                        Map.Entry<String, Counter> entry = entries.next();
+                        assertTrue(entry.getKey().compareTo(previous) > 0, entry.getKey() + " after " + previous);
+                        previous = entry.getKey();
+                    }
+                }
+            }
+        });
+        
+        assertEquals(KEYS * 4, repository.size());
+    }
+    
+    // Helper method to run the body on every thread at once and rethrow the first failure
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                Callable<Void> task = () -> {
+                    start.await();
+                    body.run(index);
+                    return null;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static String id(int key) {
+        return String.format("%05d", key);
+    }
+    
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
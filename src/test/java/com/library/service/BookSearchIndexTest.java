@@ -0,0 +1,124 @@
+package com.library.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The inverted index on its own: how text is normalized into tokens, how queries match and rank, and
+ * that re-indexing and removal leave no stale postings behind.
+ */
+class BookSearchIndexTest {
+    
+    private final BookSearchIndex index = new BookSearchIndex();
+    
+    @Test
+    void caseAndAccentsAreFolded() {
+        index.index("b1", "Élégie for ÖDÖN", "Anne Émond");
+        
+        assertEquals(List.of("b1"), index.search("elegie", 10));
+        assertEquals(List.of("b1"), index.search("ÉLÉGIE", 10));
+        assertEquals(List.of("b1"), index.search("odon EMOND", 10));
+    }
+    
+    @Test
+    void whitespaceAndPunctuationOnlySeparateTokens() {
+        assertArrayEquals(new String[] {"clean", "code"}, BookSearchIndex.tokenize("  Clean\t\n-Code  "));
+        assertArrayEquals(new String[] {"harry", "potter", "philosophers"},
+                BookSearchIndex.tokenize("Harry Potter: Philosopher's, Potter"));
+        assertArrayEquals(new String[0], BookSearchIndex.tokenize(" \t "));
+        
+        index.index("b1", "Clean Code", "Robert C. Martin");
+        assertEquals(List.of("b1"), index.search("   clean    code ", 10));
+        assertEquals(List.of("b1"), index.search("clean-code", 10));
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+    
+    @Test
+    void everyTermMustMatchAsATokenOrPrefix() {
+        index.index("b1", "Clean Code", "Robert Martin");
+        index.index("b2", "Clean Architecture", "Robert Martin");
+        
+        assertEquals(List.of("b1"), index.search("cle cod", 10));
+        assertEquals(List.of("b2"), index.search("clean arch", 10));
+        assertTrue(index.search("clean java", 10).isEmpty());
+        assertTrue(index.search("ode", 10).isEmpty());
+    }
+    
+    @Test
+    void titleMatchesOutrankAuthorMatchesAndWholeTokensOutrankPrefixes() {
+        index.index("b4", "Unrelated", "Javanese Writer");
+        index.index("b3", "Unrelated", "Java Writer");
+        index.index("b2", "Javascript Basics", "Someone");
+        index.index("b1", "Java Basics", "Someone");
+        
+        assertEquals(List.of("b1", "b2", "b3", "b4"), index.search("java", 10));
+        assertEquals(List.of("b1", "b2"), index.search("java", 2));
+    }
+    
+    @Test
+    void equalScoresAreOrderedByIdentifier() {
+        // A title prefix scores the same as a whole author token
+        index.index("b2", "Javascript Basics", "Someone");
+        index.index("b1", "Unrelated", "Java Writer");
+        
+        assertEquals(List.of("b1", "b2"), index.search("java", 10));
+    }
+    
+    @Test
+    void broadTermsStillFindTheBooksMatchingAll() {
+        for (int i = 0; i < 3_000; i++) {
+            index.index("h" + i, "Harry Volume " + i, "Someone");
+            index.index("p" + i, "Potter Volume " + i, "Someone");
+        }
+        index.index("both", "Harry Potter", "Someone");
+        
+        assertEquals(List.of("both"), index.search("harry potter", 10));
+        assertEquals(List.of("both"), index.search("harr pott", 10));
+    }
+    
+    @Test
+    void broadTermsRankTheBestMatchesFirst() {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            index.index("author-" + i, "Volume " + i, "Java Writer");
+        }
+        for (int i = 10; i < 60; i++) {
+            index.index("title-" + i, "Java " + i, "Someone");
+            titles.add("title-" + i);
+        }
+        
+        assertEquals(titles, index.search("java", titles.size()));
+    }
+    
+    @Test
+    void reindexingDropsTokensTheBookNoLongerHas() {
+        index.index("b1", "Old Title", "Same Author");
+        index.index("b1", "New Title", "Same Author");
+        
+        assertTrue(index.search("old", 10).isEmpty());
+        assertTrue(index.search("ol", 10).isEmpty());
+        assertEquals(List.of("b1"), index.search("new", 10));
+        assertEquals(List.of("b1"), index.search("title author", 10));
+    }
+    
+    @Test
+    void removalDropsTheBookButKeepsSharedTokens() {
+        index.index("b1", "Shared Words", "First Author");
+        index.index("b2", "Shared Words", "Second Author");
+        
+        index.remove("b1");
+        
+        assertEquals(List.of("b2"), index.search("shared words", 10));
+        assertTrue(index.search("first", 10).isEmpty());
+        index.remove("b2");
+        assertTrue(index.search("shared", 10).isEmpty());
+        // Removing an unknown or already removed book is a no-op
+        index.remove("b2");
+    }
+}
@@ -0,0 +1,219 @@
+package com.library.service;
+
+import com.library.dto.BookRequestDTO;
+import com.library.dto.BookResponseDTO;
+import com.library.exception.DuplicateResourceException;
+import com.library.exception.InvalidRequestException;
+import com.library.exception.LibraryException;
+import com.library.exception.ResourceNotFoundException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Duplicate detection in the catalog: a title and author identify a book ignoring case, exactly as
+ * {@link String#equalsIgnoreCase} compares them, and nothing else is normalized. Also checks that the
+ * search index follows the catalog, and that concurrent reservations never take stock below zero or
+ * lose a copy.
+ */
+@QuarkusTest
+class BookServiceTest {
+    
+    @Inject
+    BookService bookService;
+    
+    @Test
+    void titleAndAuthorMatchIgnoringCase() {
+        String title = "Duplicate " + run();
+        BookResponseDTO first = bookService.createBook(new BookRequestDTO(title, "Ada Author"));
+        BookResponseDTO second = bookService.createBook(new BookRequestDTO(title.toUpperCase(), "ADA author"));
+        
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, second.getQuantity());
+        // The first spelling is the one kept
+        assertEquals(title, second.getTitle());
+        assertEquals("Ada Author", second.getAuthor());
+    }
+    
+    @Test
+    void nonAsciiLettersMatchIgnoringCase() {
+        String run = run();
+        BookResponseDTO first = bookService.createBook(new BookRequestDTO("Élégie " + run, "Ödön Ŕ"));
+        BookResponseDTO second = bookService.createBook(new BookRequestDTO("éLÉGIE " + run, "öDÖN ŕ"));
+        
+        assertEquals(first.getId(), second.getId());
+    }
+    
+    @Test
+    void surroundingWhitespaceIsSignificant() {
+        String title = "Spacing " + run();
+        BookResponseDTO plain = bookService.createBook(new BookRequestDTO(title, "Ada Author"));
+        BookResponseDTO padded = bookService.createBook(new BookRequestDTO(" " + title + " ", "Ada Author"));
+        
+        assertNotEquals(plain.getId(), padded.getId());
+        assertEquals(1, padded.getQuantity());
+    }
+    
+    @Test
+    void renamingOntoAnotherBookIgnoringCaseIsRejected() {
+        String run = run();
+        bookService.createBook(new BookRequestDTO("Taken " + run, "Ada Author"));
+        BookResponseDTO other = bookService.createBook(new BookRequestDTO("Free " + run, "Ada Author"));
+        
+        assertThrows(DuplicateResourceException.class,
+                () -> bookService.updateBook(other.getId(), new BookRequestDTO("TAKEN " + run, "ada AUTHOR")));
+        // Changing only the case of its own title is not a conflict
+        assertEquals("FREE " + run, bookService.updateBook(other.getId(), new BookRequestDTO("FREE " + run, "Ada Author")).getTitle());
+    }
+    
+    @Test
+    void deletesAndRenamesReleaseDictionaryEntries() {
+        String run = run();
+        int held = bookService.dictionarySize();
+        BookResponseDTO book = bookService.createBook(new BookRequestDTO("Released " + run, "Author " + run));
+        bookService.createBook(new BookRequestDTO("RELEASED " + run, "AUTHOR " + run));
+        assertEquals(held + 2, bookService.dictionarySize());
+        
+        bookService.updateBook(book.getId(), new BookRequestDTO("Renamed " + run, "Author " + run));
+        assertEquals(held + 2, bookService.dictionarySize());
+        
+        bookService.deleteBook(book.getId());
+        assertEquals(held, bookService.dictionarySize());
+    }
+    
+    @Test
+    void rejectedRenameTakesNoDictionaryEntries() {
+        String run = run();
+        bookService.createBook(new BookRequestDTO("Owned " + run, "Author " + run));
+        BookResponseDTO other = bookService.createBook(new BookRequestDTO("Other " + run, "Author " + run));
+        int held = bookService.dictionarySize();
+        
+        assertThrows(DuplicateResourceException.class,
+                () -> bookService.updateBook(other.getId(), new BookRequestDTO("owned " + run, "author " + run)));
+        assertThrows(ResourceNotFoundException.class,
+                () -> bookService.updateBook("missing-" + run, new BookRequestDTO("Unused " + run, "Author " + run)));
+        assertEquals(held, bookService.dictionarySize());
+    }
+    
+    @Test
+    void concurrentReserveAndRestockNeverOversellOrLoseCopies() throws Exception {
+        String run = run();
+        String scarce = bookService.createBook(new BookRequestDTO("Scarce " + run, "Ada Author")).getId();
+        String plenty = null;
+        for (int i = 0; i < 3; i++) {
+            plenty = bookService.createBook(new BookRequestDTO("Plenty " + run, "Ada Author")).getId();
+        }
+        String plentyId = plenty;
+        // Copies of each book taken and not yet put back, and copies of the plentiful one added so far
+        AtomicInteger scarceHeld = new AtomicInteger();
+        AtomicInteger plentyHeld = new AtomicInteger();
+        AtomicInteger plentyAdded = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        // The first broken invariant; every thread stops once one is found
+        AtomicReference<String> violation = new AtomicReference<>();
+        
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 5_000 && violation.get() == null; i++) {
+                    // Batches of both books; one short of the scarce book puts the plentiful copy back too
+                    if (anyFailed(bookService.reserveCopies(List.of(plentyId, scarce)))) {
+                        continue;
+                    }
+                    if (scarceHeld.incrementAndGet() > 1) {
+                        violation.compareAndSet(null, "scarce book oversold");
+                    }
+                    if (plentyHeld.incrementAndGet() > 3 + plentyAdded.get()) {
+                        violation.compareAndSet(null, "plentiful book oversold");
+                    }
+                    scarceHeld.decrementAndGet();
+                    plentyHeld.decrementAndGet();
+                    bookService.restockCopies(List.of(plentyId, scarce));
+                }
+                return null;
+            });
+        }
+        tasks.add(() -> {
+            for (int i = 0; i < 50; i++) {
+                // Counted before the copy lands, so the bound checked above is never too low
+                plentyAdded.incrementAndGet();
+                bookService.createBook(new BookRequestDTO("PLENTY " + run, "ada author"));
+            }
+            return null;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size() + 1);
+        Future<?> monitor = executor.submit(() -> {
+            while (running.get() && violation.get() == null) {
+                int scarceQuantity = bookService.getBookById(scarce).getQuantity();
+                int plentyQuantity = bookService.getBookById(plentyId).getQuantity();
+                if (scarceQuantity < 0 || scarceQuantity > 1 || plentyQuantity < 0) {
+                    violation.compareAndSet(null, "stock out of range: " + scarceQuantity + ", " + plentyQuantity);
+                }
+            }
+        });
+        try {
+            for (Future<Void> task : executor.invokeAll(tasks)) {
+                task.get();
+            }
+        } finally {
+            running.set(false);
+            monitor.get(30, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+        
+        assertNull(violation.get());
+        assertEquals(1, bookService.getBookById(scarce).getQuantity());
+        assertEquals(3 + 50, bookService.getBookById(plentyId).getQuantity());
+    }
+    
+    @Test
+    void searchFollowsRenamesAndDeletes() {
+        String run = run();
+        BookResponseDTO book = bookService.createBook(new BookRequestDTO("Searchable " + run, "Index Author"));
+        assertEquals(List.of(book.getId()), ids(bookService.searchBooks("SEARCHABLE  " + run, null)));
+        
+        bookService.updateBook(book.getId(), new BookRequestDTO("Renamed " + run, "Index Author"));
+        assertTrue(bookService.searchBooks("searchable " + run, null).isEmpty());
+        assertEquals(List.of(book.getId()), ids(bookService.searchBooks("renamed " + run, null)));
+        
+        bookService.deleteBook(book.getId());
+        assertTrue(bookService.searchBooks(run, null).isEmpty());
+    }
+    
+    @Test
+    void blankSearchIsRejected() {
+        assertThrows(InvalidRequestException.class, () -> bookService.searchBooks(" \t ", null));
+        assertThrows(InvalidRequestException.class, () -> bookService.searchBooks("anything", 0));
+    }
+    
+    private static boolean anyFailed(LibraryException[] failures) {
+        return Arrays.stream(failures).anyMatch(Objects::nonNull);
+    }
+    
+    private static List<String> ids(List<BookResponseDTO> books) {
+        return books.stream().map(BookResponseDTO::getId).toList();
+    }
+    
+    private static String run() {
+        return Long.toString(System.nanoTime(), 36);
+    }
+}
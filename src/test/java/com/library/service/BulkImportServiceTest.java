@@ -0,0 +1,192 @@
+package com.library.service;
+
+import com.library.dto.BookImportDTO;
+import com.library.dto.BookResponseDTO;
+import com.library.dto.BulkImportErrorDTO;
+import com.library.dto.BulkImportResultDTO;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk imports: every rejected row is reported with its line number while the valid rows around it
+ * are applied, and valid rows reach the stores in chunks of {@value BulkImportService#CHUNK_SIZE}.
+ */
+@QuarkusTest
+class BulkImportServiceTest {
+    
+    @Inject
+    BulkImportService bulkImportService;
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    Jsonb jsonb;
+    
+    @Inject
+    Validator validator;
+    
+    @Test
+    void ndjsonReportsEachRejectedRowAndAppliesTheRest() {
+        String run = run();
+        String body = String.join("\n",
+                "{\"title\":\"Bulk " + run + "\",\"author\":\"Author\",\"quantity\":3}",
+                "",
+                "{\"title\":\"Broken",
+                "{\"author\":\"No Title\"}",
+                "{\"title\":\"Zero " + run + "\",\"author\":\"Author\",\"quantity\":0}",
+                "null",
+                "{\"title\":\"BULK " + run + "\",\"author\":\"author\",\"quantity\":2}");
+        
+        BulkImportResultDTO result = bulkImportService.importBooks(stream(body), BulkImportService.Format.NDJSON);
+        
+        assertEquals(6, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(3L, 4L, 5L, 6L), lines(result));
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals("Title is required", result.getErrors().get(1).getMessage());
+        assertEquals("Quantity must be at least 1", result.getErrors().get(2).getMessage());
+        assertEquals("Empty record", result.getErrors().get(3).getMessage());
+        // Both valid rows name the same book ignoring case, so their copies add up
+        assertEquals(5, findBook("Bulk " + run).getQuantity());
+    }
+    
+    @Test
+    void csvReportsEachRejectedRowAndAppliesTheRest() {
+        String run = run();
+        String body = String.join("\n",
+                "Title,Author,Quantity",
+                "\"Commas, " + run + "\",\"Author \"\"Quoted\"\"\",2",
+                "Missing Author " + run,
+                "Bad Quantity " + run + ",Author,many",
+                "\"Unterminated " + run + ",Author",
+                "Default " + run + ",Author",
+                "Too,Many,Columns,Here");
+        
+        BulkImportResultDTO result = bulkImportService.importBooks(stream(body), BulkImportService.Format.CSV);
+        
+        // The header row is not a record
+        assertEquals(6, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(3L, 4L, 5L, 7L), lines(result));
+        assertEquals("Invalid quantity: 'many'", result.getErrors().get(1).getMessage());
+        assertEquals("Unterminated quoted field", result.getErrors().get(2).getMessage());
+        BookResponseDTO quoted = findBook("Commas, " + run);
+        assertEquals("Author \"Quoted\"", quoted.getAuthor());
+        assertEquals(2, quoted.getQuantity());
+        assertEquals(1, findBook("Default " + run).getQuantity());
+    }
+    
+    @Test
+    void membersRejectedWhenAppliedAreReportedAtTheirOwnLines() {
+        String run = run();
+        StringBuilder body = new StringBuilder();
+        // Line 1002 lands in the second chunk and duplicates line 1 ignoring case
+        for (int i = 1; i <= 1001; i++) {
+            body.append("Member ").append(i).append(",member").append(i).append('-').append(run).append("@example.com\n");
+        }
+        body.append("Again,MEMBER1-").append(run.toUpperCase()).append("@EXAMPLE.COM\n");
+        body.append("Invalid,not-an-email\n");
+        
+        BulkImportResultDTO result = bulkImportService.importMembers(stream(body.toString()), BulkImportService.Format.CSV);
+        
+        assertEquals(1003, result.getReceived());
+        assertEquals(1001, result.getImported());
+        assertEquals(List.of(1003L, 1002L), lines(result));
+        assertTrue(result.getErrors().get(1).getMessage().startsWith("Member already exists"));
+    }
+    
+    @Test
+    void rowsAreAppliedInChunksOfAThousand() {
+        assertEquals(List.of(), chunkSizes(0, 0));
+        assertEquals(List.of(999), chunkSizes(999, 0));
+        assertEquals(List.of(1000), chunkSizes(1000, 0));
+        assertEquals(List.of(1000, 1), chunkSizes(1001, 0));
+        assertEquals(List.of(1000, 1000, 1), chunkSizes(2001, 0));
+        // Rejected rows do not take up room in a chunk
+        assertEquals(List.of(1000), chunkSizes(1000, 500));
+    }
+    
+    @Test
+    void reportedErrorsAreCappedButAllAreCounted() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < BulkImportService.MAX_REPORTED_ERRORS + 5; i++) {
+            body.append("{\"title\":\"\",\"author\":\"\"}\n");
+        }
+        
+        BulkImportResultDTO result = bulkImportService.importBooks(stream(body.toString()), BulkImportService.Format.NDJSON);
+        
+        assertEquals(BulkImportService.MAX_REPORTED_ERRORS + 5, result.getFailed());
+        assertEquals(BulkImportService.MAX_REPORTED_ERRORS, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+        assertEquals(0, result.getImported());
+    }
+    
+    @Test
+    void smallImportIsNotTruncated() {
+        BulkImportResultDTO result = bulkImportService.importBooks(stream("{\"title\":\"\",\"author\":\"A\"}\n"),
+                BulkImportService.Format.NDJSON);
+        
+        assertFalse(result.isErrorsTruncated());
+    }
+    
+    // Helper method to import valid and invalid NDJSON book rows, interleaved, and record the chunk sizes applied
+    private List<Integer> chunkSizes(int valid, int invalid) {
+        List<Integer> sizes = new ArrayList<>();
+        BulkImportService service = new BulkImportService();
+        service.jsonb = jsonb;
+        service.validator = validator;
+        service.bookService = new BookService() {
+            @Override
+            public int importBooks(List<BookImportDTO> rows) {
+                sizes.add(rows.size());
+                return rows.size();
+            }
+        };
+        
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < Math.max(valid, invalid); i++) {
+            if (i < invalid) {
+                body.append("{\"title\":\"Invalid\",\"author\":\"\"}\n");
+            }
+            if (i < valid) {
+                body.append("{\"title\":\"Chunked ").append(i).append("\",\"author\":\"Author\"}\n");
+            }
+        }
+        
+        BulkImportResultDTO result = service.importBooks(stream(body.toString()), BulkImportService.Format.NDJSON);
+        assertEquals(valid, result.getImported());
+        assertEquals(invalid, result.getFailed());
+        return sizes;
+    }
+    
+    private BookResponseDTO findBook(String title) {
+        return bookService.streamBooks().filter(book -> book.getTitle().equals(title)).findFirst().orElseThrow();
+    }
+    
+    private static List<Long> lines(BulkImportResultDTO result) {
+        return result.getErrors().stream().map(BulkImportErrorDTO::getLine).toList();
+    }
+    
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String run() {
+        return Long.toString(System.nanoTime(), 36);
+    }
+}
@@ -0,0 +1,200 @@
+package com.library.service;
+
+import com.library.dto.LendingResponseDTO;
+import com.library.id.IdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LendingArchiveTest {
+    
+    // More than two full segments
+    private static final int MANY = 40_000;
+    
+    private final IdGenerator idGenerator = new IdGenerator(0);
+    private final LendingArchive archive = new LendingArchive(Path.of(System.getProperty("java.io.tmpdir")));
+    
+    @AfterEach
+    void closeArchive() {
+        archive.close();
+    }
+    
+    @Test
+    void archivedLendingsCanBeLookedUpAndListed() {
+        LendingResponseDTO first = returned("book-1", "member-1", 3_000);
+        LendingResponseDTO second = returned("book-1", "member-2", 1_000);
+        LendingResponseDTO third = returned("book-2", "member-1", 2_000);
+        archive.add(first);
+        archive.add(second);
+        archive.add(third);
+        
+        assertEquals(3, archive.size());
+        assertEquals(second.getMemberId(), archive.get(second.getLendingId()).getMemberId());
+        assertNull(archive.get(idGenerator.nextId()));
+        assertEquals(List.of(first.getLendingId(), second.getLendingId()), ids(archive.findByBook("book-1")));
+        assertEquals(List.of(first.getLendingId(), third.getLendingId()), ids(archive.findByMember("member-1")));
+        assertTrue(archive.findByBook("book-3").isEmpty());
+        
+        // ID order, and time order starting after the earliest lending
+        assertEquals(List.of(first.getLendingId(), second.getLendingId(), third.getLendingId()),
+                keys(archive.entriesAfter(null)));
+        assertEquals(List.of(third.getLendingId()), keys(archive.entriesAfter(second.getLendingId())));
+        List<String> byTime = new ArrayList<>();
+        archive.entriesByTime(LendingArchive.timeKey(1_000, second.getLendingId()), Long.MAX_VALUE)
+                .forEachRemaining(entry -> byTime.add(entry.getValue().getLendingId()));
+        assertEquals(List.of(third.getLendingId(), first.getLendingId()), byTime);
+    }
+    
+    @Test
+    void removedAndReplacedLendingsDisappearFromEveryRead() {
+        LendingResponseDTO kept = returned("book-1", "member-1", 1_000);
+        LendingResponseDTO removed = returned("book-1", "member-1", 2_000);
+        archive.add(kept);
+        archive.add(removed);
+        
+        assertFalse(archive.remove(removed.getLendingId(), returned("book-9", "member-9", 2_000)));
+        assertNotNull(archive.remove(removed.getLendingId()));
+        assertNull(archive.remove(removed.getLendingId()));
+        LendingResponseDTO replacement = new LendingResponseDTO(kept.getLendingId(), "book-2", "member-1",
+                kept.getLendingTime(), kept.getDueTime(), kept.getReturnTime() + 1);
+        archive.add(replacement);
+        
+        assertEquals(1, archive.size());
+        assertNull(archive.get(removed.getLendingId()));
+        assertEquals("book-2", archive.get(kept.getLendingId()).getBookId());
+        assertTrue(archive.findByBook("book-1").isEmpty());
+        assertEquals(List.of(kept.getLendingId()), keys(archive.entriesAfter(null)));
+    }
+    
+    @Test
+    void compactionReleasesRowsAndReferencesOfRemovedLendings() {
+        List<LendingResponseDTO> lendings = new ArrayList<>();
+        for (int i = 0; i < MANY; i++) {
+            LendingResponseDTO lending = returned("book-" + i, "member-" + (i % 100), i + 1);
+            lendings.add(lending);
+            archive.add(lending);
+        }
+        int segments = archive.segmentCount();
+        // A reader that started before the compaction keeps seeing the rows it started with
+        Iterator<Map.Entry<String, LendingResponseDTO>> reader = archive.entriesAfter(null);
+        
+        for (int i = 0; i < MANY; i++) {
+            if (i % 10 != 0) {
+                archive.remove(lendings.get(i).getLendingId());
+            }
+        }
+        
+        assertEquals(MANY / 10, archive.size());
+        assertTrue(archive.segmentCount() < segments, archive.segmentCount() + " segments");
+        // Compacted at least once the removed rows outnumbered the live ones, half way through
+        assertTrue(archive.referenceCount() <= MANY / 2 + 100, archive.referenceCount() + " references");
+        for (int i = 0; i < MANY; i += 10) {
+            LendingResponseDTO lending = lendings.get(i);
+            assertEquals(lending.getBookId(), archive.get(lending.getLendingId()).getBookId());
+            assertEquals(1, archive.findByBook(lending.getBookId()).size());
+        }
+        assertNull(archive.get(lendings.get(1).getLendingId()));
+        assertEquals(MANY / 10, keys(archive.entriesAfter(null)).size());
+        int read = 0;
+        while (reader.hasNext()) {
+            assertNotNull(reader.next().getValue().getBookId());
+            read++;
+        }
+        assertTrue(read >= MANY / 10, read + " rows read");
+    }
+    
+    @Test
+    void concurrentReadsNeverSeeARemovedLendingAsActive() throws Exception {
+        List<LendingResponseDTO> lendings = new ArrayList<>();
+        for (int i = 0; i < MANY; i++) {
+            LendingResponseDTO lending = returned("book-" + (i % 50), "member-" + (i % 50), i + 1);
+            lendings.add(lending);
+            archive.add(lending);
+        }
+        AtomicBoolean removing = new AtomicBoolean(true);
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        List<Future<?>> done = new ArrayList<>();
+        done.add(readers.submit(() -> {
+            while (removing.get()) {
+                for (int i = MANY - 1; i >= 0; i -= 7) {
+                    check(archive.get(lendings.get(i).getLendingId()), errors);
+                }
+            }
+        }));
+        done.add(readers.submit(() -> {
+            while (removing.get()) {
+                archive.findByBook("book-" + ThreadLocalRandom.current().nextInt(50)).forEach(lending -> check(lending, errors));
+            }
+        }));
+        done.add(readers.submit(() -> {
+            while (removing.get()) {
+                archive.entriesAfter(null).forEachRemaining(entry -> check(entry.getValue(), errors));
+            }
+        }));
+        
+        try {
+            for (LendingResponseDTO lending : lendings) {
+                archive.remove(lending.getLendingId());
+            }
+        } finally {
+            removing.set(false);
+            for (Future<?> reader : done) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+            readers.shutdown();
+        }
+        
+        assertEquals(0, archive.size());
+        assertEquals(List.of(), errors);
+    }
+    
+    @Test
+    void closedArchiveIsEmptyAndRefusesAdds() {
+        archive.add(returned("book-1", "member-1", 1_000));
+        archive.close();
+        
+        assertEquals(0, archive.size());
+        assertEquals(0, archive.segmentCount());
+        assertThrows(IllegalStateException.class, () -> archive.add(returned("book-1", "member-1", 1_000)));
+    }
+    
+    private LendingResponseDTO returned(String bookId, String memberId, long lendingTime) {
+        return new LendingResponseDTO(idGenerator.nextId(), bookId, memberId, lendingTime, lendingTime + 100, lendingTime + 50);
+    }
+    
+    private static void check(LendingResponseDTO lending, List<String> errors) {
+        if (lending != null && !lending.isReturned()) {
+            errors.add(lending.getLendingId() + " read as active");
+        }
+    }
+    
+    private static List<String> ids(List<LendingResponseDTO> lendings) {
+        return lendings.stream().map(LendingResponseDTO::getLendingId).sorted().toList();
+    }
+    
+    private static List<String> keys(Iterator<Map.Entry<String, LendingResponseDTO>> entries) {
+        List<String> keys = new ArrayList<>();
+        entries.forEachRemaining(entry -> keys.add(entry.getKey()));
+        return keys;
+    }
+}
@@ -0,0 +1,269 @@
+package com.library.service;
+
+import com.library.dto.BatchResultDTO;
+import com.library.dto.BookRequestDTO;
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.dto.MemberRequestDTO;
+import com.library.exception.BookNotAvailableException;
+import com.library.exception.ResourceInUseException;
+import com.library.exception.ResourceNotFoundException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers lend and return (single and batch) from many threads over a few scarce books, with lendings
+ * returned at random so the same lending is often returned by several threads at once. Afterwards every
+ * copy must be accounted for: on the shelf or in exactly one active lending. A second run deletes books
+ * and members while they are being lent, and checks that no active lending is left pointing at either.
+ * A third run returns lendings while their books are deleted, and checks that every return succeeds.
+ */
+@QuarkusTest
+class LendingConcurrencyTest {
+    
+    private static final int BOOKS = 16;
+    private static final int COPIES = 3;
+    private static final int MEMBERS = 32;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 25_000;
+    // Recently created lendings, shared by all threads, so returns of the same lending race each other
+    private static final int SLOTS = 64;
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Test
+    void copiesAreConservedUnderConcurrentLendAndReturn() throws Exception {
+        String run = Long.toString(System.nanoTime(), 36);
+        List<String> bookIds = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            String id = null;
+            for (int copy = 0; copy < COPIES; copy++) {
+                id = bookService.createBook(new BookRequestDTO("Stress " + run + " " + i, "Stress Author")).getId();
+            }
+            bookIds.add(id);
+        }
+        List<String> memberIds = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            memberIds.add(memberService.createMember(new MemberRequestDTO("Stress " + i, "stress-" + run + "-" + i + "@example.com")).getId());
+        }
+        long activeBefore = lendingService.countActiveLendings();
+        
+        AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(SLOTS);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String bookId = bookIds.get(random.nextInt(BOOKS));
+                        String memberId = memberIds.get(random.nextInt(MEMBERS));
+                        int slot = random.nextInt(SLOTS);
+                        int choice = random.nextInt(10);
+                        if (choice < 4) {
+                            try {
+                                LendingResponseDTO lending = lendingService.lendBook(new LendingRequestDTO(bookId, memberId));
+                                slots.set(slot, lending.getLendingId());
+                            } catch (BookNotAvailableException e) {
+                                // All copies are out; expected
+                            }
+                        } else if (choice < 5) {
+                            BatchResultDTO result = lendingService.lendBooks(memberId,
+                                    List.of(bookId, bookIds.get(random.nextInt(BOOKS))));
+                            if (result.isApplied()) {
+                                slots.set(slot, result.getItems().get(0).getLending().getLendingId());
+                            }
+                        } else if (choice < 9) {
+                            String lendingId = slots.get(slot);
+                            if (lendingId != null) {
+                                lendingService.returnBook(lendingId);
+                            }
+                        } else {
+                            String first = slots.get(slot);
+                            String second = slots.get(random.nextInt(SLOTS));
+                            if (first != null && second != null) {
+                                lendingService.returnBooks(List.of(first, second));
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        long activeForBooks = 0;
+        for (String bookId : bookIds) {
+            int onShelf = bookService.getBookById(bookId).getQuantity();
+            int lent = lendingService.getLendingsByBook(bookId, "active").size();
+            assertTrue(onShelf >= 0, "Negative stock for book " + bookId);
+            assertEquals(COPIES, onShelf + lent, "Copies of book " + bookId + " not conserved");
+            activeForBooks += lent;
+        }
+        assertEquals(activeBefore + activeForBooks, lendingService.countActiveLendings());
+    }
+    
+    @Test
+    void deletesNeverLeaveActiveLendingsBehind() throws Exception {
+        String run = Long.toString(System.nanoTime(), 36);
+        List<String> bookIds = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            String id = null;
+            for (int copy = 0; copy < COPIES; copy++) {
+                id = bookService.createBook(new BookRequestDTO("Delete " + run + " " + i, "Stress Author")).getId();
+            }
+            bookIds.add(id);
+        }
+        List<String> memberIds = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            memberIds.add(memberService.createMember(new MemberRequestDTO("Delete " + i, "delete-" + run + "-" + i + "@example.com")).getId());
+        }
+        // Every other book and every fourth member is deleted mid-run; half of those by cascade
+        List<String> doomedBooks = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i += 2) {
+            doomedBooks.add(bookIds.get(i));
+        }
+        List<String> doomedMembers = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i += 4) {
+            doomedMembers.add(memberIds.get(i));
+        }
+        
+        AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(SLOTS);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS - 1; t++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD / 5; i++) {
+                        int slot = random.nextInt(SLOTS);
+                        if (random.nextBoolean()) {
+                            try {
+                                LendingResponseDTO lending = lendingService.lendBook(new LendingRequestDTO(
+                                        bookIds.get(random.nextInt(BOOKS)), memberIds.get(random.nextInt(MEMBERS))));
+                                slots.set(slot, lending.getLendingId());
+                            } catch (BookNotAvailableException | ResourceNotFoundException e) {
+                                // No copy left, or the book or member was just deleted; expected
+                            }
+                        } else if (slots.get(slot) != null) {
+                            // A return must succeed even if its book or member is being deleted
+                            lendingService.returnBook(slots.get(slot));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < doomedBooks.size(); i++) {
+                    String bookId = doomedBooks.get(i);
+                    delete(() -> bookService.deleteBook(bookId), () -> lendingService.deleteBookCascade(bookId), i % 2 == 0);
+                }
+                for (int i = 0; i < doomedMembers.size(); i++) {
+                    String memberId = doomedMembers.get(i);
+                    delete(() -> memberService.deleteMember(memberId), () -> lendingService.deleteMemberCascade(memberId), i % 2 == 0);
+                }
+                return null;
+            }));
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        
+        Set<String> deleted = new HashSet<>(doomedBooks);
+        deleted.addAll(doomedMembers);
+        lendingService.streamLendings()
+                .filter(lending -> !lending.isReturned())
+                .forEach(lending -> {
+                    assertFalse(deleted.contains(lending.getBookId()), "Active lending of deleted book: " + lending);
+                    assertFalse(deleted.contains(lending.getMemberId()), "Active lending of deleted member: " + lending);
+                });
+        for (String bookId : bookIds) {
+            if (!deleted.contains(bookId)) {
+                int onShelf = bookService.getBookById(bookId).getQuantity();
+                int lent = lendingService.getLendingsByBook(bookId, "active").size();
+                assertEquals(COPIES, onShelf + lent, "Copies of book " + bookId + " not conserved");
+            }
+        }
+    }
+    
+    @Test
+    void returnsRacingDeletesNeverStrandLendings() throws Exception {
+        String run = Long.toString(System.nanoTime(), 36);
+        String memberId = memberService.createMember(new MemberRequestDTO("Race", "race-" + run + "@example.com")).getId();
+        List<String> bookIds = new ArrayList<>();
+        List<String> lendingIds = new ArrayList<>();
+        for (int i = 0; i < BOOKS * 16; i++) {
+            String bookId = bookService.createBook(new BookRequestDTO("Race " + run + " " + i, "Stress Author")).getId();
+            bookIds.add(bookId);
+            lendingIds.add(lendingService.lendBook(new LendingRequestDTO(bookId, memberId)).getLendingId());
+        }
+        
+        // Each book is deleted (plainly, retrying while it is lent, or by cascade) while its only lending is returned
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < bookIds.size(); i++) {
+                String bookId = bookIds.get(i);
+                String lendingId = lendingIds.get(i);
+                boolean useCascade = i % 2 == 0;
+                workers.add(executor.submit(() -> lendingService.returnBook(lendingId)));
+                workers.add(executor.submit(() -> delete(() -> bookService.deleteBook(bookId),
+                        () -> lendingService.deleteBookCascade(bookId), useCascade)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        
+        Set<String> raced = new HashSet<>(bookIds);
+        lendingService.streamLendings()
+                .filter(lending -> !lending.isReturned() && raced.contains(lending.getBookId()))
+                .forEach(lending -> assertNotNull(bookService.findBook(lending.getBookId()),
+                        "Active lending of deleted book: " + lending));
+        for (String bookId : bookIds) {
+            assertNull(bookService.findBook(bookId), "Book survived its delete: " + bookId);
+        }
+        for (String lendingId : lendingIds) {
+            assertTrue(lendingService.getLendingById(lendingId).isReturned(), "Lending left active: " + lendingId);
+        }
+    }
+    
+    // Tries a plain delete a few times (it is refused while lent out); if it never gets through, or when told to, cascades
+    private static void delete(Runnable plain, Runnable cascade, boolean useCascade) {
+        if (!useCascade) {
+            for (int attempt = 0; attempt < 1_000; attempt++) {
+                try {
+                    plain.run();
+                    return;
+                } catch (ResourceInUseException e) {
+                    Thread.yield();
+                } catch (ResourceNotFoundException e) {
+                    return;
+                }
+            }
+        }
+        cascade.run();
+    }
+}
@@ -0,0 +1,170 @@
+package com.library.service;
+
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BatchResultDTO;
+import com.library.dto.BookRequestDTO;
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.dto.MemberRequestDTO;
+import com.library.exception.InvalidRequestException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lending batches, one request at a time: a batch with a bad item is rejected as a whole, reports
+ * every item, and leaves stock, lendings and references as they were. Also checks that the member and
+ * book lookups split active from returned lendings the same way a full scan does.
+ */
+@QuarkusTest
+class LendingServiceTest {
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Test
+    void lendBatchWithASoldOutOrUnknownBookIsRejected() {
+        String run = run();
+        String memberId = member(run);
+        String available = book("Available " + run);
+        String soldOut = book("Sold Out " + run);
+        lendingService.lendBook(new LendingRequestDTO(soldOut, memberId));
+        String unknown = "missing-" + run;
+        long active = lendingService.countActiveLendings();
+        
+        BatchResultDTO result = lendingService.lendBooks(memberId, List.of(available, soldOut, unknown));
+        
+        assertFalse(result.isApplied());
+        List<BatchItemResultDTO> items = result.getItems();
+        assertEquals(List.of(available, soldOut, unknown), items.stream().map(BatchItemResultDTO::getId).toList());
+        assertEquals(BatchItemResultDTO.NOT_APPLIED, items.get(0).getStatus());
+        assertEquals(BatchItemResultDTO.FAILED, items.get(1).getStatus());
+        assertEquals("BOOK_NOT_AVAILABLE", items.get(1).getCode());
+        assertEquals(BatchItemResultDTO.FAILED, items.get(2).getStatus());
+        assertEquals("BOOK_NOT_FOUND", items.get(2).getCode());
+        
+        assertEquals(1, bookService.getBookById(available).getQuantity());
+        assertEquals(0, bookService.getBookById(soldOut).getQuantity());
+        assertEquals(active, lendingService.countActiveLendings());
+        assertTrue(lendingService.getLendingsByBook(available, "all").isEmpty());
+        // The rejected batch took no references, so nothing keeps the book from being deleted
+        bookService.deleteBook(available);
+    }
+    
+    @Test
+    void lendBatchRejectedOnlyForStockLeavesTheOtherCopiesOnTheShelf() {
+        String run = run();
+        String memberId = member(run);
+        String first = book("First " + run);
+        String second = book("Second " + run);
+        
+        // Two copies of a book with only one
+        BatchResultDTO result = lendingService.lendBooks(memberId, List.of(first, second, second));
+        
+        assertFalse(result.isApplied());
+        assertEquals(List.of(BatchItemResultDTO.NOT_APPLIED, BatchItemResultDTO.NOT_APPLIED, BatchItemResultDTO.FAILED),
+                result.getItems().stream().map(BatchItemResultDTO::getStatus).toList());
+        assertEquals(1, bookService.getBookById(first).getQuantity());
+        assertEquals(1, bookService.getBookById(second).getQuantity());
+        bookService.deleteBook(first);
+        bookService.deleteBook(second);
+    }
+    
+    @Test
+    void returnBatchWithAnUnknownLendingIsRejected() {
+        String run = run();
+        String memberId = member(run);
+        String bookId = book("Returned " + run);
+        LendingResponseDTO lending = lendingService.lendBook(new LendingRequestDTO(bookId, memberId));
+        String unknown = "missing-" + run;
+        
+        BatchResultDTO result = lendingService.returnBooks(List.of(lending.getLendingId(), unknown));
+        
+        assertFalse(result.isApplied());
+        assertEquals(BatchItemResultDTO.NOT_APPLIED, result.getItems().get(0).getStatus());
+        assertEquals(BatchItemResultDTO.FAILED, result.getItems().get(1).getStatus());
+        assertEquals("LENDING_NOT_FOUND", result.getItems().get(1).getCode());
+        assertFalse(lendingService.getLendingById(lending.getLendingId()).isReturned());
+        assertEquals(0, bookService.getBookById(bookId).getQuantity());
+        
+        // Listing a lending twice returns it once, and the second occurrence reports it as already returned
+        result = lendingService.returnBooks(List.of(lending.getLendingId(), lending.getLendingId()));
+        assertTrue(result.isApplied());
+        assertEquals(List.of(BatchItemResultDTO.RETURNED, BatchItemResultDTO.ALREADY_RETURNED),
+                result.getItems().stream().map(BatchItemResultDTO::getStatus).toList());
+        assertEquals(1, bookService.getBookById(bookId).getQuantity());
+    }
+    
+    @Test
+    void returnMovesALendingFromTheActiveToTheReturnedIndex() {
+        String run = run();
+        String memberId = member(run);
+        String otherMember = member(run + "-other");
+        String first = book("Indexed " + run);
+        book("Indexed " + run);
+        String second = book("Also Indexed " + run);
+        LendingResponseDTO returned = lendingService.lendBook(new LendingRequestDTO(first, memberId));
+        LendingResponseDTO active = lendingService.lendBook(new LendingRequestDTO(first, otherMember));
+        LendingResponseDTO other = lendingService.lendBook(new LendingRequestDTO(second, memberId));
+        assertEquals(List.of(returned.getLendingId(), other.getLendingId()), ids(lendingService.getLendingsByMember(memberId, "active")));
+        
+        lendingService.returnBook(returned.getLendingId());
+        
+        assertEquals(List.of(other.getLendingId()), ids(lendingService.getLendingsByMember(memberId, "active")));
+        assertEquals(List.of(returned.getLendingId()), ids(lendingService.getLendingsByMember(memberId, "returned")));
+        assertEquals(List.of(active.getLendingId()), ids(lendingService.getLendingsByBook(first, "ACTIVE")));
+        assertEquals(List.of(returned.getLendingId()), ids(lendingService.getLendingsByBook(first, "returned")));
+        assertThrows(InvalidRequestException.class, () -> lendingService.getLendingsByBook(first, "lost"));
+        
+        // Every lookup agrees with a scan of all lendings
+        List<LendingResponseDTO> all = lendingService.getAllLendings();
+        for (String status : new String[] {"active", "returned", "all"}) {
+            for (String id : List.of(memberId, otherMember)) {
+                assertEquals(scan(all, lending -> lending.getMemberId().equals(id), status),
+                        ids(lendingService.getLendingsByMember(id, status)), id + " " + status);
+            }
+            for (String id : List.of(first, second)) {
+                assertEquals(scan(all, lending -> lending.getBookId().equals(id), status),
+                        ids(lendingService.getLendingsByBook(id, status)), id + " " + status);
+            }
+        }
+    }
+    
+    // Helper method to select lendings by key and status the slow way
+    private static List<String> scan(List<LendingResponseDTO> all, Predicate<LendingResponseDTO> key, String status) {
+        return ids(all.stream()
+                .filter(key)
+                .filter(lending -> status.equals("all") || lending.isReturned() == status.equals("returned"))
+                .toList());
+    }
+    
+    private static List<String> ids(List<LendingResponseDTO> lendings) {
+        return lendings.stream().map(LendingResponseDTO::getLendingId).sorted().toList();
+    }
+    
+    private String book(String title) {
+        return bookService.createBook(new BookRequestDTO(title, "Lending Author")).getId();
+    }
+    
+    private String member(String run) {
+        return memberService.createMember(new MemberRequestDTO("Lending Member", "lending-" + run + "@example.com")).getId();
+    }
+    
+    private static String run() {
+        return Long.toString(System.nanoTime(), 36);
+    }
+}
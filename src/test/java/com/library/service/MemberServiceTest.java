@@ -0,0 +1,57 @@
+package com.library.service;
+
+import com.library.dto.MemberRequestDTO;
+import com.library.dto.MemberResponseDTO;
+import com.library.exception.DuplicateResourceException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Email uniqueness: addresses are compared ignoring case, exactly as {@link String#equalsIgnoreCase}
+ * compares them, and nothing else is normalized.
+ */
+@QuarkusTest
+class MemberServiceTest {
+    
+    @Inject
+    MemberService memberService;
+    
+    @Test
+    void emailsMatchIgnoringCase() {
+        String email = "reader-" + run() + "@example.com";
+        memberService.createMember(new MemberRequestDTO("Reader", email));
+        
+        assertThrows(DuplicateResourceException.class,
+                () -> memberService.createMember(new MemberRequestDTO("Other Reader", email.toUpperCase())));
+    }
+    
+    @Test
+    void surroundingWhitespaceIsSignificant() {
+        String email = "spaced-" + run() + "@example.com";
+        MemberResponseDTO plain = memberService.createMember(new MemberRequestDTO("Reader", email));
+        MemberResponseDTO padded = memberService.createMember(new MemberRequestDTO("Reader", " " + email));
+        
+        assertNotEquals(plain.getId(), padded.getId());
+    }
+    
+    @Test
+    void changingTheCaseOfOwnEmailIsNotAConflict() {
+        String run = run();
+        memberService.createMember(new MemberRequestDTO("Taken", "taken-" + run + "@example.com"));
+        MemberResponseDTO member = memberService.createMember(new MemberRequestDTO("Reader", "own-" + run + "@example.com"));
+        
+        MemberResponseDTO updated = memberService.updateMember(member.getId(), new MemberRequestDTO("Reader", "OWN-" + run + "@example.com"));
+        assertEquals("OWN-" + run + "@example.com", updated.getEmail());
+        assertThrows(DuplicateResourceException.class, () -> memberService.updateMember(member.getId(),
+                new MemberRequestDTO("Reader", "TAKEN-" + run + "@EXAMPLE.COM")));
+    }
+    
+    private static String run() {
+        return Long.toString(System.nanoTime(), 36);
+    }
+}
@@ -0,0 +1,74 @@
+package com.library.service;
+
+import com.library.dto.BookRequestDTO;
+import com.library.dto.LendingRequestDTO;
+import com.library.dto.LendingResponseDTO;
+import com.library.dto.MemberRequestDTO;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Overdue tracking end to end, with a one-second loan period: the scheduler marks a lending overdue
+ * once its due time passes, GET /api/lending/overdue lists it, and returned lendings never show up.
+ */
+@QuarkusTest
+@TestProfile(OverdueLendingsTest.ShortLoans.class)
+class OverdueLendingsTest {
+    
+    public static class ShortLoans implements QuarkusTestProfile {
+        
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("library.lending.loan-period", "1s");
+        }
+    }
+    
+    @Inject
+    BookService bookService;
+    
+    @Inject
+    MemberService memberService;
+    
+    @Inject
+    LendingService lendingService;
+    
+    @Test
+    void lendingTurnsOverdueOnceItsDueTimePasses() throws InterruptedException {
+        String run = Long.toString(System.nanoTime(), 36);
+        String bookId = bookService.createBook(new BookRequestDTO("Overdue " + run, "Late Author")).getId();
+        bookService.createBook(new BookRequestDTO("Overdue " + run, "Late Author"));
+        String memberId = memberService.createMember(new MemberRequestDTO("Late Member", "late-" + run + "@example.com")).getId();
+        LendingResponseDTO kept = lendingService.lendBook(new LendingRequestDTO(bookId, memberId));
+        LendingResponseDTO returned = lendingService.lendBook(new LendingRequestDTO(bookId, memberId));
+        lendingService.returnBook(returned.getLendingId());
+        
+        // One tick after the due time at the latest, with slack for a slow machine
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!overdueIds().contains(kept.getLendingId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        
+        List<String> overdue = overdueIds();
+        assertTrue(overdue.contains(kept.getLendingId()), overdue.toString());
+        assertFalse(overdue.contains(returned.getLendingId()));
+        assertTrue(System.currentTimeMillis() >= kept.getDueTime());
+        assertTrue(lendingService.getOverdueLendings().stream().anyMatch(l -> l.getLendingId().equals(kept.getLendingId())));
+        
+        lendingService.returnBook(kept.getLendingId());
+        assertFalse(overdueIds().contains(kept.getLendingId()));
+    }
+    
+    private static List<String> overdueIds() {
+        return given().get("/api/lending/overdue").then().statusCode(200).extract().jsonPath().getList("lendingId");
+    }
+}
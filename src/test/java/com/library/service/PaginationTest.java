@@ -0,0 +1,139 @@
+package com.library.service;
+
+import com.library.dto.PageResponseDTO;
+import com.library.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cursor pagination: limits, walking pages with the opaque cursor, and cursors that no longer point
+ * at an existing entry.
+ */
+class PaginationTest {
+    
+    @Test
+    void walksAllPagesInKeyOrderWithTheCursor() {
+        NavigableMap<String, String> source = entries(5);
+        
+        PageResponseDTO<String> first = Pagination.page(source, null, 2, Function.identity());
+        PageResponseDTO<String> second = Pagination.page(source, first.getNextCursor(), 2, Function.identity());
+        PageResponseDTO<String> last = Pagination.page(source, second.getNextCursor(), 2, Function.identity());
+        
+        assertEquals(List.of("k0", "k1"), first.getItems());
+        assertEquals(List.of("k2", "k3"), second.getItems());
+        assertEquals(List.of("k4"), last.getItems());
+        assertNull(last.getNextCursor());
+    }
+    
+    @Test
+    void fullLastPageHasNoCursor() {
+        NavigableMap<String, String> source = entries(4);
+        
+        PageResponseDTO<String> first = Pagination.page(source, null, 2, Function.identity());
+        PageResponseDTO<String> second = Pagination.page(source, first.getNextCursor(), 2, Function.identity());
+        
+        assertEquals(List.of("k2", "k3"), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void missingOrBlankLimitAndCursorStartAtTheBeginningWithTheDefaultLimit() {
+        NavigableMap<String, String> source = entries(Pagination.DEFAULT_LIMIT + 1);
+        
+        for (String cursor : new String[] {null, "", "  "}) {
+            PageResponseDTO<String> page = Pagination.page(source, cursor, null, Function.identity());
+            assertEquals(Pagination.DEFAULT_LIMIT, page.getLimit());
+            assertEquals(Pagination.DEFAULT_LIMIT, page.getItems().size());
+            assertEquals("k00", page.getItems().get(0));
+        }
+    }
+    
+    @Test
+    void limitAboveTheMaximumIsCapped() {
+        PageResponseDTO<String> page = Pagination.page(entries(Pagination.MAX_LIMIT + 5), null, Integer.MAX_VALUE,
+                Function.identity());
+        
+        assertEquals(Pagination.MAX_LIMIT, page.getLimit());
+        assertEquals(Pagination.MAX_LIMIT, page.getItems().size());
+    }
+    
+    @Test
+    void zeroOrNegativeLimitIsRejected() {
+        NavigableMap<String, String> source = entries(3);
+        
+        for (int limit : new int[] {0, -1, Integer.MIN_VALUE}) {
+            assertThrows(InvalidRequestException.class, () -> Pagination.page(source, null, limit, Function.identity()));
+        }
+    }
+    
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(InvalidRequestException.class,
+                () -> Pagination.page(entries(3), "not a cursor!", 2, Function.identity()));
+    }
+    
+    @Test
+    void cursorPastTheEndGivesAnEmptyLastPage() {
+        NavigableMap<String, String> source = entries(3);
+        PageResponseDTO<String> first = Pagination.page(source, null, 2, Function.identity());
+        source.tailMap("k1", false).clear();
+        
+        PageResponseDTO<String> page = Pagination.page(source, first.getNextCursor(), 2, Function.identity());
+        
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+    
+    @Test
+    void cursorStaysValidWhenItsEntryIsRemovedAndEarlierOnesAreAdded() {
+        NavigableMap<String, String> source = entries(6);
+        PageResponseDTO<String> first = Pagination.page(source, null, 3, Function.identity());
+        source.remove("k2");
+        source.put("k0a", "k0a");
+        
+        PageResponseDTO<String> second = Pagination.page(source, first.getNextCursor(), 3, Function.identity());
+        
+        // Nothing is skipped or repeated: the page resumes after the last ID returned
+        assertEquals(List.of("k3", "k4", "k5"), second.getItems());
+    }
+    
+    @Test
+    void functionSourceResumesAfterTheDecodedKey() {
+        NavigableMap<String, String> source = entries(5);
+        List<String> requested = new ArrayList<>();
+        Function<String, Iterator<Map.Entry<String, String>>> entriesAfter = after -> {
+            requested.add(after);
+            return (after == null ? source : source.tailMap(after, false)).entrySet().iterator();
+        };
+        
+        PageResponseDTO<String> first = Pagination.page(entriesAfter, null, 3, Function.identity());
+        PageResponseDTO<String> second = Pagination.page(entriesAfter, first.getNextCursor(), 3, Function.identity());
+        
+        assertEquals(List.of("k3", "k4"), second.getItems());
+        assertEquals(Arrays.asList(null, "k2"), requested);
+    }
+    
+    // Helper method to build a sorted source whose keys sort like their numbers
+    private static NavigableMap<String, String> entries(int count) {
+        int width = Integer.toString(Math.max(count - 1, 0)).length();
+        NavigableMap<String, String> source = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = "k" + String.format("%0" + width + "d", i);
+            source.put(key, key);
+        }
+        return source;
+    }
+}
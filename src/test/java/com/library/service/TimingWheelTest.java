@@ -0,0 +1,90 @@
+package com.library.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The due-date wheel on a one-millisecond tick: keys expire on the first advance that reaches their
+ * deadline, whether they were filed in the first level or cascade down from a higher one, and a
+ * cancelled or rescheduled key does not expire at its old deadline.
+ */
+class TimingWheelTest {
+    
+    // Ticks covered by one slot of level 1 and of level 2
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * 64;
+    
+    private final TimingWheel wheel = new TimingWheel(1, 0);
+    
+    @Test
+    void keysExpireWithinTheFirstLevel() {
+        wheel.schedule("b", 20);
+        wheel.schedule("a", 10);
+        wheel.schedule("c", 10);
+        
+        assertTrue(wheel.advance(9).isEmpty());
+        assertEquals(List.of("a", "c"), sorted(wheel.advance(10)));
+        assertTrue(wheel.advance(19).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(25));
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void passedDeadlinesExpireOnTheNextAdvance() {
+        wheel.advance(100);
+        wheel.schedule("late", 50);
+        
+        assertTrue(wheel.advance(100).isEmpty());
+        assertEquals(List.of("late"), wheel.advance(101));
+    }
+    
+    @Test
+    void keysCascadeFromHigherLevels() {
+        long level1 = 3 * LEVEL_1 + 5;
+        long level2 = 2 * LEVEL_2 + 3 * LEVEL_1 + 7;
+        wheel.schedule("level-1", level1);
+        wheel.schedule("level-2", level2);
+        
+        // Step across the slot boundaries one advance at a time, so every cascade runs on its own
+        for (long now = 1; now < level1; now++) {
+            assertTrue(wheel.advance(now).isEmpty(), "expired early at " + now);
+        }
+        assertEquals(List.of("level-1"), wheel.advance(level1));
+        assertTrue(wheel.advance(level2 - 1).isEmpty());
+        assertEquals(List.of("level-2"), wheel.advance(level2));
+    }
+    
+    @Test
+    void cancelledKeysDoNotExpire() {
+        long level2 = 2 * LEVEL_2 + 9;
+        wheel.schedule("returned", 10);
+        wheel.schedule("kept", 10);
+        wheel.schedule("returned-later", level2);
+        wheel.cancel("returned");
+        wheel.cancel("unknown");
+        
+        assertEquals(List.of("kept"), wheel.advance(10));
+        // Cancelled after it has cascaded down to the first level
+        wheel.advance(2 * LEVEL_2);
+        wheel.cancel("returned-later");
+        assertTrue(wheel.advance(level2 + LEVEL_2).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void reschedulingReplacesTheDeadline() {
+        wheel.schedule("key", 10);
+        wheel.schedule("key", 3 * LEVEL_1);
+        
+        assertTrue(wheel.advance(3 * LEVEL_1 - 1).isEmpty());
+        assertEquals(List.of("key"), wheel.advance(3 * LEVEL_1));
+    }
+    
+    private static List<String> sorted(List<String> keys) {
+        return keys.stream().sorted().toList();
+    }
+}